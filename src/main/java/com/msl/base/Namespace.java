@@ -1,28 +1,137 @@
 package com.msl.base;
 
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 命名空间句柄：对命名空间标识（Class、String等）驻留，分配稠密的整数序号
+ * <p>
+ * 上下文按序号以数组存储各命名空间的数据，持有句柄访问时不再需要对命名空间做哈希查找；
+ * 以原始标识访问时经一次驻留查找得到序号。句柄与其标识指向同一命名空间，
+ * 注册到{@code ModelBuilder}时会被还原为标识。
+ * 以Class为标识的句柄随Class保存（{@link ClassValue}），不会阻止其类加载器被回收；
+ * 其他标识的驻留表全局共享且不回收，命名空间应为有限的常量，不应以动态拼接的字符串作为命名空间，
+ * 只读的查找（{@link #lookup(Object)}）不会驻留新的标识
+ *
+ * @param <K> 空间内数据的id类型
+ * @param <V> 空间内数据的类型
  * @author wanglq
  * Date 2022/11/4
  * Time 17:10
  */
-public class Namespace {
-    private Object identify;
+public class Namespace<K, V> {
+    private static final ConcurrentMap<Object, Namespace<?, ?>> INTERNED = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+    private static final ClassValue<Namespace<?, ?>> CLASSES = new ClassValue<Namespace<?, ?>>() {
+        @Override
+        protected Namespace<?, ?> computeValue(Class<?> type) {
+            return new Namespace<>(type, NEXT_ORDINAL.getAndIncrement());
+        }
+    };
+
+    private final Object identify;
+    private final int ordinal;
 
     public Namespace(Object identify) {
-        this.identify = Objects.requireNonNull(identify);
+        this.identify = identify(Objects.requireNonNull(identify));
+        this.ordinal = ordinal(this.identify);
+    }
+
+    private Namespace(Object identify, int ordinal) {
+        this.identify = identify;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * 获取命名空间的句柄，不存在时驻留并分配序号
+     *
+     * @param namespace 命名空间标识或句柄
+     * @param <K>       空间内数据的id类型
+     * @param <V>       空间内数据的类型
+     * @return 句柄
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Namespace<K, V> of(Object namespace) {
+        if (namespace instanceof Namespace) {
+            return (Namespace<K, V>) namespace;
+        }
+        if (namespace instanceof Class) {
+            return (Namespace<K, V>) CLASSES.get((Class<?>) namespace);
+        }
+        Namespace<?, ?> handle = INTERNED.get(Objects.requireNonNull(namespace));
+        if (handle == null) {
+            handle = INTERNED.computeIfAbsent(namespace, ns -> new Namespace<>(ns, NEXT_ORDINAL.getAndIncrement()));
+        }
+        return (Namespace<K, V>) handle;
+    }
+
+    /**
+     * 查找已驻留的命名空间的句柄，不驻留新的标识
+     *
+     * @param namespace 命名空间标识或句柄
+     * @param <K>       空间内数据的id类型
+     * @param <V>       空间内数据的类型
+     * @return 句柄，标识未驻留时为null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Namespace<K, V> lookup(Object namespace) {
+        if (namespace instanceof Namespace || namespace instanceof Class) {
+            return of(namespace);
+        }
+        return (Namespace<K, V>) INTERNED.get(Objects.requireNonNull(namespace));
+    }
+
+    /**
+     * 命名空间的序号
+     *
+     * @param namespace 命名空间标识或句柄
+     * @return 序号
+     */
+    public static int ordinal(Object namespace) {
+        return namespace instanceof Namespace ? ((Namespace<?, ?>) namespace).ordinal : of(namespace).ordinal;
+    }
+
+    /**
+     * 命名空间的标识，句柄还原为其标识
+     *
+     * @param namespace 命名空间标识或句柄
+     * @return 标识
+     */
+    public static Object identify(Object namespace) {
+        return namespace instanceof Namespace ? ((Namespace<?, ?>) namespace).identify : namespace;
+    }
+
+    /**
+     * 已驻留的命名空间数量，序号均小于此值
+     *
+     * @return 数量
+     */
+    public static int count() {
+        return NEXT_ORDINAL.get();
+    }
+
+    public Object getIdentify() {
+        return identify;
     }
 
+    public int ordinal() {
+        return ordinal;
+    }
 
     @Override
     public int hashCode() {
         return identify.hashCode();
     }
 
-
     @Override
     public boolean equals(Object obj) {
-        return (obj instanceof Namespace) && identify.equals(((Namespace) obj).identify);
+        return (obj instanceof Namespace) && identify.equals(((Namespace<?, ?>) obj).identify);
+    }
+
+    @Override
+    public String toString() {
+        return "Namespace(" + identify + ")";
     }
 }
@@ -1,16 +1,26 @@
 package com.msl.model.builder;
 
 import com.msl.base.KeyPair;
+import com.msl.base.Namespace;
 import com.msl.model.builder.context.BuildContext;
 import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.ExtractionSink;
 import com.msl.model.builder.context.LazyBuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
 import com.msl.model.builder.impl.DefaultBuilderRegistry;
 import com.msl.model.builder.impl.DefaultExtractorRegistry;
+import com.msl.model.utils.FutureUtil;
 import com.msl.model.utils.StoreUtil;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -36,6 +46,16 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
         this.builderRegistry = builderRegistry;
     }
 
+    /**
+     * 驻留命名空间（分配序号）并将句柄还原为标识，注册中心以标识存储
+     *
+     * @param namespace 命名空间标识或句柄
+     * @return 命名空间标识
+     */
+    private static Object namespace(Object namespace) {
+        return Namespace.of(namespace).getIdentify();
+    }
+
     /**
      * 构造列表数据
      *
@@ -56,6 +76,60 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
      */
     protected abstract void doBuild(Iterable<?> sources, BuildContext buildContext);
 
+    /**
+     * 异步构造列表数据
+     *
+     * @param sources      原始数据
+     * @param buildContext 构造上下文
+     * @return 构造完成时结束的异步结果
+     */
+    @Override
+    public final CompletionStage<Void> buildMultiAsync(Iterable<?> sources, BuildContext buildContext) {
+        alreadyBuilt = true;
+        try {
+            return doBuildAsync(sources, buildContext);
+        } catch (Throwable e) {
+            return FutureUtil.failed(e);
+        }
+    }
+
+    /**
+     * 执行异步构建，默认在当前线程同步构建
+     *
+     * @param sources      原始数据
+     * @param buildContext 构造上下文
+     * @return 构造完成时结束的异步结果
+     */
+    protected CompletionStage<Void> doBuildAsync(Iterable<?> sources, BuildContext buildContext) {
+        doBuild(sources, buildContext);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 分块流式构造，每块以新的{@link SimpleBuildContext}构造
+     *
+     * @param sources   原始数据
+     * @param chunkSize 每块数据量
+     * @param sink      每块数据及其上下文的处理
+     * @see #buildStream(Iterator, int, Collection, Function, BiConsumer)
+     */
+    public void buildStream(Iterator<?> sources, int chunkSize, BiConsumer<List<?>, BuildContext> sink) {
+        buildStream(sources, chunkSize, Collections.emptySet(), sink);
+    }
+
+    /**
+     * 分块流式构造，每块以共享了缓存数据的{@link SimpleBuildContext}构造，
+     * 指定的命名空间（如用户、分类等重复出现的数据）在各块间共享，只构造一次
+     *
+     * @param sources          原始数据
+     * @param chunkSize        每块数据量
+     * @param sharedNamespaces 各块间共享的命名空间
+     * @param sink             每块数据及其上下文的处理
+     */
+    public void buildStream(Iterator<?> sources, int chunkSize, Collection<?> sharedNamespaces, BiConsumer<List<?>, BuildContext> sink) {
+        buildStream(sources, chunkSize, sharedNamespaces, SimpleBuildContext::new, sink);
+    }
+
     /**
      * 注册构造器
      * <p>
@@ -68,7 +142,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <K> AbstractModelBuilder buildValue(Object idNamespace, Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder) {
         tryCheckConflict();
-        builderRegistry.buildValue(idNamespace, valueBuilder);
+        builderRegistry.buildValue(namespace(idNamespace), valueBuilder);
         return this;
     }
 
@@ -84,7 +158,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <K, B extends BuildContext> AbstractModelBuilder buildValue(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder) {
         tryCheckConflict();
-        builderRegistry.buildValue(idNamespace, valueBuilder);
+        builderRegistry.buildValue(namespace(idNamespace), valueBuilder);
         return this;
     }
 
@@ -99,7 +173,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <K> AbstractModelBuilder buildValue(Object idNamespace, Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object toValueNamespace) {
         tryCheckConflict();
-        builderRegistry.buildValue(idNamespace, valueBuilder, toValueNamespace);
+        builderRegistry.buildValue(namespace(idNamespace), valueBuilder, namespace(toValueNamespace));
         return this;
     }
 
@@ -114,7 +188,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <K, B extends BuildContext> AbstractModelBuilder buildValue(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object toValueNamespace) {
         tryCheckConflict();
-        builderRegistry.buildValue(idNamespace, valueBuilder, toValueNamespace);
+        builderRegistry.buildValue(namespace(idNamespace), valueBuilder, namespace(toValueNamespace));
         return this;
     }
 
@@ -129,6 +203,79 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
         return builderRegistry.getBuilders(idNamespace);
     }
 
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, Function, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @return 返回注册中心
+     */
+    @Override
+    public final <K> AbstractModelBuilder buildValueAsync(Object idNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder) {
+        tryCheckConflict();
+        builderRegistry.buildValueAsync(namespace(idNamespace), valueBuilder);
+        return this;
+    }
+
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, BiFunction, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @return 返回注册中心
+     */
+    @Override
+    public final <K, B extends BuildContext> AbstractModelBuilder buildValueAsync(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder) {
+        tryCheckConflict();
+        builderRegistry.buildValueAsync(namespace(idNamespace), valueBuilder);
+        return this;
+    }
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @return 返回注册中心
+     */
+    @Override
+    public final <K> AbstractModelBuilder buildValueAsync(Object idNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace) {
+        tryCheckConflict();
+        builderRegistry.buildValueAsync(namespace(idNamespace), valueBuilder, namespace(toValueNamespace));
+        return this;
+    }
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @return 返回注册中心
+     */
+    @Override
+    public final <K, B extends BuildContext> AbstractModelBuilder buildValueAsync(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace) {
+        tryCheckConflict();
+        builderRegistry.buildValueAsync(namespace(idNamespace), valueBuilder, namespace(toValueNamespace));
+        return this;
+    }
+
+    /**
+     * 根据id命名空间获取所有的异步构造器
+     *
+     * @param idNamespace id命名空间
+     * @return value空间和对应的异步构造器
+     */
+    @Override
+    public Set<KeyPair<BiFunction<BuildContext, Collection<Object>, CompletionStage<Map<Object, Object>>>>> getAsyncBuilders(Object idNamespace) {
+        return builderRegistry.getAsyncBuilders(idNamespace);
+    }
+
     /**
      * 注册延迟构造器
      *
@@ -139,13 +286,16 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
      */
     @Override
     public final <K> AbstractModelBuilder lazyBuild(Object idNamespace, Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace) {
+        Object idNs = namespace(idNamespace);
+        Object valueNs = namespace(valueNamespace);
         Function<LazyBuildContext, Map<K, ?>> lazyBuilder = context -> {
-            Map<K, ?> map = valueBuilder.apply(StoreUtil.<K>filterIdSet(valueNamespace, context.getIds(idNamespace), context));
-            StoreUtil.mergeValueToBuildContext((Map<Object, Object>) map, valueNamespace, context);
-            buildMulti(map.values(), context);
+            Map<K, ?> map = StoreUtil.lazyFetch(context, idNs, valueNs, (LazyBuildContext c, Collection<K> ids) -> valueBuilder.apply(ids));
+            if (!map.isEmpty()) {
+                buildMulti(map.values(), context);
+            }
             return map;
         };
-        return lazyBuild(valueNamespace, lazyBuilder);
+        return lazyBuild(valueNs, lazyBuilder);
     }
 
     /**
@@ -158,13 +308,16 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
      */
     @Override
     public final <K, B extends LazyBuildContext> AbstractModelBuilder lazyBuild(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace) {
+        Object idNs = namespace(idNamespace);
+        Object valueNs = namespace(valueNamespace);
         Function<B, ? extends Map<K, ?>> lazyBuilder = context -> {
-            Map<K, ?> map = valueBuilder.apply(context, StoreUtil.<K>filterIdSet(valueNamespace, context.getIds(idNamespace), context));
-            StoreUtil.mergeValueToBuildContext((Map<Object, Object>) map, valueNamespace, context);
-            buildMulti(map.values(), context);
+            Map<K, ?> map = StoreUtil.lazyFetch(context, idNs, valueNs, valueBuilder);
+            if (!map.isEmpty()) {
+                buildMulti(map.values(), context);
+            }
             return map;
         };
-        return lazyBuild(valueNamespace, lazyBuilder);
+        return lazyBuild(valueNs, lazyBuilder);
     }
 
     /**
@@ -177,7 +330,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public <K, B extends LazyBuildContext> AbstractModelBuilder lazyBuild(Object valueNamespace, Function<B, ? extends Map<K, ?>> valueBuilder) {
         tryCheckConflict();
-        builderRegistry.lazyBuild(valueNamespace, valueBuilder);
+        builderRegistry.lazyBuild(namespace(valueNamespace), valueBuilder);
         return this;
     }
 
@@ -212,6 +365,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <E> AbstractModelBuilder valueFromSelf(Class<E> type, Function<E, Object> idExtractor) {
         tryCheckConflict();
+        Namespace.of(type);
         extractorRegistry.valueFromSelf(type, idExtractor);
         return this;
     }
@@ -227,7 +381,7 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <E> AbstractModelBuilder extractId(Class<E> type, Function<E, Object> idExtractor, Object toIdNamespace) {
         tryCheckConflict();
-        extractorRegistry.extractId(type, idExtractor, toIdNamespace);
+        extractorRegistry.extractId(type, idExtractor, namespace(toIdNamespace));
         return this;
     }
 
@@ -243,7 +397,21 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
     @Override
     public final <E, V> AbstractModelBuilder extractValue(Class<E> type, Function<E, Object> valueExtractor, Function<V, Object> idExtractor, Object toValueNamespace) {
         tryCheckConflict();
-        extractorRegistry.extractValue(type, valueExtractor, idExtractor, toValueNamespace);
+        extractorRegistry.extractValue(type, valueExtractor, idExtractor, namespace(toValueNamespace));
+        return this;
+    }
+
+    /**
+     * 注册直接写入接收方的提取器
+     *
+     * @param type      Model类型
+     * @param extractor 提取器
+     * @return 提取器注册中心
+     */
+    @Override
+    public final <E> AbstractModelBuilder extract(Class<E> type, BiConsumer<? super E, ExtractionSink> extractor) {
+        tryCheckConflict();
+        extractorRegistry.extract(type, extractor);
         return this;
     }
 
@@ -280,6 +448,17 @@ public abstract class AbstractModelBuilder implements ModelBuilder {
         return extractorRegistry.getValueExtractors(type);
     }
 
+    /**
+     * 编译提取器，通常在注册完成后、开始构建前调用
+     *
+     * @return modelBuilder自身
+     */
+    @Override
+    public AbstractModelBuilder compile() {
+        extractorRegistry.compile();
+        return this;
+    }
+
     /**
      * 执行数据提取
      *
@@ -0,0 +1,342 @@
+package com.msl.model.builder;
+
+import com.msl.model.utils.FutureUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 构造器的调用选项
+ * <p>
+ * 控制传给构造器的id集合的形状：单次最多id数、id排序、按固定档位补齐长度（固定IN列表长度以复用预编译语句），
+ * 拆分后的多次调用可以并发执行，结果合并成一个Map后再进入构造临时数据；可设置调用超时
+ *
+ * @author wanglq
+ * Date 2022/11/16
+ * Time 09:40
+ */
+public class BuildOptions {
+    private static final int RUNNING = 0;
+    private static final int FINISHED = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int TIMED_OUT = 3;
+
+    /**
+     * 单次调用最多的id数，0为不限制
+     */
+    private int batchSize;
+    /**
+     * 是否按自然顺序排序id
+     */
+    private boolean sorted;
+    /**
+     * 补齐长度的档位，升序
+     */
+    private int[] buckets;
+    /**
+     * 生成第i个补齐id，补齐id不对应任何数据
+     */
+    private IntFunction<?> padding;
+    /**
+     * 拆分后并发调用的线程池，为空时依次调用
+     */
+    private Executor executor;
+    /**
+     * 单次构造器调用（含拆分后的所有调用）的超时纳秒数，0为不限制
+     */
+    private long timeoutNanos;
+
+    private BuildOptions() {
+    }
+
+    /**
+     * 默认选项：不拆分、不排序、不补齐
+     *
+     * @return 调用选项
+     */
+    public static BuildOptions options() {
+        return new BuildOptions();
+    }
+
+    /**
+     * 按单次最多id数拆分
+     *
+     * @param batchSize 单次调用最多的id数
+     * @return 调用选项
+     */
+    public static BuildOptions batch(int batchSize) {
+        return options().batchSize(batchSize);
+    }
+
+    /**
+     * 设置单次调用最多的id数
+     *
+     * @param batchSize 单次调用最多的id数
+     * @return 调用选项
+     */
+    public BuildOptions batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 按自然顺序排序id，id不可比较时保持原顺序
+     *
+     * @return 调用选项
+     */
+    public BuildOptions sorted() {
+        this.sorted = true;
+        return this;
+    }
+
+    /**
+     * 将每次调用的id数补齐到不小于它的最小档位，传给构造器的id不会重复，构造器返回的补齐id的数据被丢弃；
+     * 未设置单次最多id数时以最大档位为准
+     *
+     * @param padding 生成第i个补齐id，应返回互不相同且不对应任何数据的id，如 {@code i -> -1 - i}
+     * @param sizes   档位
+     * @return 调用选项
+     */
+    public BuildOptions buckets(IntFunction<?> padding, int... sizes) {
+        Objects.requireNonNull(padding, "padding");
+        if (sizes.length == 0) {
+            throw new IllegalArgumentException("buckets must not be empty");
+        }
+        int[] sorted = sizes.clone();
+        Arrays.sort(sorted);
+        if (sorted[0] <= 0) {
+            throw new IllegalArgumentException("bucket size must be positive");
+        }
+        this.buckets = sorted;
+        this.padding = padding;
+        return this;
+    }
+
+    /**
+     * 拆分后的多次调用在指定线程池中并发执行
+     *
+     * @param executor 线程池
+     * @return 调用选项
+     */
+    public BuildOptions parallel(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 设置构造器调用超时：超时后中断调用并抛出{@link BuildTimeoutException}，
+     * 构建不会失败，对应命名空间被标记为超时；
+     * 调用仍在原线程执行，不占用额外线程，由共享的定时器在到期时中断调用线程（及拆分后并发的调用），
+     * 不响应中断的构造器返回后才抛出超时
+     *
+     * @param timeout 超时时长
+     * @param unit    时间单位
+     * @return 调用选项
+     */
+    public BuildOptions timeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * 按选项包装构造器
+     *
+     * @param valueBuilder 构造器
+     * @param <K>          id类型
+     * @return 包装后的构造器
+     */
+    public <K> Function<Collection<K>, Map<K, ?>> wrap(Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder) {
+        BiFunction<Object, Collection<K>, Map<K, ?>> builder = wrap((context, ids) -> valueBuilder.apply(ids));
+        return ids -> builder.apply(null, ids);
+    }
+
+    /**
+     * 按选项包装构造器，选项在包装时确定，之后修改选项不影响已包装的构造器
+     *
+     * @param valueBuilder 构造器
+     * @param <K>          id类型
+     * @param <B>          上下文类型
+     * @return 包装后的构造器
+     */
+    public <K, B> BiFunction<B, Collection<K>, Map<K, ?>> wrap(BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder) {
+        int maxSize = maxSize();
+        boolean sortIds = sorted;
+        int[] bucketSizes = buckets;
+        IntFunction<?> padding = this.padding;
+        Executor executor = this.executor;
+        long timeoutNanos = this.timeoutNanos;
+        BiFunction<B, Collection<K>, Map<K, ?>> chunked = (context, ids) -> {
+            if (!sortIds && bucketSizes == null && ids.size() <= maxSize) {
+                return valueBuilder.apply(context, ids);
+            }
+            List<K> idList = new ArrayList<>(ids);
+            if (sortIds) {
+                sort(idList);
+            }
+            List<List<K>> chunks = new ArrayList<>();
+            for (int from = 0; from < idList.size(); from += maxSize) {
+                chunks.add(idList.subList(from, Math.min(idList.size(), from + maxSize)));
+            }
+            if (chunks.size() <= 1) {
+                return applyPadded(valueBuilder, context, chunks.isEmpty() ? idList : chunks.get(0), bucketSizes, padding);
+            }
+            Map<K, Object> values = new HashMap<>();
+            if (executor == null) {
+                for (List<K> chunk : chunks) {
+                    putAll(values, applyPadded(valueBuilder, context, chunk, bucketSizes, padding));
+                }
+                return values;
+            }
+            List<CompletableFuture<Map<K, ?>>> futures = new ArrayList<>(chunks.size());
+            for (List<K> chunk : chunks) {
+                futures.add(FutureUtil.supplyAsync(() -> applyPadded(valueBuilder, context, chunk, bucketSizes, padding), executor));
+            }
+            for (CompletableFuture<Map<K, ?>> future : futures) {
+                putAll(values, await(future, futures));
+            }
+            return values;
+        };
+        if (timeoutNanos <= 0) {
+            return chunked;
+        }
+        return (context, ids) -> {
+            Thread caller = Thread.currentThread();
+            AtomicInteger state = new AtomicInteger(RUNNING);
+            ScheduledFuture<?> timer = FutureUtil.schedule(() -> {
+                if (state.compareAndSet(RUNNING, INTERRUPTING)) {
+                    caller.interrupt();
+                    state.set(TIMED_OUT);
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            try {
+                Map<K, ?> values = chunked.apply(context, ids);
+                if (state.compareAndSet(RUNNING, FINISHED)) {
+                    return values;
+                }
+            } catch (RuntimeException | Error e) {
+                if (state.compareAndSet(RUNNING, FINISHED)) {
+                    throw e;
+                }
+            } finally {
+                timer.cancel(false);
+            }
+            // 定时器已中断调用线程，等待中断完成后清除中断状态
+            while (state.get() != TIMED_OUT) {
+                Thread.yield();
+            }
+            Thread.interrupted();
+            throw new BuildTimeoutException("构造器调用超时：" + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms");
+        };
+    }
+
+    private static <K> Map<K, ?> await(CompletableFuture<Map<K, ?>> future, List<CompletableFuture<Map<K, ?>>> futures) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new BuildTimeoutException("构造器调用被中断");
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private int maxSize() {
+        int maxSize = batchSize > 0 ? batchSize : Integer.MAX_VALUE;
+        if (buckets != null) {
+            maxSize = Math.min(maxSize, buckets[buckets.length - 1]);
+        }
+        return maxSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, B> Map<K, ?> applyPadded(BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, B context,
+                                              List<K> chunk, int[] buckets, IntFunction<?> padding) {
+        int size = bucket(chunk.size(), buckets);
+        if (size <= chunk.size()) {
+            return valueBuilder.apply(context, chunk);
+        }
+        List<K> padded = new ArrayList<>(size);
+        padded.addAll(chunk);
+        Set<Object> ids = new HashSet<>(chunk);
+        Set<Object> paddingIds = new HashSet<>();
+        // 补齐函数返回重复或已有的id时跳过，最多尝试size次，避免传给构造器重复的id
+        for (int i = 0; i < size && padded.size() < size; i++) {
+            Object id = padding.apply(i);
+            if (ids.add(id)) {
+                paddingIds.add(id);
+                padded.add((K) id);
+            }
+        }
+        Map<K, ?> values = valueBuilder.apply(context, padded);
+        if (values == null || paddingIds.stream().noneMatch(values::containsKey)) {
+            return values;
+        }
+        Map<K, Object> copy = new HashMap<>(values);
+        copy.keySet().removeAll(paddingIds);
+        return copy;
+    }
+
+    private static int bucket(int size, int[] buckets) {
+        if (buckets == null || size == 0) {
+            return size;
+        }
+        for (int bucket : buckets) {
+            if (bucket >= size) {
+                return bucket;
+            }
+        }
+        return size;
+    }
+
+    private static <K> void putAll(Map<K, Object> values, Map<K, ?> chunkValues) {
+        if (chunkValues != null) {
+            values.putAll(chunkValues);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> void sort(List<K> ids) {
+        for (K id : ids) {
+            if (!(id instanceof Comparable)) {
+                return;
+            }
+        }
+        try {
+            Collections.sort((List<Comparable<Object>>) ids);
+        } catch (ClassCastException e) {
+            // id类型不一致，保持原顺序
+        }
+    }
+}
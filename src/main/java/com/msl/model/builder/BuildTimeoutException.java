@@ -0,0 +1,18 @@
+package com.msl.model.builder;
+
+/**
+ * 构造器调用超时
+ * <p>
+ * 构造器抛出此异常时，构建不会失败：对应的命名空间被标记为超时，本次不返回数据
+ *
+ * @author wanglq
+ * Date 2022/11/21
+ * Time 10:15
+ */
+public class BuildTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public BuildTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -6,6 +6,7 @@ import com.msl.model.builder.context.BuildContext;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -66,6 +67,38 @@ public interface BuilderRegistry<T extends BuilderRegistry<?>> {
                                              BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object toValueNamespace);
 
 
+    /**
+     * 按调用选项注册构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     构造器
+     * @param toValueNamespace value命名空间
+     * @param options          调用选项，如单次最多id数、排序、补齐档位
+     * @param <K>              id类型
+     * @return 返回注册中心
+     */
+    default <K> T buildValue(Object idNamespace,
+                             Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object toValueNamespace,
+                             BuildOptions options) {
+        return buildValue(idNamespace, options.wrap(valueBuilder), toValueNamespace);
+    }
+
+    /**
+     * 按调用选项注册构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     构造器
+     * @param toValueNamespace value命名空间
+     * @param options          调用选项，如单次最多id数、排序、补齐档位
+     * @param <K>              id类型
+     * @return 返回注册中心
+     */
+    default <K, B extends BuildContext> T buildValue(Object idNamespace,
+                                                     BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object toValueNamespace,
+                                                     BuildOptions options) {
+        return buildValue(idNamespace, options.wrap(valueBuilder), toValueNamespace);
+    }
+
     /**
      * 根据id命名空间获取所的构造器
      *
@@ -73,4 +106,62 @@ public interface BuilderRegistry<T extends BuilderRegistry<?>> {
      * @return value空间和对应的构造器
      */
     Set<KeyPair<BiFunction<BuildContext, Collection<Object>, Map<Object, Object>>>> getBuilders(Object idNamespace);
+
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, Function, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @param <K>          id类型
+     * @return 返回注册中心
+     */
+    <K> T buildValueAsync(Object idNamespace,
+                          Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder);
+
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, BiFunction, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @param <K>          id类型
+     * @return 返回注册中心
+     */
+    <K, B extends BuildContext> T buildValueAsync(Object idNamespace,
+                                                  BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder);
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @param <K>              id类型
+     * @return 返回注册中心
+     */
+    <K> T buildValueAsync(Object idNamespace,
+                          Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace);
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @param <K>              id类型
+     * @return 返回注册中心
+     */
+    <K, B extends BuildContext> T buildValueAsync(Object idNamespace,
+                                                  BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace);
+
+    /**
+     * 根据id命名空间获取所有的异步构造器
+     *
+     * @param idNamespace id命名空间
+     * @return value空间和对应的异步构造器
+     */
+    Set<KeyPair<BiFunction<BuildContext, Collection<Object>, CompletionStage<Map<Object, Object>>>>> getAsyncBuilders(Object idNamespace);
 }
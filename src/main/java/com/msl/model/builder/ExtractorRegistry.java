@@ -3,9 +3,11 @@ package com.msl.model.builder;
 import com.msl.base.KeyPair;
 import com.msl.model.builder.context.BuildContext;
 import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.ExtractionSink;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 /**
@@ -48,7 +50,19 @@ public interface ExtractorRegistry<T extends ExtractorRegistry<?>> {
     <E, V> T extractValue(Class<E> type, Function<E, Object> valueExtractor, Function<V, Object> idExtractor, Object toValueNamespace);
 
     /**
-     * 判断指定类型是否存在value提取器
+     * 注册直接写入接收方的提取器，提取时不创建中间集合
+     * <p>
+     * 此类提取器不会出现在{@link #getIdExtractors(Class)}、{@link #getValueExtractors(Class)}中
+     *
+     * @param type      Model类型
+     * @param extractor 提取器，将id、value逐个写入接收方
+     * @param <E>       Model类型
+     * @return 提取器注册中心
+     */
+    <E> T extract(Class<E> type, BiConsumer<? super E, ExtractionSink> extractor);
+
+    /**
+     * 判断指定类型是否存在value提取器，不含以{@link #extract(Class, BiConsumer)}注册的提取器
      *
      * @param type 指定的类型
      * @return 该类型是否存在value提取器
@@ -56,7 +70,7 @@ public interface ExtractorRegistry<T extends ExtractorRegistry<?>> {
     boolean existsValueExtractor(Class<?> type);
 
     /**
-     * 获取指定类型下的id提取器
+     * 获取指定类型下的id提取器，不含以{@link #extract(Class, BiConsumer)}注册的提取器
      *
      * @param type 指定的类型
      * @return id提取器集合
@@ -64,7 +78,7 @@ public interface ExtractorRegistry<T extends ExtractorRegistry<?>> {
     Set<Function<Object, KeyPair<Set<Object>>>> getIdExtractors(Class<?> type);
 
     /**
-     * 获取指定类型下的value提取器
+     * 获取指定类型下的value提取器，不含以{@link #extract(Class, BiConsumer)}注册的提取器
      *
      * @param type 指定的类型
      * @return value类型
@@ -79,4 +93,12 @@ public interface ExtractorRegistry<T extends ExtractorRegistry<?>> {
      * @param buildingTemp 构造临时数据
      */
     void doExtract(Object obj, BuildContext buildContext, BuildingTemp buildingTemp);
+
+    /**
+     * 编译提取器：按具体类型生成不可变的提取计划，之后提取只需一次类型查找，
+     * 编译后不能再注册提取器
+     *
+     * @return 注册中心自身
+     */
+    T compile();
 }
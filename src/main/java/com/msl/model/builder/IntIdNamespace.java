@@ -0,0 +1,32 @@
+package com.msl.model.builder;
+
+/**
+ * id为int的命名空间
+ * <pre>
+ * public static final IntIdNamespace USERS = IntIdNamespace.of(User.class);
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 16:10
+ */
+public final class IntIdNamespace extends PrimitiveIdNamespace {
+    private IntIdNamespace(Object name) {
+        super(name);
+    }
+
+    /**
+     * 声明命名空间，名称相同的声明相等
+     *
+     * @param name 名称
+     * @return 命名空间
+     */
+    public static IntIdNamespace of(Object name) {
+        return new IntIdNamespace(name);
+    }
+
+    @Override
+    public boolean isIntIds() {
+        return true;
+    }
+}
@@ -2,9 +2,11 @@ package com.msl.model.builder;
 
 import com.msl.model.builder.context.LazyBuildContext;
 import com.msl.model.builder.impl.DefaultBuilderRegistry;
+import com.msl.model.utils.FutureUtil;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -39,6 +41,38 @@ public interface LazyBuilderRegistry<T extends LazyBuilderRegistry<?>> extends B
                                                 BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace);
 
 
+    /**
+     * 按调用选项注册延迟构造器
+     *
+     * @param idNamespace    id命名空间
+     * @param valueBuilder   延迟构造器
+     * @param valueNamespace value命名空间
+     * @param options        调用选项，如单次最多id数、排序、补齐档位
+     * @param <K>            id类型
+     * @return 返回注册中心
+     */
+    default <K> T lazyBuild(Object idNamespace,
+                            Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace,
+                            BuildOptions options) {
+        return lazyBuild(idNamespace, options.wrap(valueBuilder), valueNamespace);
+    }
+
+    /**
+     * 按调用选项注册延迟构造器
+     *
+     * @param idNamespace    id命名空间
+     * @param valueBuilder   延迟构造器
+     * @param valueNamespace value命名空间
+     * @param options        调用选项，如单次最多id数、排序、补齐档位
+     * @param <K>            id类型
+     * @return 返回注册中心
+     */
+    default <K, B extends LazyBuildContext> T lazyBuild(Object idNamespace,
+                                                        BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace,
+                                                        BuildOptions options) {
+        return lazyBuild(idNamespace, options.wrap(valueBuilder), valueNamespace);
+    }
+
     /**
      * 延迟构造器
      *
@@ -47,4 +81,38 @@ public interface LazyBuilderRegistry<T extends LazyBuilderRegistry<?>> extends B
      * @return 返回注册中心
      */
     <K, B extends LazyBuildContext> T lazyBuild(Object valueNamespace, Function<B, ? extends Map<K, ?>> valueBuilder);
+
+    /**
+     * 注册异步延迟构造器
+     * <p>
+     * 延迟构造由{@link LazyBuildContext#getData(Object)}同步触发，因此会在触发线程上等待异步结果
+     *
+     * @param idNamespace    id命名空间
+     * @param valueBuilder   异步延迟构造器
+     * @param valueNamespace value命名空间
+     * @param <K>            id类型
+     * @return 返回注册中心
+     */
+    default <K> T lazyBuildAsync(Object idNamespace,
+                                 Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object valueNamespace) {
+        Function<Collection<K>, Map<K, ?>> lazyBuilder = ids -> FutureUtil.join(valueBuilder.apply(ids));
+        return lazyBuild(idNamespace, lazyBuilder, valueNamespace);
+    }
+
+    /**
+     * 注册异步延迟构造器
+     * <p>
+     * 延迟构造由{@link LazyBuildContext#getData(Object)}同步触发，因此会在触发线程上等待异步结果
+     *
+     * @param idNamespace    id命名空间
+     * @param valueBuilder   异步延迟构造器
+     * @param valueNamespace value命名空间
+     * @param <K>            id类型
+     * @return 返回注册中心
+     */
+    default <K, B extends LazyBuildContext> T lazyBuildAsync(Object idNamespace,
+                                                             BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object valueNamespace) {
+        BiFunction<B, Collection<K>, Map<K, ?>> lazyBuilder = (context, ids) -> FutureUtil.join(valueBuilder.apply(context, ids));
+        return lazyBuild(idNamespace, lazyBuilder, valueNamespace);
+    }
 }
@@ -0,0 +1,32 @@
+package com.msl.model.builder;
+
+/**
+ * id为long的命名空间
+ * <pre>
+ * public static final LongIdNamespace USERS = LongIdNamespace.of(User.class);
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 16:10
+ */
+public final class LongIdNamespace extends PrimitiveIdNamespace {
+    private LongIdNamespace(Object name) {
+        super(name);
+    }
+
+    /**
+     * 声明命名空间，名称相同的声明相等
+     *
+     * @param name 名称
+     * @return 命名空间
+     */
+    public static LongIdNamespace of(Object name) {
+        return new LongIdNamespace(name);
+    }
+
+    @Override
+    public boolean isIntIds() {
+        return false;
+    }
+}
@@ -2,7 +2,18 @@ package com.msl.model.builder;
 
 import com.msl.model.builder.context.BuildContext;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * @author wanglq
@@ -18,6 +29,26 @@ public interface ModelBuilder extends LazyBuilderRegistry<ModelBuilder>, Extract
      */
     void buildMulti(Iterable<?> sources, BuildContext buildContext);
 
+    /**
+     * 异步构造列表数据
+     * <p>
+     * 默认在当前线程同步构造，返回已完成的结果
+     *
+     * @param sources      原始数据
+     * @param buildContext 构造上下文
+     * @return 构造完成时结束的异步结果
+     */
+    default CompletionStage<Void> buildMultiAsync(Iterable<?> sources, BuildContext buildContext) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            buildMulti(sources, buildContext);
+            future.complete(null);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * 构造单个数据
      *
@@ -28,6 +59,42 @@ public interface ModelBuilder extends LazyBuilderRegistry<ModelBuilder>, Extract
         buildMulti(Collections.singleton(one), buildContext);
     }
 
+    /**
+     * 分块流式构造，以指定方式创建每块的上下文
+     * <p>
+     * 每次从原始数据中取出至多chunkSize个，以新的上下文构造后交给sink处理（如映射view、序列化），
+     * 处理完即丢弃该块的上下文，内存占用取决于块大小而不是数据总量；指定的命名空间在各块间共享，只构造一次。
+     * contextFactory的参数为该块的缓存数据，其中已放入共享命名空间的数据集合，
+     * 创建的上下文需以它作为缓存数据（如{@code SimpleBuildContext(ConcurrentMap)}）共享才会生效
+     *
+     * @param sources          原始数据
+     * @param chunkSize        每块数据量
+     * @param sharedNamespaces 各块间共享的命名空间
+     * @param contextFactory   每块上下文的创建方式
+     * @param sink             每块数据及其上下文的处理
+     * @param <B>              上下文类型
+     */
+    default <B extends BuildContext> void buildStream(Iterator<?> sources, int chunkSize, Collection<?> sharedNamespaces,
+                                                      Function<ConcurrentMap<Object, Map<Object, Object>>, B> contextFactory,
+                                                      BiConsumer<List<?>, ? super B> sink) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        Map<Object, Map<Object, Object>> sharedData = new ConcurrentHashMap<>();
+        for (Object namespace : sharedNamespaces) {
+            sharedData.put(namespace, new ConcurrentHashMap<>());
+        }
+        while (sources.hasNext()) {
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && sources.hasNext()) {
+                chunk.add(sources.next());
+            }
+            B buildContext = contextFactory.apply(new ConcurrentHashMap<>(sharedData));
+            buildMulti(chunk, buildContext);
+            sink.accept(chunk, buildContext);
+        }
+    }
+
     /**
      * 设置冲突时执行的监听器
      *
@@ -0,0 +1,90 @@
+package com.msl.model.builder;
+
+import com.msl.model.utils.PrimitiveIdMap;
+import com.msl.model.utils.PrimitiveIdSet;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * id为整数的命名空间
+ * <p>
+ * 上下文和构造临时数据中以{@link PrimitiveIdSet}、{@link PrimitiveIdMap}存储该命名空间的id和数据，不装箱；
+ * 交给构造器的id集合为{@link PrimitiveIdSet}，可通过{@link #toLongArray(Collection)}免装箱取出
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 16:10
+ */
+public abstract class PrimitiveIdNamespace {
+    private final Object name;
+
+    PrimitiveIdNamespace(Object name) {
+        this.name = Objects.requireNonNull(name, "name");
+    }
+
+    public Object getName() {
+        return name;
+    }
+
+    /**
+     * id是否为int
+     *
+     * @return id为int时为true，为long时为false
+     */
+    public abstract boolean isIntIds();
+
+    public PrimitiveIdSet newIdSet() {
+        return new PrimitiveIdSet(isIntIds());
+    }
+
+    public PrimitiveIdSet.Indexed newIdIndex() {
+        return PrimitiveIdSet.indexed(isIntIds());
+    }
+
+    public PrimitiveIdSet.Concurrent newConcurrentIdSet() {
+        return PrimitiveIdSet.concurrent(isIntIds());
+    }
+
+    public <V> PrimitiveIdMap<V> newDataMap() {
+        return new PrimitiveIdMap<>(isIntIds());
+    }
+
+    public <V> PrimitiveIdMap<V> newConcurrentDataMap() {
+        return PrimitiveIdMap.concurrent(isIntIds());
+    }
+
+    /**
+     * 取出id集合中的全部id，为{@link PrimitiveIdSet}时不装箱
+     *
+     * @param ids id集合
+     * @return id数组
+     */
+    public static long[] toLongArray(Collection<?> ids) {
+        if (ids instanceof PrimitiveIdSet) {
+            return ((PrimitiveIdSet) ids).toLongArray();
+        }
+        return ids.stream().mapToLong(id -> ((Number) id).longValue()).toArray();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return name.equals(((PrimitiveIdNamespace) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * getClass().hashCode() + name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + name + ")";
+    }
+}
@@ -1,5 +1,9 @@
 package com.msl.model.builder.context;
 
+import com.msl.base.Namespace;
+
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -59,6 +63,31 @@ public interface BuildContext {
         return getData((Object) namespace, key);
     }
 
+    /**
+     * 根据命名空间句柄获取空间集合数据，以句柄的序号定位
+     *
+     * @param namespace 命名空间句柄
+     * @param <K>       空间集合数据key类型
+     * @param <V>       空间集合数据value类型
+     * @return 指定的空间集合数据
+     */
+    default <K, V> Map<K, V> getData(Namespace<K, V> namespace) {
+        return getData((Object) namespace);
+    }
+
+    /**
+     * 根据命名空间句柄获取空间内指定id的数据，以句柄的序号定位
+     *
+     * @param namespace 命名空间句柄
+     * @param key       数据id
+     * @param <K>       空间集合数据key类型
+     * @param <V>       空间集合数据value类型
+     * @return 指定数据
+     */
+    default <K, V> V getData(Namespace<K, V> namespace, K key) {
+        return getData((Object) namespace, key);
+    }
+
     /**
      * 根据命名空间获取已缓存的空间集合数据
      * 各空间数据以Map形式返回
@@ -130,6 +159,66 @@ public interface BuildContext {
         return getIds((Object) type);
     }
 
+    /**
+     * 根据命名空间获取已请求过但构造器未返回数据的id（墓碑），这些id不会再次交给构造器
+     * 上下文不记录时返回空集合
+     *
+     * @param namespace 命名空间
+     * @param <K>       空间集合数据key类型
+     * @return 指定空间内不存在的id
+     */
+    default <K> Set<K> getAbsentIds(Object namespace) {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 记录命名空间内不存在的id
+     * 上下文不记录时忽略
+     *
+     * @param namespace 命名空间
+     * @param ids       不存在的id
+     */
+    default void markAbsent(Object namespace, Collection<?> ids) {
+    }
+
+    /**
+     * 距离构建截止时间的剩余纳秒数，未设置截止时间时为{@link Long#MAX_VALUE}
+     * 到期后不再开始新的构造轮次，未完成的构造器调用被取消，已构造的数据保留
+     *
+     * @return 剩余纳秒数，已到期时小于等于0
+     */
+    default long remainingNanos() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * 标记命名空间因超时未能构造（完整）
+     * 上下文不记录时忽略
+     *
+     * @param namespace 命名空间
+     */
+    default void markTimedOut(Object namespace) {
+    }
+
+    /**
+     * 命名空间是否因超时未能构造（完整），可据此渲染降级内容
+     *
+     * @param namespace 命名空间
+     * @return 是否超时
+     */
+    default boolean isTimedOut(Object namespace) {
+        return false;
+    }
+
+    /**
+     * 上下文是否只能在单个线程中访问，为true时并行映射等操作在调用线程中依次执行
+     *
+     * @return 是否只能在单个线程中访问
+     */
+    default boolean isThreadConfined() {
+        return false;
+    }
+
     /**
      * 合并其他上下文的数据到当前上下文
      *
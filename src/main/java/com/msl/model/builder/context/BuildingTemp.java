@@ -1,7 +1,10 @@
 package com.msl.model.builder.context;
 
 import com.google.common.collect.Maps;
+import com.msl.base.Namespace;
+import com.msl.model.builder.PrimitiveIdNamespace;
 import com.msl.model.utils.MergeUtil;
+import com.msl.model.utils.StoreUtil;
 
 import java.util.Map;
 import java.util.Set;
@@ -18,6 +21,10 @@ import static java.util.stream.Collectors.toSet;
 public class BuildingTemp {
     private Map<Object, Set<Object>> idsMap;
     private Map<Object, Map<Object, Object>> valuesMap;
+    /**
+     * 最近一次使用的接收方，同一上下文下复用
+     */
+    private Sink sink;
 
     public BuildingTemp() {
         this.idsMap = Maps.newHashMap();
@@ -25,11 +32,32 @@ public class BuildingTemp {
     }
 
     public void mergeIds(Object idNamespace, Set<Object> ids) {
-        idsMap.merge(idNamespace, ids, MergeUtil::merge);
+        if (idNamespace instanceof PrimitiveIdNamespace) {
+            idsMap.computeIfAbsent(idNamespace, StoreUtil::newIdSet).addAll(ids);
+        } else {
+            idsMap.merge(idNamespace, ids, MergeUtil::merge);
+        }
     }
 
     public void mergeValues(Object valueNamespace, Map<Object, Object> values) {
-        valuesMap.merge(valueNamespace, values, MergeUtil::merge);
+        if (valueNamespace instanceof PrimitiveIdNamespace) {
+            valuesMap.computeIfAbsent(valueNamespace, StoreUtil::newValueMap).putAll(values);
+        } else {
+            valuesMap.merge(valueNamespace, values, MergeUtil::merge);
+        }
+    }
+
+    /**
+     * 获取直接写入本临时数据的接收方，上下文中已缓存的value不会被写入
+     *
+     * @param buildContext 构造上下文
+     * @return 接收方
+     */
+    public ExtractionSink sink(BuildContext buildContext) {
+        if (sink == null || sink.buildContext != buildContext) {
+            sink = new Sink(buildContext);
+        }
+        return sink;
     }
 
     public void mergeIdToContext(final BuildContext buildContext) {
@@ -51,4 +79,26 @@ public class BuildingTemp {
     public Set<?> toBuildingValues() {
         return valuesMap.values().stream().flatMap(v -> v.values().stream()).collect(toSet());
     }
+
+    private final class Sink implements ExtractionSink {
+        private final BuildContext buildContext;
+
+        private Sink(BuildContext buildContext) {
+            this.buildContext = buildContext;
+        }
+
+        @Override
+        public void id(Object idNamespace, Object id) {
+            idsMap.computeIfAbsent(Namespace.identify(idNamespace), StoreUtil::newIdSet).add(id);
+        }
+
+        @Override
+        public void value(Object valueNamespace, Object id, Object value) {
+            id(valueNamespace, id);
+            Map<Object, Object> values = valuesMap.computeIfAbsent(Namespace.identify(valueNamespace), StoreUtil::newValueMap);
+            if (!buildContext.getCachedData(valueNamespace).containsKey(id)) {
+                values.put(id, value);
+            }
+        }
+    }
 }
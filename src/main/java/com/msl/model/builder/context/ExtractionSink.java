@@ -0,0 +1,29 @@
+package com.msl.model.builder.context;
+
+/**
+ * 提取结果的接收方
+ * <p>
+ * 提取器将提取出的id和value逐个写入，不需要先组装成集合
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 10:15
+ */
+public interface ExtractionSink {
+    /**
+     * 写入一个id
+     *
+     * @param idNamespace id命名空间
+     * @param id          id
+     */
+    void id(Object idNamespace, Object id);
+
+    /**
+     * 写入一个value，其id同时写入同名的id命名空间
+     *
+     * @param valueNamespace value命名空间
+     * @param id             value的id
+     * @param value          value
+     */
+    void value(Object valueNamespace, Object id, Object value);
+}
@@ -1,6 +1,7 @@
 package com.msl.model.builder.context;
 
 import com.msl.model.builder.LazyBuilderHolder;
+import com.msl.model.utils.StoreUtil;
 
 /**
  * @author wanglq
@@ -14,4 +15,18 @@ public interface LazyBuildContext extends BuildContext {
      * @param lazyBuilderHolder 延迟构造器执有者
      */
     void setupLazyBuilderHolder(LazyBuilderHolder lazyBuilderHolder);
+
+    /**
+     * 获取延迟构造待获取的id：id空间内既未缓存也未记为不存在的id
+     * <p>
+     * 默认每次过滤id空间内的全部id；按水位线记录获取进度的上下文只处理上次获取完成后新写入的id
+     *
+     * @param idNamespace    id命名空间
+     * @param valueNamespace value命名空间
+     * @param <K>            id类型
+     * @return 待获取的id
+     */
+    default <K> PendingIds<K> pendingIds(Object idNamespace, Object valueNamespace) {
+        return new PendingIds<>(StoreUtil.filterIdSet(valueNamespace, this.<K>getIds(idNamespace), this), null, 0);
+    }
 }
@@ -0,0 +1,60 @@
+package com.msl.model.builder.context;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次延迟构造待获取的id
+ * <p>
+ * 由{@link LazyBuildContext#pendingIds(Object, Object)}取得，只包含上次获取完成后id空间新写入、
+ * 且既未缓存也未记为不存在的id；获取完成后调用{@link #fetched()}推进游标，
+ * 未调用（如构造器抛出异常）时这些id在下次仍会返回
+ *
+ * @param <K> id类型
+ * @author wanglq
+ * Date 2022/11/24
+ * Time 14:10
+ */
+public final class PendingIds<K> {
+    private static final PendingIds<?> EMPTY = new PendingIds<>(Collections.emptySet(), null, 0);
+
+    private final Set<K> ids;
+    private final AtomicInteger cursor;
+    private final int watermark;
+
+    /**
+     * @param ids       待获取的id
+     * @param cursor    id空间的获取游标，为空时不记录
+     * @param watermark 获取完成后游标推进到的水位线
+     */
+    public PendingIds(Set<K> ids, AtomicInteger cursor, int watermark) {
+        this.ids = ids;
+        this.cursor = cursor;
+        this.watermark = watermark;
+    }
+
+    /**
+     * 没有待获取的id
+     *
+     * @param <K> id类型
+     * @return 空的待获取id
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> PendingIds<K> empty() {
+        return (PendingIds<K>) EMPTY;
+    }
+
+    public Set<K> ids() {
+        return ids;
+    }
+
+    /**
+     * 标记获取完成，游标只前进不后退
+     */
+    public void fetched() {
+        if (cursor != null) {
+            cursor.accumulateAndGet(watermark, Math::max);
+        }
+    }
+}
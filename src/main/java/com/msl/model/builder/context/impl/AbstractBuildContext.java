@@ -0,0 +1,384 @@
+package com.msl.model.builder.context.impl;
+
+import com.msl.base.Namespace;
+import com.msl.model.builder.LazyBuilderHolder;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.LazyBuildContext;
+import com.msl.model.builder.context.PendingIds;
+import com.msl.model.utils.IdIndex;
+import com.msl.model.utils.StoreUtil;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 构造上下文的公共实现：延迟构造、不存在的id、截止时间和合并，
+ * 数据的存储方式（是否线程安全）由子类决定
+ *
+ * @author wanglq
+ * Date 2022/11/23
+ * Time 16:30
+ */
+@SuppressWarnings("all")
+public abstract class AbstractBuildContext implements LazyBuildContext {
+    /**
+     * 缓存数据
+     * 按命名空间序号存储，value为空间集合（map）数据
+     */
+    protected final NamespaceSlots<Map<Object, Object>> cachedData;
+    /**
+     * 缓存id数据
+     * 按命名空间序号存储，value为空间内所有id数据的索引
+     */
+    protected final NamespaceSlots<IdIndex<Object>> ids;
+    /**
+     * 不存在的id（墓碑）
+     * 按命名空间序号存储，value为已请求过但构造器未返回数据的id
+     */
+    protected final NamespaceSlots<Set<Object>> absentIds;
+    /**
+     * 延迟构造的获取游标
+     * 按value命名空间序号存储，value为各id命名空间已获取完成的水位线
+     */
+    protected final NamespaceSlots<Map<Object, AtomicInteger>> fetchCursors;
+    /**
+     * 超时的命名空间（标识）
+     */
+    protected final Set<Object> timedOutNamespaces;
+    /**
+     * 构建截止时间（System.nanoTime），为空时不限制
+     */
+    private volatile Long deadlineNanos;
+    /**
+     * 延迟构造器中心
+     */
+    private LazyBuilderHolder lazyBuilderHolder;
+
+    private final Function<Object, Map<Object, Object>> dataMapFactory = this::newDataMap;
+    private final Function<Object, IdIndex<Object>> idIndexFactory = this::newIdIndex;
+    private final Function<Object, Set<Object>> absentIdSetFactory = this::newAbsentIdSet;
+    private final Function<Object, Map<Object, AtomicInteger>> fetchCursorsFactory = ns -> new ConcurrentHashMap<>(2);
+
+    protected AbstractBuildContext(NamespaceSlots<Map<Object, Object>> cachedData, NamespaceSlots<IdIndex<Object>> ids,
+                                   NamespaceSlots<Set<Object>> absentIds, NamespaceSlots<Map<Object, AtomicInteger>> fetchCursors,
+                                   Set<Object> timedOutNamespaces) {
+        this.cachedData = cachedData;
+        this.ids = ids;
+        this.absentIds = absentIds;
+        this.fetchCursors = fetchCursors;
+        this.timedOutNamespaces = timedOutNamespaces;
+    }
+
+    /**
+     * 访问存储前的检查，默认不检查
+     */
+    protected void checkAccess() {
+    }
+
+    /**
+     * 获取命名空间对应的存储，不存在时创建
+     * 命名空间为{@link Namespace}句柄时直接以其序号定位，否则先经一次驻留查找得到序号
+     *
+     * @param slots     存储
+     * @param namespace 命名空间标识或句柄
+     * @param factory   创建方式，参数为命名空间标识
+     * @return 命名空间对应的存储
+     */
+    private <V> V slot(NamespaceSlots<V> slots, Object namespace, Function<Object, V> factory) {
+        checkAccess();
+        int ordinal = Namespace.ordinal(namespace);
+        V value = slots.get(ordinal);
+        return value != null ? value : slots.computeIfAbsent(ordinal, Namespace.identify(namespace), factory);
+    }
+
+    /**
+     * 获取命名空间已有的存储，用于只读的查找：不创建存储，也不驻留未知的命名空间
+     *
+     * @param slots     存储
+     * @param namespace 命名空间标识或句柄
+     * @return 命名空间对应的存储，不存在时为null
+     */
+    private <V> V existingSlot(NamespaceSlots<V> slots, Object namespace) {
+        checkAccess();
+        Namespace<?, ?> handle = Namespace.lookup(namespace);
+        return handle == null ? null : slots.get(handle.ordinal());
+    }
+
+    /**
+     * 创建命名空间的数据集合
+     *
+     * @param namespace 命名空间
+     * @return 数据集合
+     */
+    protected abstract Map<Object, Object> newDataMap(Object namespace);
+
+    /**
+     * 创建命名空间的id索引
+     *
+     * @param namespace 命名空间
+     * @return id索引
+     */
+    protected abstract IdIndex<Object> newIdIndex(Object namespace);
+
+    /**
+     * 创建命名空间的不存在id集合
+     *
+     * @param namespace 命名空间
+     * @return id集合
+     */
+    protected abstract Set<Object> newAbsentIdSet(Object namespace);
+
+    /**
+     * 根据命名空间获取空间集合数据
+     * 各空间数据以Map形式返回
+     *
+     * @param namespace 命名空间
+     * @return 指定的空间集合数据
+     */
+    @Override
+    public <K, V> Map<K, V> getData(Object namespace) {
+        doLazyBuild(namespace);
+        return getCachedData(namespace);
+    }
+
+    /**
+     * 根据命名空间获取空间内指定id的数据
+     * 各空间数据以Map形式返回
+     *
+     * @param namespace 命名空间
+     * @param key       数据id
+     * @return 指定数据
+     */
+    @Override
+    public <K, V> V getData(Object namespace, K key) {
+        V value = (V) getCachedData(namespace, key);
+        if (value != null) {
+            return value;
+        }
+        doLazyBuild(namespace);
+        return getCachedData(namespace, key);
+    }
+
+    /**
+     * 执行延迟构造
+     *
+     * @param namespace 命名空间
+     */
+    private void doLazyBuild(Object namespace) {
+        Optional.ofNullable(lazyBuilderHolder.getLazyBuilder(Namespace.identify(namespace)))
+                //该命名空间存在延迟构造器时，以延迟构造器完成一次数据构造
+                .ifPresent(builder -> runLazyBuilder(namespace, builder));
+    }
+
+    /**
+     * 执行命名空间的延迟构造器，默认在当前线程直接执行
+     *
+     * @param namespace 命名空间
+     * @param builder   延迟构造器
+     */
+    protected void runLazyBuilder(Object namespace, Function<LazyBuildContext, Map<Object, Object>> builder) {
+        builder.apply(this);
+    }
+
+    /**
+     * 根据命名空间获取已缓存的空间集合数据
+     * 各空间数据以Map形式返回
+     *
+     * @param namespace 命名空间
+     * @return 指定的空间的已缓存的集合数据
+     */
+    @Override
+    public <K, V> Map<K, V> getCachedData(Object namespace) {
+        return (Map<K, V>) slot(cachedData, namespace, dataMapFactory);
+    }
+
+    /**
+     * 根据命名空间获取空间内指定id的数据，命名空间没有数据时不创建存储
+     *
+     * @param namespace 命名空间
+     * @param key       数据id
+     * @return 指定数据
+     */
+    @Override
+    public <K, V> V getCachedData(Object namespace, K key) {
+        Map<Object, Object> values = existingSlot(cachedData, namespace);
+        return values == null ? null : (V) values.get(key);
+    }
+
+    /**
+     * 根据命名空间获取空间内的所有id
+     *
+     * @param namespace 命名空间
+     * @return 指定空间内的所有id
+     */
+    @Override
+    public <K> Set<K> getIds(Object namespace) {
+        return getIdIndex(namespace);
+    }
+
+    /**
+     * 根据命名空间获取空间内所有id的索引，可按水位线查询新写入的id
+     *
+     * @param namespace 命名空间
+     * @return 指定空间内所有id的索引
+     */
+    public <K> IdIndex<K> getIdIndex(Object namespace) {
+        return (IdIndex<K>) slot(ids, namespace, idIndexFactory);
+    }
+
+    /**
+     * 获取延迟构造待获取的id：只过滤id空间内上次获取完成后新写入的id，耗时与新写入的id数成正比；
+     * 没有新写入的id时只比较一次水位线
+     *
+     * @param idNamespace    id命名空间
+     * @param valueNamespace value命名空间
+     * @return 待获取的id
+     */
+    @Override
+    public <K> PendingIds<K> pendingIds(Object idNamespace, Object valueNamespace) {
+        Map<Object, AtomicInteger> cursors = slot(fetchCursors, valueNamespace, fetchCursorsFactory);
+        AtomicInteger cursor = StoreUtil.computeIfAbsent(cursors, Namespace.identify(idNamespace), ns -> new AtomicInteger());
+        IdIndex<K> index = getIdIndex(idNamespace);
+        int watermark = index.watermark();
+        int from = cursor.get();
+        if (from >= watermark) {
+            return PendingIds.empty();
+        }
+        Collection<K> ids = index.idsSince(from);
+        return new PendingIds<>(StoreUtil.filterIdSet(valueNamespace, ids, this), cursor, watermark);
+    }
+
+    /**
+     * 根据命名空间获取已请求过但构造器未返回数据的id
+     *
+     * @param namespace 命名空间
+     * @return 指定空间内不存在的id
+     */
+    @Override
+    public <K> Set<K> getAbsentIds(Object namespace) {
+        return (Set<K>) slot(absentIds, namespace, absentIdSetFactory);
+    }
+
+    /**
+     * 记录命名空间内不存在的id
+     *
+     * @param namespace 命名空间
+     * @param ids       不存在的id
+     */
+    @Override
+    public void markAbsent(Object namespace, Collection<?> ids) {
+        if (!ids.isEmpty()) {
+            getAbsentIds(namespace).addAll(ids);
+        }
+    }
+
+    /**
+     * 设置构建截止时间：从现在起经过指定时间后到期
+     *
+     * @param timeout 时长
+     * @param unit    时间单位
+     * @return 上下文自身
+     */
+    public AbstractBuildContext deadline(long timeout, TimeUnit unit) {
+        this.deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * 距离构建截止时间的剩余纳秒数
+     *
+     * @return 剩余纳秒数，未设置截止时间时为{@link Long#MAX_VALUE}
+     */
+    @Override
+    public long remainingNanos() {
+        Long deadline = deadlineNanos;
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    /**
+     * 标记命名空间因超时未能构造（完整）
+     *
+     * @param namespace 命名空间
+     */
+    @Override
+    public void markTimedOut(Object namespace) {
+        timedOutNamespaces.add(Namespace.identify(namespace));
+    }
+
+    /**
+     * 命名空间是否因超时未能构造（完整）
+     *
+     * @param namespace 命名空间
+     * @return 是否超时
+     */
+    @Override
+    public boolean isTimedOut(Object namespace) {
+        return timedOutNamespaces.contains(Namespace.identify(namespace));
+    }
+
+    /**
+     * 合并其他上下文的数据到当前上下文，数据复制到当前上下文的存储中
+     *
+     * @param otherContext 其他上下文
+     */
+    @Override
+    public void merge(BuildContext otherContext) {
+        if (otherContext instanceof AbstractBuildContext) {
+            AbstractBuildContext other = (AbstractBuildContext) otherContext;
+            other.cachedData.forEach((namespace, values) -> getCachedData(namespace).putAll(values));
+            other.ids.forEach((ns, ids) -> getIds(ns).addAll(ids));
+            other.absentIds.forEach((ns, ids) -> getAbsentIds(ns).addAll(ids));
+            timedOutNamespaces.addAll(other.timedOutNamespaces);
+            if (this.lazyBuilderHolder == null) {
+                this.lazyBuilderHolder = other.lazyBuilderHolder;
+            } else if (other.lazyBuilderHolder != null) {
+                this.lazyBuilderHolder = mergeHolder(this.lazyBuilderHolder, other.lazyBuilderHolder);
+            }
+        } else {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 合并lazyHolder
+     *
+     * @param holder1
+     * @param holder2
+     * @return
+     */
+    private LazyBuilderHolder mergeHolder(LazyBuilderHolder holder1, LazyBuilderHolder holder2) {
+        final Map<Object, Function<LazyBuildContext, Map<Object, Object>>> builders = new HashMap<>(this.lazyBuilderHolder.getLazyBuilders());
+        holder2.getLazyBuilders().forEach(builders::putIfAbsent);
+        return new LazyBuilderHolder() {
+            private final Map<Object, Function<LazyBuildContext, Map<Object, Object>>> lazyBuilders = builders;
+
+            @Override
+            public Map<Object, Function<LazyBuildContext, Map<Object, Object>>> getLazyBuilders() {
+                return builders;
+            }
+
+            @Override
+            public Function<LazyBuildContext, Map<Object, Object>> getLazyBuilder(Object valueNamespace) {
+                return builders.get(valueNamespace);
+            }
+        };
+    }
+
+    /**
+     * 设置延迟构造器
+     *
+     * @param lazyBuilderHolder 延迟构造器执有者
+     */
+    @Override
+    public void setupLazyBuilderHolder(LazyBuilderHolder lazyBuilderHolder) {
+        this.lazyBuilderHolder = lazyBuilderHolder;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.msl.model.builder.context.impl;
+
+import com.msl.base.Namespace;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 按命名空间序号（{@link Namespace#ordinal()}）以数组存储的各命名空间数据，槽位一经写入不再替换；
+ * 数组在首次写入时按访问的序号分配，之后按需扩容，与全局驻留的命名空间数量无关
+ *
+ * @param <V> 槽位数据类型
+ * @author wanglq
+ * Date 2022/11/24
+ * Time 10:20
+ */
+@SuppressWarnings("unchecked")
+public abstract class NamespaceSlots<V> {
+    private static final int MIN_CAPACITY = 8;
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * 线程安全的存储：读取无锁，创建槽位和扩容时加锁
+     *
+     * @param <V> 槽位数据类型
+     * @return 存储
+     */
+    public static <V> NamespaceSlots<V> concurrent() {
+        return new Concurrent<>();
+    }
+
+    /**
+     * 非线程安全的存储
+     *
+     * @param <V> 槽位数据类型
+     * @return 存储
+     */
+    public static <V> NamespaceSlots<V> unsynchronized() {
+        return new Unsynchronized<>();
+    }
+
+    /**
+     * 获取序号对应的数据
+     *
+     * @param ordinal 命名空间序号
+     * @return 数据，不存在时为null
+     */
+    public abstract V get(int ordinal);
+
+    /**
+     * 获取序号对应的数据，不存在时创建
+     *
+     * @param ordinal   命名空间序号
+     * @param namespace 命名空间标识，传给创建方式
+     * @param factory   创建方式
+     * @return 数据
+     */
+    public abstract V computeIfAbsent(int ordinal, Object namespace, Function<Object, V> factory);
+
+    /**
+     * 遍历已创建的槽位
+     *
+     * @param action 以命名空间标识和数据执行的操作
+     */
+    public abstract void forEach(BiConsumer<Object, V> action);
+
+    static int capacity(int ordinal, int length) {
+        return Math.max(MIN_CAPACITY, Math.max(ordinal + 1, length << 1));
+    }
+
+    private static final class Concurrent<V> extends NamespaceSlots<V> {
+        /**
+         * 扩容时整体替换，槽位写入先于数组发布
+         */
+        private volatile AtomicReferenceArray<V> values = new AtomicReferenceArray<>(0);
+        private Object[] namespaces = EMPTY;
+
+        @Override
+        public V get(int ordinal) {
+            AtomicReferenceArray<V> values = this.values;
+            return ordinal < values.length() ? values.get(ordinal) : null;
+        }
+
+        @Override
+        public V computeIfAbsent(int ordinal, Object namespace, Function<Object, V> factory) {
+            V value = get(ordinal);
+            if (value != null) {
+                return value;
+            }
+            synchronized (this) {
+                AtomicReferenceArray<V> values = this.values;
+                if (ordinal >= values.length()) {
+                    AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(capacity(ordinal, values.length()));
+                    for (int i = 0; i < values.length(); i++) {
+                        grown.lazySet(i, values.get(i));
+                    }
+                    namespaces = Arrays.copyOf(namespaces, grown.length());
+                    this.values = values = grown;
+                }
+                value = values.get(ordinal);
+                if (value == null) {
+                    value = factory.apply(namespace);
+                    namespaces[ordinal] = namespace;
+                    values.set(ordinal, value);
+                }
+                return value;
+            }
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, V> action) {
+            Object[] namespaces;
+            Object[] snapshot;
+            synchronized (this) {
+                namespaces = this.namespaces.clone();
+                snapshot = new Object[namespaces.length];
+                for (int i = 0; i < snapshot.length; i++) {
+                    snapshot[i] = values.get(i);
+                }
+            }
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i] != null) {
+                    action.accept(namespaces[i], (V) snapshot[i]);
+                }
+            }
+        }
+    }
+
+    private static final class Unsynchronized<V> extends NamespaceSlots<V> {
+        private Object[] values = EMPTY;
+        private Object[] namespaces = EMPTY;
+
+        @Override
+        public V get(int ordinal) {
+            return ordinal < values.length ? (V) values[ordinal] : null;
+        }
+
+        @Override
+        public V computeIfAbsent(int ordinal, Object namespace, Function<Object, V> factory) {
+            if (ordinal >= values.length) {
+                values = Arrays.copyOf(values, capacity(ordinal, values.length));
+                namespaces = Arrays.copyOf(namespaces, values.length);
+            }
+            V value = (V) values[ordinal];
+            if (value == null) {
+                value = factory.apply(namespace);
+                namespaces[ordinal] = namespace;
+                values[ordinal] = value;
+            }
+            return value;
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, V> action) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    action.accept(namespaces[i], (V) values[i]);
+                }
+            }
+        }
+    }
+}
@@ -1,183 +1,131 @@
 package com.msl.model.builder.context.impl;
 
-import com.msl.model.builder.LazyBuilderHolder;
-import com.msl.model.builder.context.BuildContext;
+import com.msl.base.Namespace;
+import com.msl.model.builder.PrimitiveIdNamespace;
 import com.msl.model.builder.context.LazyBuildContext;
-import com.msl.model.utils.MergeUtil;
-import com.msl.model.utils.StoreUtil;
+import com.msl.model.utils.ConcurrentIdIndex;
+import com.msl.model.utils.IdIndex;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
+ * 线程安全的构造上下文，可在并发构建和并发渲染中使用
+ * <p>
+ * 多个线程同时触发同一命名空间的延迟构造时只有一个线程执行延迟构造器，其他线程等待其完成；
+ * 可通过{@link #lazyExecutor(Executor)}让延迟构造器在线程池（如虚拟线程）中执行
+ *
  * @author wanglq
  * Date 2022/11/4
  * Time 17:03
  */
-@SuppressWarnings("all")
-public class SimpleBuildContext implements LazyBuildContext {
+public class SimpleBuildContext extends AbstractBuildContext {
     /**
-     * 缓存数据
-     * key为命名空间,value为空间集合（map）数据
+     * 各命名空间延迟构造的单飞执行
      */
-    private final ConcurrentMap<Object, Map<Object, Object>> cachedData;
+    private final NamespaceSlots<SingleFlight> lazyFlights = NamespaceSlots.concurrent();
     /**
-     * 缓存id数据
-     * key为命名空间,value为空间内所有id数据
+     * 与调用方共享的数据，为空时不共享
      */
-    private final ConcurrentMap<Object, Set<Object>> ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Map<Object, Object>> sharedData;
     /**
-     * 延迟构造器中心
+     * 执行延迟构造器的线程池，为空时在触发的线程上执行
      */
-    private LazyBuilderHolder lazyBuilderHolder;
+    private volatile Executor lazyExecutor;
 
     public SimpleBuildContext() {
-        this(new ConcurrentHashMap<>());
+        super(NamespaceSlots.concurrent(), NamespaceSlots.concurrent(), NamespaceSlots.concurrent(),
+                NamespaceSlots.concurrent(), ConcurrentHashMap.newKeySet());
+        this.sharedData = null;
     }
 
-    public SimpleBuildContext(ConcurrentMap<Object, Map<Object, Object>> cachedData) {
-        this.cachedData = cachedData;
-    }
-
-
     /**
-     * 根据命名空间获取空间集合数据
-     * 各空间数据以Map形式返回
+     * 以已有的数据创建上下文，按引用共享：已有命名空间的数据集合直接作为上下文的存储，
+     * 上下文中新增的命名空间也放入该Map，key为命名空间标识
      *
-     * @param namespace 命名空间
-     * @return 指定的空间集合数据
+     * @param cachedData 已有的数据，key为命名空间
      */
-    @Override
-    public <K, V> Map<K, V> getData(Object namespace) {
-        doLazyBuild(namespace);
-        return getCachedData(namespace);
+    public SimpleBuildContext(ConcurrentMap<Object, Map<Object, Object>> cachedData) {
+        super(NamespaceSlots.concurrent(), NamespaceSlots.concurrent(), NamespaceSlots.concurrent(),
+                NamespaceSlots.concurrent(), ConcurrentHashMap.newKeySet());
+        this.sharedData = cachedData;
+        cachedData.keySet().forEach(this::getCachedData);
     }
 
     /**
-     * 根据命名空间获取空间内指定id的数据
-     * 各空间数据以Map形式返回
-     *
-     * @param namespace 命名空间
-     * @param key       数据id
-     * @return 指定数据
+     * 共享数据时，调用方在构造后放入的命名空间也能读到
      */
     @Override
-    public <K, V> V getData(Object namespace, K key) {
-        V value = (V) getCachedData(namespace, key);
-        if (value != null) {
-            return value;
-        }
-        doLazyBuild(namespace);
-        return getCachedData(namespace, key);
+    @SuppressWarnings("unchecked")
+    public <K, V> V getCachedData(Object namespace, K key) {
+        return sharedData == null ? super.getCachedData(namespace, key) : (V) getCachedData(namespace).get(key);
     }
 
     /**
-     * 执行延迟构造
-     *
-     * @param namespace 命名空间
+     * 以命名空间的单飞执行延迟构造器：同一时刻只有一个线程执行，其他线程等待其结果
      */
-    private void doLazyBuild(Object namespace) {
-        Optional.ofNullable(lazyBuilderHolder.getLazyBuilder(namespace))
-                //该命名空间存在延迟构造器时，以延迟构造器完成一次数据构造
-                .ifPresent(builder -> builder.apply(this));
+    @Override
+    protected void runLazyBuilder(Object namespace, Function<LazyBuildContext, Map<Object, Object>> builder) {
+        int ordinal = Namespace.ordinal(namespace);
+        SingleFlight flight = lazyFlights.get(ordinal);
+        if (flight == null) {
+            flight = lazyFlights.computeIfAbsent(ordinal, Namespace.identify(namespace), ns -> new SingleFlight());
+        }
+        flight.run(() -> builder.apply(this), lazyExecutor);
     }
 
     /**
-     * 根据命名空间获取已缓存的空间集合数据
-     * 各空间数据以Map形式返回
-     *
-     * @param namespace 命名空间
-     * @return 指定的空间的已缓存的集合数据
+     * 共享数据时从共享的Map中取得或放入；整数id命名空间以{@link PrimitiveIdNamespace#newConcurrentDataMap()}存储
      */
     @Override
-    public <K, V> Map<K, V> getCachedData(Object namespace) {
-        return (Map<K, V>) StoreUtil.computeIfAbsent(cachedData, namespace, n -> new ConcurrentHashMap<>(8));
+    protected Map<Object, Object> newDataMap(Object namespace) {
+        if (sharedData != null) {
+            return sharedData.computeIfAbsent(namespace, this::newConcurrentDataMap);
+        }
+        return newConcurrentDataMap(namespace);
     }
 
-    /**
-     * 根据命名空间获取空间内指定id的数据
-     * 各空间数据以Map形式返回
-     *
-     * @param namespace 命名空间
-     * @param key       数据id
-     * @return 指定数据
-     */
-    @Override
-    public <K, V> V getCachedData(Object namespace, K key) {
-        return (V) StoreUtil.computeIfAbsent(cachedData, namespace, n -> new ConcurrentHashMap<>(8)).get(key);
+    private Map<Object, Object> newConcurrentDataMap(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newConcurrentDataMap() : new ConcurrentHashMap<>(8);
     }
 
-    /**
-     * 根据命名空间获取空间内的所有id
-     *
-     * @param namespace 命名空间
-     * @return 指定空间内的所有id
-     */
     @Override
-    public <K> Set<K> getIds(Object namespace) {
-        return (Set<K>) StoreUtil.computeIfAbsent(ids, namespace, n -> new CopyOnWriteArraySet<>());
+    protected IdIndex<Object> newIdIndex(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newConcurrentIdSet() : new ConcurrentIdIndex();
     }
 
-    /**
-     * 合并其他上下文的数据到当前上下文
-     *
-     * @param otherContext 其他上下文
-     */
     @Override
-    public void merge(BuildContext otherContext) {
-        if (otherContext instanceof SimpleBuildContext) {
-            SimpleBuildContext other = (SimpleBuildContext) otherContext;
-            other.cachedData.forEach((namespace, values) -> cachedData.merge(namespace, values, MergeUtil::merge));
-            other.ids.forEach((ns, ids) -> this.ids.merge(ns, ids, MergeUtil::merge));
-            if (this.lazyBuilderHolder == null) {
-                this.lazyBuilderHolder = other.lazyBuilderHolder;
-            } else if (other.lazyBuilderHolder != null) {
-                this.lazyBuilderHolder = mergeHolder(this.lazyBuilderHolder, other.lazyBuilderHolder);
-            }
-        } else {
-            throw new UnsupportedOperationException();
-        }
+    protected Set<Object> newAbsentIdSet(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newConcurrentIdSet() : ConcurrentHashMap.newKeySet();
     }
 
     /**
-     * 合并lazyHolder
+     * 设置执行延迟构造器的线程池，每次延迟构造作为一个任务提交，触发的线程等待其完成。
+     * 如{@code BuildExecutors.virtualThreadPerTask()}，每次延迟构造在一个虚拟线程上执行
      *
-     * @param holder1
-     * @param holder2
-     * @return
+     * @param executor 线程池，为空时在触发的线程上执行
+     * @return 上下文自身
      */
-    private LazyBuilderHolder mergeHolder(LazyBuilderHolder holder1, LazyBuilderHolder holder2) {
-        final Map<Object, Function<LazyBuildContext, Map<Object, Object>>> builders = new HashMap<>(this.lazyBuilderHolder.getLazyBuilders());
-        holder2.getLazyBuilders().forEach(builders::putIfAbsent);
-        return new LazyBuilderHolder() {
-            private final Map<Object, Function<LazyBuildContext, Map<Object, Object>>> lazyBuilders = builders;
-
-            @Override
-            public Map<Object, Function<LazyBuildContext, Map<Object, Object>>> getLazyBuilders() {
-                return builders;
-            }
-
-            @Override
-            public Function<LazyBuildContext, Map<Object, Object>> getLazyBuilder(Object valueNamespace) {
-                return builders.get(valueNamespace);
-            }
-        };
+    public SimpleBuildContext lazyExecutor(Executor executor) {
+        this.lazyExecutor = executor;
+        return this;
     }
 
     /**
-     * 设置延迟构造器
+     * 设置构建截止时间：从现在起经过指定时间后到期
      *
-     * @param lazyBuilderHolder 延迟构造器执有者
+     * @param timeout 时长
+     * @param unit    时间单位
+     * @return 上下文自身
      */
     @Override
-    public void setupLazyBuilderHolder(LazyBuilderHolder lazyBuilderHolder) {
-        this.lazyBuilderHolder = lazyBuilderHolder;
+    public SimpleBuildContext deadline(long timeout, TimeUnit unit) {
+        super.deadline(timeout, unit);
+        return this;
     }
-
 }
@@ -0,0 +1,109 @@
+package com.msl.model.builder.context.impl;
+
+import com.msl.model.utils.FutureUtil;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单飞执行：同一时刻只有一个线程执行任务，其他线程等待其结果（失败时抛出同一异常）后再尝试执行
+ * <p>
+ * 不加锁，没有竞争时只有一次CAS。重入按单飞任务判断：只有正在执行本任务的线程再次触发时直接执行，
+ * 其他线程（包括正在执行其他单飞任务的线程）都等待本任务完成。
+ * 指定线程池时任务在线程池中执行，发起的线程等待其完成；已在执行单飞任务的线程不再提交到线程池，直接执行，
+ * 避免有界线程池中嵌套提交相互等待
+ * <p>
+ * 延迟构造之间不能循环依赖（X的构造器读取Y、Y的构造器又读取X），否则不同线程分别执行X、Y时会相互等待
+ *
+ * @author wanglq
+ * Date 2022/11/25
+ * Time 10:40
+ */
+final class SingleFlight {
+    /**
+     * 当前线程正在执行的单飞任务数，只用于决定是否提交到线程池
+     */
+    private static final ThreadLocal<int[]> LEADING = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final AtomicReference<CompletableFuture<Void>> current = new AtomicReference<>();
+    /**
+     * 正在执行本任务的线程
+     */
+    private volatile Thread leader;
+
+    /**
+     * @param task     任务
+     * @param executor 执行任务的线程池，为空时在当前线程执行
+     */
+    void run(Runnable task, Executor executor) {
+        while (true) {
+            CompletableFuture<Void> flight = current.get();
+            if (flight == null) {
+                CompletableFuture<Void> mine = new CompletableFuture<>();
+                if (current.compareAndSet(null, mine)) {
+                    lead(mine, task, executor);
+                    return;
+                }
+            } else if (leader == Thread.currentThread()) {
+                task.run();
+                return;
+            } else {
+                await(flight);
+            }
+        }
+    }
+
+    private void lead(CompletableFuture<Void> mine, Runnable task, Executor executor) {
+        Throwable failure = null;
+        try {
+            if (executor == null || LEADING.get()[0] > 0) {
+                runLeading(task);
+            } else {
+                FutureUtil.join(CompletableFuture.runAsync(() -> runLeading(task), executor));
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            // 先清除再通知，被唤醒的线程不会再等到已结束的任务
+            current.compareAndSet(mine, null);
+            if (failure == null) {
+                mine.complete(null);
+            } else {
+                mine.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * 在执行任务的线程上记录正在执行单飞任务
+     */
+    private void runLeading(Runnable task) {
+        int[] leading = LEADING.get();
+        leading[0]++;
+        leader = Thread.currentThread();
+        try {
+            task.run();
+        } finally {
+            leader = null;
+            leading[0]--;
+        }
+    }
+
+    private static void await(CompletableFuture<Void> flight) {
+        try {
+            flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
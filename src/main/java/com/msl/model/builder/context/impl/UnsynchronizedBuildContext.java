@@ -0,0 +1,83 @@
+package com.msl.model.builder.context.impl;
+
+import com.msl.model.builder.PrimitiveIdNamespace;
+import com.msl.model.utils.IdIndex;
+import com.msl.model.utils.SimpleIdIndex;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只在单个线程中使用的构造上下文：各命名空间以数组存储，空间内以HashMap存储，不加锁
+ * <p>
+ * 适用于在请求线程内完成构建和渲染的场景；不能用于设置了线程池或流水线的构建、
+ * 设置了超时的构造器（构造器在其他线程执行时读取上下文），以及并发渲染。
+ * 开启线程检查（启用断言时默认开启）后，在创建线程以外访问会抛出{@link IllegalStateException}
+ *
+ * @author wanglq
+ * Date 2022/11/23
+ * Time 16:30
+ */
+public class UnsynchronizedBuildContext extends AbstractBuildContext {
+    private final Thread owner = Thread.currentThread();
+    private boolean checkThread = UnsynchronizedBuildContext.class.desiredAssertionStatus();
+
+    public UnsynchronizedBuildContext() {
+        super(NamespaceSlots.unsynchronized(), NamespaceSlots.unsynchronized(), NamespaceSlots.unsynchronized(),
+                NamespaceSlots.unsynchronized(), new HashSet<>());
+    }
+
+    /**
+     * 设置是否检查访问线程为创建线程
+     *
+     * @param checkThread 是否检查
+     * @return 上下文自身
+     */
+    public UnsynchronizedBuildContext checkThread(boolean checkThread) {
+        this.checkThread = checkThread;
+        return this;
+    }
+
+    @Override
+    protected void checkAccess() {
+        if (checkThread && Thread.currentThread() != owner) {
+            throw new IllegalStateException("上下文只能在创建线程" + owner.getName() + "中访问，当前线程：" + Thread.currentThread().getName());
+        }
+    }
+
+    @Override
+    public boolean isThreadConfined() {
+        return true;
+    }
+
+    @Override
+    protected Map<Object, Object> newDataMap(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newDataMap() : new HashMap<>(8);
+    }
+
+    @Override
+    protected IdIndex<Object> newIdIndex(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newIdIndex() : new SimpleIdIndex();
+    }
+
+    @Override
+    protected Set<Object> newAbsentIdSet(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newIdSet() : new HashSet<>();
+    }
+
+    /**
+     * 设置构建截止时间：从现在起经过指定时间后到期
+     *
+     * @param timeout 时长
+     * @param unit    时间单位
+     * @return 上下文自身
+     */
+    @Override
+    public UnsynchronizedBuildContext deadline(long timeout, TimeUnit unit) {
+        super.deadline(timeout, unit);
+        return this;
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -28,6 +29,11 @@ public class DefaultBuilderRegistry implements LazyBuilderRegistry<DefaultBuilde
      * {idNamespace, [{valueNamespace, ids -> values}]}
      */
     private final SetMultimap<Object, KeyPair<BiFunction<BuildContext, Collection<Object>, Map<Object, Object>>>> valueBuilders = create();
+    /**
+     * key为id命名空间，value为指定命名空间下通过key中的id命名中间中的ids异步生成values的方式
+     * {idNamespace, [{valueNamespace, ids -> future(values)}]}
+     */
+    private final SetMultimap<Object, KeyPair<BiFunction<BuildContext, Collection<Object>, CompletionStage<Map<Object, Object>>>>> asyncValueBuilders = create();
     /**
      * key为value命名空间，value为该命名空间的延迟构造器
      * {valueNamespace, context -> values}
@@ -103,6 +109,73 @@ public class DefaultBuilderRegistry implements LazyBuilderRegistry<DefaultBuilde
         return valueBuilders.get(idNamespace);
     }
 
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, Function, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @return 返回注册中心
+     */
+    @Override
+    public <K> DefaultBuilderRegistry buildValueAsync(Object idNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder) {
+        return buildValueAsync(idNamespace, valueBuilder, idNamespace);
+    }
+
+    /**
+     * 注册异步构造器
+     * <p>
+     * 相较于此注册方式{@link #buildValueAsync(Object, BiFunction, Object)} 以idNamespace当作valueNamespace
+     *
+     * @param idNamespace  id命名空间
+     * @param valueBuilder 异步构造器
+     * @return 返回注册中心
+     */
+    @Override
+    public <K, B extends BuildContext> DefaultBuilderRegistry buildValueAsync(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder) {
+        return buildValueAsync(idNamespace, valueBuilder, idNamespace);
+    }
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @return 返回注册中心
+     */
+    @Override
+    public <K> DefaultBuilderRegistry buildValueAsync(Object idNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace) {
+        BiFunction<BuildContext, Collection<K>, CompletionStage<? extends Map<K, ?>>> builder = (context, ids) -> valueBuilder.apply(ids);
+        return buildValueAsync(idNamespace, builder, toValueNamespace);
+    }
+
+    /**
+     * 注册异步构造器
+     *
+     * @param idNamespace      id命名空间
+     * @param valueBuilder     异步构造器
+     * @param toValueNamespace value命名空间
+     * @return 返回注册中心
+     */
+    @Override
+    public <K, B extends BuildContext> DefaultBuilderRegistry buildValueAsync(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends CompletionStage<? extends Map<K, ?>>> valueBuilder, Object toValueNamespace) {
+        asyncValueBuilders.put(idNamespace, new KeyPair(toValueNamespace, valueBuilder));
+        return this;
+    }
+
+    /**
+     * 根据id命名空间获取所有的异步构造器
+     *
+     * @param idNamespace id命名空间
+     * @return value空间和对应的异步构造器
+     */
+    @Override
+    public Set<KeyPair<BiFunction<BuildContext, Collection<Object>, CompletionStage<Map<Object, Object>>>>> getAsyncBuilders(Object idNamespace) {
+        return asyncValueBuilders.get(idNamespace);
+    }
+
     /**
      * 注册延迟构造器
      *
@@ -113,11 +186,8 @@ public class DefaultBuilderRegistry implements LazyBuilderRegistry<DefaultBuilde
      */
     @Override
     public <K> DefaultBuilderRegistry lazyBuild(Object idNamespace, Function<? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace) {
-        Function<LazyBuildContext, Map<K, ?>> lazyBuilder = (context) -> {
-            Map<K, ?> map = valueBuilder.apply(StoreUtil.<K>filterIdSet(valueNamespace, context.getIds(idNamespace), context));
-            StoreUtil.mergeValueToBuildContext((Map<Object, Object>) map, valueNamespace, context);
-            return map;
-        };
+        Function<LazyBuildContext, Map<K, ?>> lazyBuilder = context -> StoreUtil.lazyFetch(context, idNamespace, valueNamespace,
+                (LazyBuildContext c, Collection<K> ids) -> valueBuilder.apply(ids));
         return lazyBuild(valueNamespace, lazyBuilder);
     }
 
@@ -131,11 +201,7 @@ public class DefaultBuilderRegistry implements LazyBuilderRegistry<DefaultBuilde
      */
     @Override
     public <K, B extends LazyBuildContext> DefaultBuilderRegistry lazyBuild(Object idNamespace, BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder, Object valueNamespace) {
-        Function<B, ? extends Map<K, ?>> lazyBuilder = context -> {
-            Map<K, ?> map = valueBuilder.apply(context, StoreUtil.<K>filterIdSet(valueNamespace, context.getIds(idNamespace), context));
-            StoreUtil.mergeValueToBuildContext((Map<Object, Object>) map, valueNamespace, context);
-            return map;
-        };
+        Function<B, ? extends Map<K, ?>> lazyBuilder = context -> StoreUtil.lazyFetch(context, idNamespace, valueNamespace, valueBuilder);
         return lazyBuild(valueNamespace, lazyBuilder);
     }
 
@@ -6,6 +6,7 @@ import com.msl.base.KeyPair;
 import com.msl.model.builder.ExtractorRegistry;
 import com.msl.model.builder.context.BuildContext;
 import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.ExtractionSink;
 import com.msl.model.utils.StoreUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -28,26 +30,25 @@ import static java.util.Collections.*;
 public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtractorRegistry> {
     private Logger logger = LoggerFactory.getLogger(DefaultExtractorRegistry.class);
     /**
-     * key为model类型,value为通过该类型数据获取指定命名空间下id数据的方式
-     * {T.class, [(T t) -> (namespace,ids)]}
+     * key为model类型，value为将该类型数据的id、value直接写入接收方的提取方式，
+     * 每次注册一个；id、value的查询视图由其中以{@code extractId}、{@code extractValue}等方式注册的提取器得到
+     * {T.class, [(T t, sink) -> void]}
      */
-    private final SetMultimap<Class<?>, Function<Object, KeyPair<Set<Object>>>> idExtractors = create();
+    private final SetMultimap<Class<?>, BiConsumer<Object, ExtractionSink>> sinkExtractors = create();
+
     /**
-     * key为model类型，value为通过该类型数据获取指定命名空间下集合数据的方式
-     * {T.class, [(T t) -> (namespace,values)]}
+     * 按具体类型缓存的提取方式（含父类型），注册时清空
      */
-    private final SetMultimap<Class<?>, Function<Object, KeyPair<Map<Object, Object>>>> valueExtractors = create();
-
+    private final ConcurrentMap<Class<?>, BiConsumer<Object, ExtractionSink>[]> cachedExtractors = new ConcurrentHashMap<>();
     /**
-     * key为model类型,value为通过该类型数据获取指定命名空间下id数据的方式
-     * {T.class, [(T t) -> (namespace,ids)]}
+     * 编译后的提取计划：具体类型到提取器数组的不可变快照，提取时只做一次查找；
+     * 遇到新的具体类型时复制出包含它的新快照再发布。由注册中心持有，不会随Class驻留
      */
-    private final ConcurrentMap<Class<?>, Set<Function<Object, KeyPair<Set<Object>>>>> cachedIdExtractors = new ConcurrentHashMap<>();
+    private volatile Map<Class<?>, BiConsumer<Object, ExtractionSink>[]> plans;
     /**
-     * key为model类型，value为通过该类型数据获取指定命名空间下集合数据的方式
-     * {T.class, [(T t) -> (namespace,values)]}
+     * 是否已编译
      */
-    private final ConcurrentMap<Class<?>, Set<Function<Object, KeyPair<Map<Object, Object>>>>> cachedValueExtractors = new ConcurrentHashMap<>();
+    private volatile boolean compiled;
 
     @Override
     public <E> DefaultExtractorRegistry valueFromSelf(Class<E> type, Function<E, Object> idExtractor) {
@@ -64,6 +65,14 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
         return on(type).value(valueExtractor).id(idExtractor).to(toValueNamespace);
     }
 
+    @Override
+    public <E> DefaultExtractorRegistry extract(Class<E> type, BiConsumer<? super E, ExtractionSink> extractor) {
+        on(type);
+        sinkExtractors.put(type, (BiConsumer<Object, ExtractionSink>) extractor);
+        cachedExtractors.clear();
+        return this;
+    }
+
     /**
      * 判断指定类型是否存在value提取器
      *
@@ -72,7 +81,7 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
      */
     @Override
     public boolean existsValueExtractor(Class<?> type) {
-        return valueExtractors.containsKey(type);
+        return sinkExtractors.get(type).stream().anyMatch(ValueExtraction.class::isInstance);
     }
 
     /**
@@ -83,7 +92,7 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
      */
     @Override
     public Set<Function<Object, KeyPair<Set<Object>>>> getIdExtractors(Class<?> type) {
-        return StoreUtil.getAllSupperTypes(type).stream().filter(idExtractors::containsKey).map(idExtractors::get).flatMap(Set::stream).collect(Collectors.toSet());
+        return Arrays.stream(getSinkExtractors(type)).filter(IdExtraction.class::isInstance).map(e -> (IdExtraction) e).collect(Collectors.toSet());
     }
 
     /**
@@ -92,7 +101,43 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
      */
     @Override
     public Set<Function<Object, KeyPair<Map<Object, Object>>>> getValueExtractors(Class<?> clazz) {
-        return StoreUtil.getAllSupperTypes(clazz).stream().filter(valueExtractors::containsKey).map(valueExtractors::get).flatMap(Set::stream).collect(Collectors.toSet());
+        return Arrays.stream(getSinkExtractors(clazz)).filter(ValueExtraction.class::isInstance).map(e -> (ValueExtraction) e).collect(Collectors.toSet());
+    }
+
+    private BiConsumer<Object, ExtractionSink>[] getSinkExtractors(Class<?> type) {
+        return StoreUtil.getAllSupperTypes(type).stream().filter(sinkExtractors::containsKey).map(sinkExtractors::get).flatMap(Set::stream).toArray(BiConsumer[]::new);
+    }
+
+    /**
+     * 编译提取器，之后注册提取器会抛出{@link IllegalStateException}
+     *
+     * @return 注册中心自身
+     */
+    @Override
+    public synchronized DefaultExtractorRegistry compile() {
+        if (!compiled) {
+            compiled = true;
+            Map<Class<?>, BiConsumer<Object, ExtractionSink>[]> plans = new IdentityHashMap<>();
+            for (Class<?> type : sinkExtractors.keySet()) {
+                plans.put(type, getSinkExtractors(type));
+            }
+            this.plans = plans;
+        }
+        return this;
+    }
+
+    /**
+     * 为编译时未出现的具体类型解析提取计划，发布包含它的新快照
+     */
+    private synchronized BiConsumer<Object, ExtractionSink>[] plan(Class<?> type) {
+        BiConsumer<Object, ExtractionSink>[] extractors = plans.get(type);
+        if (extractors == null) {
+            Map<Class<?>, BiConsumer<Object, ExtractionSink>[]> plans = new IdentityHashMap<>(this.plans);
+            extractors = getSinkExtractors(type);
+            plans.put(type, extractors);
+            this.plans = plans;
+        }
+        return extractors;
     }
 
     @Override
@@ -100,19 +145,26 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
         if (obj == null) {
             return;
         }
-        StoreUtil.computeIfAbsent(cachedValueExtractors, obj.getClass(), this::getValueExtractors).forEach(fun -> {
-            KeyPair<Map<Object, Object>> values = fun.apply(obj);
-            Map<Object, Object> filteredValues = StoreUtil.filterValueMap(values, buildContext);
-            buildingTemp.mergeIds(values.getKey(), new HashSet<>(values.getValue().keySet()));
-            buildingTemp.mergeValues(values.getKey(), filteredValues);
-        });
-        StoreUtil.computeIfAbsent(cachedIdExtractors, obj.getClass(), this::getIdExtractors).forEach(fun -> {
-            KeyPair<Set<Object>> idsPair = fun.apply(obj);
-            buildingTemp.mergeIds(idsPair.getKey(), new HashSet<>(idsPair.getValue()));
-        });
+        Map<Class<?>, BiConsumer<Object, ExtractionSink>[]> plans = this.plans;
+        BiConsumer<Object, ExtractionSink>[] extractors;
+        if (plans != null) {
+            extractors = plans.get(obj.getClass());
+            if (extractors == null) {
+                extractors = plan(obj.getClass());
+            }
+        } else {
+            extractors = StoreUtil.computeIfAbsent(cachedExtractors, obj.getClass(), this::getSinkExtractors);
+        }
+        ExtractionSink sink = buildingTemp.sink(buildContext);
+        for (BiConsumer<Object, ExtractionSink> extractor : extractors) {
+            extractor.accept(obj, sink);
+        }
     }
 
     private <E> OnExtracting<E> on(Class<E> type) {
+        if (compiled) {
+            throw new IllegalStateException("提取器已编译，不能再注册");
+        }
         return new OnExtracting<>(type);
     }
 
@@ -150,37 +202,8 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
             }
 
             public DefaultExtractorRegistry to(Object valueNamespace) {
-                valueExtractors.put(objType, obj -> {
-                    Object rawValue = valueExtractor.apply((E) obj);
-                    Map<Object, Object> value;
-                    if (rawValue == null) {
-                        value = emptyMap();
-                    } else {
-                        if (idExtractor != null) {
-                            if (rawValue instanceof Iterable) {
-                                if (rawValue instanceof Collection) {
-                                    value = new HashMap<>(((Collection) rawValue).size());
-                                } else {
-                                    value = new HashMap<>();
-                                }
-                                for (E e : ((Iterable<E>) rawValue)) {
-                                    value.put(idExtractor.apply(e), e);
-                                }
-                            } else {
-                                value = singletonMap(idExtractor.apply(rawValue), rawValue);
-                            }
-                        } else {
-                            if (rawValue instanceof Map) {
-                                value = (Map<Object, Object>) rawValue;
-                            } else {
-                                logger.warn("invalid value extractor for:{}->{}", obj, rawValue);
-                                value = emptyMap();
-                            }
-                        }
-                    }
-                    return new KeyPair<>(valueNamespace, value);
-                });
-                cachedValueExtractors.clear();
+                sinkExtractors.put(objType, new ValueExtraction((Function<Object, Object>) valueExtractor, idExtractor, valueNamespace));
+                cachedExtractors.clear();
                 return DefaultExtractorRegistry.this;
             }
         }
@@ -194,23 +217,104 @@ public class DefaultExtractorRegistry implements ExtractorRegistry<DefaultExtrac
             }
 
             public DefaultExtractorRegistry to(Object idNamespace) {
-                idExtractors.put(objType, obj -> {
-                    Object rawId = idExtractor.apply((E) obj);
-                    Set<Object> ids;
-                    if (rawId == null) {
-                        ids = emptySet();
-                    } else {
-                        if (rawId instanceof Iterable) {
-                            ids = Sets.newHashSet((Iterable) rawId);
-                        } else {
-                            ids = singleton(rawId);
-                        }
-                    }
-                    return new KeyPair<>(idNamespace, ids);
-                });
-                cachedIdExtractors.clear();
+                sinkExtractors.put(objType, new IdExtraction((Function<Object, Object>) idExtractor, idNamespace));
+                cachedExtractors.clear();
                 return DefaultExtractorRegistry.this;
             }
         }
     }
+
+    /**
+     * 以{@code extractValue}等方式注册的value提取器，提取时直接写入接收方，
+     * 同时作为{@link #getValueExtractors(Class)}返回的提取器
+     */
+    private final class ValueExtraction implements BiConsumer<Object, ExtractionSink>, Function<Object, KeyPair<Map<Object, Object>>> {
+        private final Function<Object, Object> valueExtractor;
+        private final Function<Object, Object> idExtractor;
+        private final Object valueNamespace;
+
+        private ValueExtraction(Function<Object, Object> valueExtractor, Function<Object, Object> idExtractor, Object valueNamespace) {
+            this.valueExtractor = valueExtractor;
+            this.idExtractor = idExtractor;
+            this.valueNamespace = valueNamespace;
+        }
+
+        @Override
+        public void accept(Object obj, ExtractionSink sink) {
+            Object rawValue = valueExtractor.apply(obj);
+            if (rawValue == null) {
+                return;
+            }
+            if (idExtractor != null) {
+                if (rawValue instanceof Iterable) {
+                    for (Object e : (Iterable<?>) rawValue) {
+                        sink.value(valueNamespace, idExtractor.apply(e), e);
+                    }
+                } else {
+                    sink.value(valueNamespace, idExtractor.apply(rawValue), rawValue);
+                }
+            } else if (rawValue instanceof Map) {
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) rawValue).entrySet()) {
+                    sink.value(valueNamespace, entry.getKey(), entry.getValue());
+                }
+            } else {
+                logger.warn("invalid value extractor for:{}->{}", obj, rawValue);
+            }
+        }
+
+        @Override
+        public KeyPair<Map<Object, Object>> apply(Object obj) {
+            Map<Object, Object> values = new HashMap<>();
+            accept(obj, new ExtractionSink() {
+                @Override
+                public void id(Object idNamespace, Object id) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void value(Object valueNamespace, Object id, Object value) {
+                    values.put(id, value);
+                }
+            });
+            return new KeyPair<>(valueNamespace, values);
+        }
+    }
+
+    /**
+     * 以{@code extractId}等方式注册的id提取器，提取时直接写入接收方，
+     * 同时作为{@link #getIdExtractors(Class)}返回的提取器
+     */
+    private static final class IdExtraction implements BiConsumer<Object, ExtractionSink>, Function<Object, KeyPair<Set<Object>>> {
+        private final Function<Object, Object> idExtractor;
+        private final Object idNamespace;
+
+        private IdExtraction(Function<Object, Object> idExtractor, Object idNamespace) {
+            this.idExtractor = idExtractor;
+            this.idNamespace = idNamespace;
+        }
+
+        @Override
+        public void accept(Object obj, ExtractionSink sink) {
+            Object rawId = idExtractor.apply(obj);
+            if (rawId == null) {
+                return;
+            }
+            if (rawId instanceof Iterable) {
+                for (Object id : (Iterable<?>) rawId) {
+                    sink.id(idNamespace, id);
+                }
+            } else {
+                sink.id(idNamespace, rawId);
+            }
+        }
+
+        @Override
+        public KeyPair<Set<Object>> apply(Object obj) {
+            Object rawId = idExtractor.apply(obj);
+            if (rawId == null) {
+                return new KeyPair<>(idNamespace, emptySet());
+            }
+            return new KeyPair<>(idNamespace, rawId instanceof Iterable ? Sets.newHashSet((Iterable<Object>) rawId) : singleton(rawId));
+        }
+    }
 }
@@ -1,17 +1,30 @@
 package com.msl.model.builder.impl;
 
 import com.msl.model.builder.AbstractModelBuilder;
+import com.msl.model.builder.BuildTimeoutException;
 import com.msl.model.builder.ExtractorRegistry;
 import com.msl.model.builder.LazyBuilderRegistry;
 import com.msl.model.builder.context.BuildContext;
 import com.msl.model.builder.context.BuildingTemp;
 import com.msl.model.builder.context.LazyBuildContext;
+import com.msl.model.utils.FutureUtil;
+import com.msl.model.utils.PrimitiveIdSet;
 import com.msl.model.utils.StoreUtil;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * @author wanglq
@@ -23,6 +36,14 @@ public class DefaultModelBuilder extends AbstractModelBuilder {
      * 递归调用深度（一次构建允许最多的递归次数），限止无限循环
      */
     private int deep = 30;
+    /**
+     * 构造器执行线程池，为空时同一轮的构造器在当前线程依次执行
+     */
+    private Executor executor;
+    /**
+     * 是否以流水线方式构建，见{@link PipelinedBuild}
+     */
+    private boolean pipelined;
 
     public DefaultModelBuilder() {
     }
@@ -46,6 +67,36 @@ public class DefaultModelBuilder extends AbstractModelBuilder {
         this.deep = deep;
     }
 
+    /**
+     * 设置构造器执行线程池
+     * <p>
+     * 设置后同一轮中所有命名空间的构造器并发执行，全部完成后再合并到构造临时数据，
+     * 一轮的耗时取决于最慢的构造器；构造器需是线程安全的。
+     * 延迟构造器不使用此线程池，需要时以{@code SimpleBuildContext.lazyExecutor}指定
+     *
+     * @param executor 线程池
+     * @return modelBuilder自身
+     */
+    public DefaultModelBuilder executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+
+    /**
+     * 设置是否以流水线方式构建
+     * <p>
+     * 开启后不再按轮次构建：任一构造器返回后立即提取其结果并启动下游构造器，
+     * 慢的命名空间只会拖慢依赖它的分支；通常与{@link #executor(Executor)}一起使用，
+     * 未设置线程池时同步构造器在触发线程上执行
+     *
+     * @param pipelined 是否以流水线方式构建
+     * @return modelBuilder自身
+     */
+    public DefaultModelBuilder pipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
 
     /**
      * 执行构建
@@ -62,6 +113,10 @@ public class DefaultModelBuilder extends AbstractModelBuilder {
             ((LazyBuildContext) buildContext).setupLazyBuilderHolder(this);
         }
         Set<?> toBuilding = toBuilding(sources);
+        if (pipelined) {
+            FutureUtil.join(new PipelinedBuild(this, buildContext, executor, deep).start(toBuilding));
+            return;
+        }
         int cur = deep;
         while (!toBuilding.isEmpty() && --cur >= 0) {
             BuildingTemp temp = new BuildingTemp();
@@ -78,13 +133,216 @@ public class DefaultModelBuilder extends AbstractModelBuilder {
         }
     }
 
+    /**
+     * 执行异步构建
+     * <p>
+     * 各轮之间通过异步结果串联，异步构造器不会占用等待线程；
+     * 同步构造器在设置了线程池时提交到线程池执行，否则在触发线程上执行
+     *
+     * @param sources      原始数据
+     * @param buildContext 构造上下文
+     * @return 构造完成时结束的异步结果
+     */
+    @Override
+    protected CompletionStage<Void> doBuildAsync(Iterable<?> sources, BuildContext buildContext) {
+        if (sources == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (buildContext instanceof LazyBuildContext) {
+            ((LazyBuildContext) buildContext).setupLazyBuilderHolder(this);
+        }
+        if (pipelined) {
+            return new PipelinedBuild(this, buildContext, executor, deep).start(toBuilding(sources));
+        }
+        return buildRoundAsync(toBuilding(sources), buildContext, deep);
+    }
+
+    private CompletableFuture<Void> buildRoundAsync(Set<?> toBuilding, BuildContext buildContext, int remaining) {
+        if (toBuilding.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (remaining <= 0) {
+            return FutureUtil.failed(new RuntimeException("递归调用栈太深，超过限制"));
+        }
+        BuildingTemp temp = new BuildingTemp();
+        for (Object object : toBuilding) {
+            doExtract(object, buildContext, temp);
+        }
+        temp.mergeIdToContext(buildContext);
+        Function<Void, CompletableFuture<Void>> nextRound = v -> {
+            temp.mergeValueToContext(buildContext);
+            return buildRoundAsync(temp.toBuildingValues(), buildContext, remaining - 1);
+        };
+        CompletableFuture<Void> built = valueBuildAsync(temp, buildContext);
+        return executor == null ? built.thenCompose(nextRound) : built.thenComposeAsync(nextRound, executor);
+    }
+
     private void valueBuild(BuildingTemp temp, BuildContext buildContext) {
-        temp.getIdsMap().forEach((idNamespace, ids) -> getBuilders(idNamespace).forEach(pair -> {
-            Object valueNamespace = pair.getKey();
-            Map<Object, Object> values = pair.getValue()
-                    .apply(buildContext, StoreUtil.filterIdSet(valueNamespace, ids, buildContext, temp.getValuesMap()));
+        FutureUtil.join(valueBuildAsync(temp, buildContext));
+    }
+
+    /**
+     * 执行一轮中的所有构造器
+     * <p>
+     * 未设置线程池时依次执行：每个构造器执行前过滤id，结果立即合并到构造临时数据，
+     * 同一值命名空间的后续构造器不再获取已得到的id。
+     * 设置了线程池时待构造的id在当前线程过滤完成后并发执行，同一值命名空间的id只由第一个构造器获取；
+     * 全部完成后构造结果按提交顺序合并到构造临时数据，未返回的id记为不存在。
+     * 上下文设置了截止时间时最多等到截止时间：未完成的调用被取消（中断执行线程），对应命名空间标记为超时，
+     * 已完成的结果照常合并；到期后不再提交新的调用，构建随之结束
+     *
+     * @param temp         构造临时数据
+     * @param buildContext 构造上下文
+     * @return 本轮构造器全部完成（或到期）时结束的异步结果
+     */
+    private CompletableFuture<Void> valueBuildAsync(BuildingTemp temp, BuildContext buildContext) {
+        List<RoundStep> steps = new ArrayList<>();
+        temp.getIdsMap().forEach((idNamespace, ids) -> {
+            getBuilders(idNamespace).forEach(pair -> steps.add(new RoundStep(pair.getKey(), ids, toBuildIds -> {
+                if (executor != null) {
+                    return FutureUtil.supplyAsync(() -> pair.getValue().apply(buildContext, toBuildIds), executor);
+                }
+                try {
+                    return CompletableFuture.completedFuture(pair.getValue().apply(buildContext, toBuildIds));
+                } catch (BuildTimeoutException e) {
+                    return FutureUtil.failed(e);
+                }
+            })));
+            getAsyncBuilders(idNamespace).forEach(pair -> steps.add(new RoundStep(pair.getKey(), ids,
+                    toBuildIds -> pair.getValue().apply(buildContext, toBuildIds).toCompletableFuture())));
+        });
+        if (executor == null) {
+            return valueBuildInOrder(steps.iterator(), temp, buildContext);
+        }
+        List<RoundCall> calls = new ArrayList<>();
+        // 本轮中各值命名空间已由构造器获取的id
+        Map<Object, Set<Object>> claimed = new HashMap<>();
+        for (RoundStep step : steps) {
+            Set<Object> toBuildIds = StoreUtil.filterIdSet(step.valueNamespace, step.ids, buildContext, temp.getValuesMap());
+            Set<Object> claimedIds = claimed.computeIfAbsent(step.valueNamespace, ns -> new HashSet<>());
+            toBuildIds = unclaimed(toBuildIds, claimedIds);
+            claimedIds.addAll(toBuildIds);
+            if (expired(step.valueNamespace, toBuildIds, buildContext)) {
+                continue;
+            }
+            calls.add(new RoundCall(step.valueNamespace, toBuildIds, step.invoker.apply(toBuildIds)));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(calls.stream().map(call -> call.future).toArray(CompletableFuture[]::new));
+        // 超时的调用不影响构建，其他异常在合并时按顺序抛出
+        return bounded(all, buildContext).thenRun(() -> calls.forEach(call -> call.mergeTo(temp, buildContext)));
+    }
+
+    /**
+     * 依次执行构造器，前一个构造器的结果合并后再过滤下一个构造器的id
+     */
+    private CompletableFuture<Void> valueBuildInOrder(Iterator<RoundStep> steps, BuildingTemp temp, BuildContext buildContext) {
+        while (steps.hasNext()) {
+            RoundStep step = steps.next();
+            Set<Object> toBuildIds = StoreUtil.filterIdSet(step.valueNamespace, step.ids, buildContext, temp.getValuesMap());
+            if (expired(step.valueNamespace, toBuildIds, buildContext)) {
+                continue;
+            }
+            RoundCall call = new RoundCall(step.valueNamespace, toBuildIds, step.invoker.apply(toBuildIds));
+            if (call.future.isDone()) {
+                call.mergeTo(temp, buildContext);
+                continue;
+            }
+            return bounded(call.future, buildContext).thenCompose(v -> {
+                call.mergeTo(temp, buildContext);
+                return valueBuildInOrder(steps, temp, buildContext);
+            });
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 上下文设置了截止时间时，最多等到截止时间即结束；结果中的异常忽略，由{@link RoundCall#mergeTo}处理
+     */
+    private static CompletableFuture<Void> bounded(CompletableFuture<?> future, BuildContext buildContext) {
+        long remaining = buildContext.remainingNanos();
+        if (remaining == Long.MAX_VALUE || future.isDone()) {
+            return future.handle((v, e) -> null);
+        }
+        CompletableFuture<Void> bounded = new CompletableFuture<>();
+        ScheduledFuture<?> timer = FutureUtil.schedule(() -> bounded.complete(null), Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        future.whenComplete((v, e) -> {
+            timer.cancel(false);
+            bounded.complete(null);
+        });
+        return bounded;
+    }
+
+    private static Set<Object> unclaimed(Set<Object> ids, Set<Object> claimed) {
+        if (claimed.isEmpty()) {
+            return ids;
+        }
+        Set<Object> result = ids instanceof PrimitiveIdSet ? new PrimitiveIdSet(((PrimitiveIdSet) ids).isIntIds()) : new HashSet<>();
+        for (Object id : ids) {
+            if (!claimed.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 构建已到期时不再调用构造器，有待构造的id时标记命名空间超时
+     */
+    private static boolean expired(Object valueNamespace, Set<Object> toBuildIds, BuildContext buildContext) {
+        if (buildContext.remainingNanos() > 0) {
+            return false;
+        }
+        if (!toBuildIds.isEmpty()) {
+            buildContext.markTimedOut(valueNamespace);
+        }
+        return true;
+    }
+
+    /**
+     * 一轮中待执行的构造器
+     */
+    private static final class RoundStep {
+        private final Object valueNamespace;
+        private final Set<Object> ids;
+        private final Function<Set<Object>, CompletableFuture<Map<Object, Object>>> invoker;
+
+        private RoundStep(Object valueNamespace, Set<Object> ids, Function<Set<Object>, CompletableFuture<Map<Object, Object>>> invoker) {
+            this.valueNamespace = valueNamespace;
+            this.ids = ids;
+            this.invoker = invoker;
+        }
+    }
+
+    /**
+     * 一轮中的一次构造器调用
+     */
+    private static final class RoundCall {
+        private final Object valueNamespace;
+        private final Set<Object> ids;
+        private final CompletableFuture<Map<Object, Object>> future;
+
+        private RoundCall(Object valueNamespace, Set<Object> ids, CompletableFuture<Map<Object, Object>> future) {
+            this.valueNamespace = valueNamespace;
+            this.ids = ids;
+            this.future = future;
+        }
+
+        private void mergeTo(BuildingTemp temp, BuildContext buildContext) {
+            if (!future.isDone()) {
+                future.cancel(true);
+                buildContext.markTimedOut(valueNamespace);
+                return;
+            }
+            Map<Object, Object> values;
+            try {
+                values = FutureUtil.join(future);
+            } catch (BuildTimeoutException e) {
+                buildContext.markTimedOut(valueNamespace);
+                return;
+            }
+            StoreUtil.markAbsent(valueNamespace, ids, values, buildContext);
             temp.mergeValues(valueNamespace, values);
-        }));
+        }
     }
 
     private Set<?> toBuilding(Iterable<?> sources) {
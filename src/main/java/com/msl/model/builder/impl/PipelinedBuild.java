@@ -0,0 +1,241 @@
+package com.msl.model.builder.impl;
+
+import com.msl.model.builder.BuildTimeoutException;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.utils.FutureUtil;
+import com.msl.model.utils.PrimitiveIdSet;
+import com.msl.model.utils.StoreUtil;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 流水线构建（一次构建对应一个实例）
+ * <p>
+ * 不再按轮次等待：某个构造器的结果一返回就立即提取，并启动依赖这些数据的下游构造器，
+ * 构建耗时趋近于依赖链上的关键路径，而不是每轮最慢构造器耗时之和；
+ * 上下文设置了截止时间时，到期即取消未完成的调用并结束构建
+ *
+ * @author wanglq
+ * Date 2022/11/15
+ * Time 10:05
+ */
+class PipelinedBuild {
+    private final DefaultModelBuilder modelBuilder;
+    private final BuildContext buildContext;
+    private final Executor executor;
+    private final int deep;
+    /**
+     * 本次构建中已交给构造器的id，避免并发的分支重复构造
+     * {valueNamespace, ids}
+     */
+    private final ConcurrentMap<Object, Set<Object>> requestedIds = new ConcurrentHashMap<>();
+    /**
+     * 未完成的任务数，归零时构建结束
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    /**
+     * 未完成的构造器调用，到期时取消
+     * {调用, valueNamespace}
+     */
+    private final ConcurrentMap<CompletableFuture<?>, Object> inFlight = new ConcurrentHashMap<>();
+    /**
+     * 写上下文与结束构建互斥，构建结束后不再修改上下文
+     */
+    private final Object lock = new Object();
+
+    PipelinedBuild(DefaultModelBuilder modelBuilder, BuildContext buildContext, Executor executor, int deep) {
+        this.modelBuilder = modelBuilder;
+        this.buildContext = buildContext;
+        this.executor = executor;
+        this.deep = deep;
+    }
+
+    /**
+     * 开始构建
+     *
+     * @param sources 原始数据
+     * @return 所有构造器完成时结束的异步结果
+     */
+    CompletableFuture<Void> start(Collection<?> sources) {
+        long remaining = buildContext.remainingNanos();
+        if (remaining != Long.MAX_VALUE) {
+            ScheduledFuture<?> timer = FutureUtil.schedule(this::expire, Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            done.whenComplete((v, e) -> timer.cancel(false));
+        }
+        pending.incrementAndGet();
+        try {
+            process(sources, 1);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            finish();
+        }
+        return done;
+    }
+
+    /**
+     * 提取数据并启动下游构造器
+     *
+     * @param objects 待提取的数据
+     * @param depth   所在的依赖深度
+     */
+    private void process(Collection<?> objects, int depth) {
+        if (objects.isEmpty() || done.isDone()) {
+            return;
+        }
+        if (depth > deep) {
+            fail(new RuntimeException("递归调用栈太深，超过限制"));
+            return;
+        }
+        BuildingTemp temp = new BuildingTemp();
+        for (Object object : objects) {
+            modelBuilder.doExtract(object, buildContext, temp);
+        }
+        synchronized (lock) {
+            if (done.isDone()) {
+                return;
+            }
+            temp.mergeIdToContext(buildContext);
+            temp.mergeValueToContext(buildContext);
+        }
+        temp.getIdsMap().forEach((idNamespace, ids) -> {
+            modelBuilder.getBuilders(idNamespace).forEach(pair -> {
+                Set<Object> toBuildIds = claim(pair.getKey(), ids);
+                if (!toBuildIds.isEmpty()) {
+                    schedule(pair.getKey(), toBuildIds, depth, () -> executor == null
+                            ? CompletableFuture.completedFuture(pair.getValue().apply(buildContext, toBuildIds))
+                            : FutureUtil.supplyAsync(() -> pair.getValue().apply(buildContext, toBuildIds), executor));
+                }
+            });
+            modelBuilder.getAsyncBuilders(idNamespace).forEach(pair -> {
+                Set<Object> toBuildIds = claim(pair.getKey(), ids);
+                if (!toBuildIds.isEmpty()) {
+                    schedule(pair.getKey(), toBuildIds, depth, () -> pair.getValue().apply(buildContext, toBuildIds).toCompletableFuture());
+                }
+            });
+        });
+        process(temp.toBuildingValues(), depth + 1);
+    }
+
+    /**
+     * 领取需要构造的id：上下文中未缓存、未记为不存在且本次构建中未被其他分支领取
+     */
+    private Set<Object> claim(Object valueNamespace, Set<Object> ids) {
+        Set<Object> requested = requestedIds.computeIfAbsent(valueNamespace, ns -> ConcurrentHashMap.newKeySet());
+        Map<Object, Object> cachedData = buildContext.getCachedData(valueNamespace);
+        Set<Object> absentIds = buildContext.getAbsentIds(valueNamespace);
+        Set<Object> toBuildIds = ids instanceof PrimitiveIdSet ? new PrimitiveIdSet(((PrimitiveIdSet) ids).isIntIds()) : new HashSet<>();
+        for (Object id : ids) {
+            if (!cachedData.containsKey(id) && !absentIds.contains(id) && requested.add(id)) {
+                toBuildIds.add(id);
+            }
+        }
+        return toBuildIds;
+    }
+
+    private void schedule(Object valueNamespace, Set<Object> toBuildIds, int depth, Supplier<CompletableFuture<Map<Object, Object>>> builder) {
+        if (buildContext.remainingNanos() <= 0) {
+            buildContext.markTimedOut(valueNamespace);
+            return;
+        }
+        pending.incrementAndGet();
+        CompletableFuture<Map<Object, Object>> future;
+        try {
+            future = builder.get();
+        } catch (Throwable e) {
+            future = FutureUtil.failed(e);
+        }
+        CompletableFuture<Map<Object, Object>> call = future;
+        inFlight.put(call, valueNamespace);
+        if (done.isDone()) {
+            // 构建已结束，expire或fail可能未看到这次调用
+            call.cancel(true);
+        }
+        BiConsumer<Map<Object, Object>, Throwable> downstream = (values, e) -> {
+            inFlight.remove(call);
+            try {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause != null && !(cause instanceof BuildTimeoutException)) {
+                    fail(cause);
+                    return;
+                }
+                synchronized (lock) {
+                    // 已到期或失败时丢弃结果，不再修改上下文
+                    if (done.isDone()) {
+                        return;
+                    }
+                    if (cause != null) {
+                        buildContext.markTimedOut(valueNamespace);
+                        return;
+                    }
+                    StoreUtil.markAbsent(valueNamespace, toBuildIds, values, buildContext);
+                    if (values != null && !values.isEmpty()) {
+                        buildContext.getCachedData(valueNamespace).putAll(values);
+                    }
+                }
+                if (values != null && !values.isEmpty()) {
+                    process(values.values(), depth + 1);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                finish();
+            }
+        };
+        if (executor == null || future.isDone()) {
+            future.whenComplete(downstream);
+        } else {
+            future.whenCompleteAsync(downstream, executor);
+        }
+    }
+
+    /**
+     * 到期：取消未完成的构造器调用并标记超时，以已构造的数据结束构建
+     */
+    private void expire() {
+        Map<CompletableFuture<?>, Object> calls;
+        synchronized (lock) {
+            if (done.isDone()) {
+                return;
+            }
+            calls = new HashMap<>(inFlight);
+            calls.values().forEach(buildContext::markTimedOut);
+            done.complete(null);
+        }
+        calls.keySet().forEach(call -> call.cancel(true));
+    }
+
+    /**
+     * 失败：以异常结束构建并取消未完成的构造器调用
+     */
+    private void fail(Throwable e) {
+        synchronized (lock) {
+            if (!done.completeExceptionally(e)) {
+                return;
+            }
+        }
+        inFlight.keySet().forEach(call -> call.cancel(true));
+    }
+
+    private void finish() {
+        if (pending.decrementAndGet() == 0) {
+            done.complete(null);
+        }
+    }
+}
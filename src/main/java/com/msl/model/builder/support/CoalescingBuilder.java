@@ -0,0 +1,286 @@
+package com.msl.model.builder.support;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.msl.model.utils.FutureUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 跨请求合并的构造器
+ * <p>
+ * 在一个时间窗口（最长等待时间/最多id数）内收集不同构建（不同上下文）对同一构造器的调用，
+ * 合并成一次调用，再把结果按各自的id拆分返回。只适用于与上下文无关的构造器，
+ * 直接以{@code buildValue(User.class, coalescing)}或{@code buildValueAsync(User.class, coalescing::applyAsync)}注册
+ *
+ * <pre>
+ * CoalescingBuilder&lt;Integer, User&gt; users = CoalescingBuilder.newBuilder(userDao::getUsers)
+ *         .maxDelay(5, TimeUnit.MILLISECONDS)
+ *         .maxBatch(500)
+ *         .build();
+ * modelBuilder.buildValue(User.class, users);
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/16
+ * Time 14:30
+ */
+public class CoalescingBuilder<K, V> implements Function<Collection<K>, Map<K, V>> {
+    /**
+     * 默认执行超时批次的线程池，线程数与等待队列均有上限，满时该批次以{@link RejectedExecutionException}失败
+     */
+    private static final ExecutorService DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    private final Function<? super Collection<K>, ? extends Map<K, ? extends V>> delegate;
+    private final long maxDelayNanos;
+    private final int maxBatch;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Object lock = new Object();
+    /**
+     * 当前收集中的批次
+     */
+    private Batch current;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder calls = new LongAdder();
+
+    private CoalescingBuilder(Builder<K, V> builder) {
+        this.delegate = builder.delegate;
+        this.maxDelayNanos = builder.maxDelayNanos;
+        this.maxBatch = builder.maxBatch;
+        this.scheduler = builder.scheduler;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * 创建合并构造器
+     *
+     * @param delegate 实际的构造器
+     * @param <K>      id类型
+     * @param <V>      value类型
+     * @return 合并构造器的构建者
+     */
+    public static <K, V> Builder<K, V> newBuilder(Function<? super Collection<K>, ? extends Map<K, ? extends V>> delegate) {
+        return new Builder<>(delegate);
+    }
+
+    /**
+     * 同步调用，等待所在批次的合并调用完成
+     *
+     * @param ids id集合
+     * @return 这些id对应的数据
+     */
+    @Override
+    public Map<K, V> apply(Collection<K> ids) {
+        return FutureUtil.join(applyAsync(ids));
+    }
+
+    /**
+     * 异步调用，加入当前批次
+     *
+     * @param ids id集合
+     * @return 所在批次的合并调用完成时返回这些id对应的数据
+     */
+    public CompletableFuture<Map<K, V>> applyAsync(Collection<K> ids) {
+        requests.increment();
+        CompletableFuture<Map<K, V>> future = new CompletableFuture<>();
+        if (ids.isEmpty()) {
+            future.complete(new HashMap<>());
+            return future;
+        }
+        Batch full = null;
+        synchronized (lock) {
+            if (current == null) {
+                Batch batch = new Batch();
+                try {
+                    schedule(() -> {
+                        if (detach(batch)) {
+                            execute(batch);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                    return future;
+                }
+                current = batch;
+            }
+            current.add(ids, future);
+            if (current.ids.size() >= maxBatch) {
+                full = current;
+                current = null;
+            }
+        }
+        if (full != null && full.flushed.compareAndSet(false, true)) {
+            full.call();
+        }
+        return future;
+    }
+
+    /**
+     * 批次计时，未指定调度器时使用{@link FutureUtil}共享的定时线程
+     */
+    private void schedule(Runnable flush) {
+        if (scheduler == null) {
+            FutureUtil.schedule(flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            scheduler.schedule(flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 在线程池中执行超时批次，线程池拒绝时批次内的调用以该异常结束，不会一直等待
+     */
+    private void execute(Batch batch) {
+        try {
+            executor.execute(batch::call);
+        } catch (RejectedExecutionException e) {
+            batch.waiters.forEach(waiter -> waiter.future.completeExceptionally(e));
+        }
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1024),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("coalescing-builder-%d").build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private boolean detach(Batch batch) {
+        synchronized (lock) {
+            if (current == batch) {
+                current = null;
+            }
+        }
+        return batch.flushed.compareAndSet(false, true);
+    }
+
+    /**
+     * @return 收到的调用次数
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return 实际对构造器的调用次数
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    private final class Batch {
+        private final Set<K> ids = new LinkedHashSet<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+        private final AtomicBoolean flushed = new AtomicBoolean();
+
+        private void add(Collection<K> ids, CompletableFuture<Map<K, V>> future) {
+            this.ids.addAll(ids);
+            waiters.add(new Waiter(ids, future));
+        }
+
+        private void call() {
+            calls.increment();
+            Map<K, ? extends V> values;
+            try {
+                values = delegate.apply(ids);
+            } catch (Throwable e) {
+                waiters.forEach(waiter -> waiter.future.completeExceptionally(e));
+                return;
+            }
+            for (Waiter waiter : waiters) {
+                Map<K, V> slice = new HashMap<>(waiter.ids.size());
+                if (values != null) {
+                    for (K id : waiter.ids) {
+                        V value = values.get(id);
+                        if (value != null) {
+                            slice.put(id, value);
+                        }
+                    }
+                }
+                waiter.future.complete(slice);
+            }
+        }
+    }
+
+    private final class Waiter {
+        private final Collection<K> ids;
+        private final CompletableFuture<Map<K, V>> future;
+
+        private Waiter(Collection<K> ids, CompletableFuture<Map<K, V>> future) {
+            this.ids = ids;
+            this.future = future;
+        }
+    }
+
+    public static final class Builder<K, V> {
+        private final Function<? super Collection<K>, ? extends Map<K, ? extends V>> delegate;
+        private long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(2);
+        private int maxBatch = 500;
+        private ScheduledExecutorService scheduler;
+        private Executor executor = DEFAULT_EXECUTOR;
+
+        private Builder(Function<? super Collection<K>, ? extends Map<K, ? extends V>> delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * 一个批次从第一次调用开始最长等待时间，默认2ms
+         */
+        public Builder<K, V> maxDelay(long maxDelay, TimeUnit unit) {
+            if (maxDelay <= 0) {
+                throw new IllegalArgumentException("maxDelay must be positive");
+            }
+            this.maxDelayNanos = unit.toNanos(maxDelay);
+            return this;
+        }
+
+        /**
+         * 一个批次最多的id数，达到后立即在触发线程上调用，默认500；单次调用的id数超过时该批次会超出此值
+         */
+        public Builder<K, V> maxBatch(int maxBatch) {
+            if (maxBatch <= 0) {
+                throw new IllegalArgumentException("maxBatch must be positive");
+            }
+            this.maxBatch = maxBatch;
+            return this;
+        }
+
+        /**
+         * 批次计时使用的调度线程池，默认使用{@link FutureUtil}共享的定时线程
+         */
+        public Builder<K, V> scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * 超时批次执行合并调用的线程池，默认共享的有界守护线程池（线程数为CPU核数，队列1024）；拒绝执行时该批次的调用以{@link RejectedExecutionException}失败
+         */
+        public Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public CoalescingBuilder<K, V> build() {
+            return new CoalescingBuilder<>(this);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.msl.model.builder.support;
+
+import com.msl.model.utils.FutureUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 进行中的构造调用登记（single-flight）
+ * <p>
+ * 以(valueNamespace, id)登记正在获取的id，并发构建需要同一个id时等待已有调用的结果，不再重复调用构造器；
+ * 已有调用失败（异常、超时、中断）时只有它自己失败，等待的构建重新领取这些id并自行调用构造器。
+ * 只适用于与上下文无关的构造器，包装后注册即可：{@code buildValue(User.class, registry.wrap(User.class, userDao::getUsers))}
+ *
+ * @author wanglq
+ * Date 2022/11/17
+ * Time 10:20
+ */
+public class InFlightRegistry {
+    private static final InFlightRegistry SHARED = new InFlightRegistry();
+    /**
+     * 获取id的调用失败，等待者需重新领取
+     */
+    private static final Object RELEASED = new Object();
+
+    /**
+     * {(valueNamespace, id), 获取结果，id不存在时为null，调用失败时为RELEASED}
+     */
+    private final ConcurrentMap<NamespacedId, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final ConcurrentMap<Object, LongAdder[]> namespaceCounters = new ConcurrentHashMap<>();
+
+    /**
+     * @return 进程内共享的登记
+     */
+    public static InFlightRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * 包装同步构造器：先调用本次领取到的id，再等待其他构建正在获取的id
+     *
+     * @param valueNamespace 构造结果的命名空间
+     * @param valueBuilder   构造器
+     * @param <K>            id类型
+     * @param <V>            value类型
+     * @return 包装后的构造器
+     */
+    public <K, V> Function<Collection<K>, Map<K, V>> wrap(Object valueNamespace,
+                                                          Function<? super Collection<K>, ? extends Map<K, ? extends V>> valueBuilder) {
+        return ids -> {
+            Map<K, V> values = new HashMap<>(ids.size());
+            Collection<K> pending = ids;
+            for (boolean retry = false; !pending.isEmpty(); retry = true) {
+                Claim<K> claim = claim(valueNamespace, pending, retry);
+                if (!claim.owned.isEmpty()) {
+                    Map<K, ? extends V> owned;
+                    try {
+                        owned = valueBuilder.apply(claim.owned);
+                    } catch (Throwable e) {
+                        claim.release();
+                        throw e;
+                    }
+                    claim.complete(owned);
+                }
+                pending = claim.collect(values);
+            }
+            return values;
+        };
+    }
+
+    /**
+     * 包装异步构造器，用于buildValueAsync
+     *
+     * @param valueNamespace 构造结果的命名空间
+     * @param valueBuilder   构造器
+     * @param <K>            id类型
+     * @param <V>            value类型
+     * @return 包装后的构造器
+     */
+    public <K, V> Function<Collection<K>, CompletableFuture<Map<K, V>>> wrapAsync(
+            Object valueNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ? extends V>>> valueBuilder) {
+        return ids -> buildAsync(valueNamespace, valueBuilder, ids, false);
+    }
+
+    private <K, V> CompletableFuture<Map<K, V>> buildAsync(
+            Object valueNamespace, Function<? super Collection<K>, ? extends CompletionStage<? extends Map<K, ? extends V>>> valueBuilder,
+            Collection<K> ids, boolean retry) {
+        Claim<K> claim = claim(valueNamespace, ids, retry);
+        CompletableFuture<?> owned;
+        if (claim.owned.isEmpty()) {
+            owned = CompletableFuture.completedFuture(null);
+        } else {
+            CompletionStage<? extends Map<K, ? extends V>> stage;
+            try {
+                stage = valueBuilder.apply(claim.owned);
+            } catch (Throwable e) {
+                claim.release();
+                return FutureUtil.failed(e);
+            }
+            owned = stage.toCompletableFuture().whenComplete((values, e) -> {
+                if (e != null) {
+                    claim.release();
+                } else {
+                    claim.complete(values);
+                }
+            });
+        }
+        return owned.thenCompose(ignored -> CompletableFuture.allOf(claim.futures.values().toArray(new CompletableFuture[0])))
+                .thenCompose(ignored -> {
+                    Map<K, V> values = new HashMap<>(ids.size());
+                    List<K> released = claim.collect(values);
+                    if (released.isEmpty()) {
+                        return CompletableFuture.completedFuture(values);
+                    }
+                    return this.<K, V>buildAsync(valueNamespace, valueBuilder, released, true).thenApply(more -> {
+                        values.putAll(more);
+                        return values;
+                    });
+                });
+    }
+
+    /**
+     * 领取id，重新领取其他调用释放的id时不重复计数
+     */
+    private <K> Claim<K> claim(Object valueNamespace, Collection<K> ids, boolean retry) {
+        Claim<K> claim = new Claim<>(valueNamespace, ids.size());
+        LongAdder[] counters = namespaceCounters.computeIfAbsent(valueNamespace, ns -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        for (K id : ids) {
+            NamespacedId key = new NamespacedId(valueNamespace, id);
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                claim.owned.add(id);
+                claim.futures.put(id, future);
+            } else {
+                claim.futures.put(id, existing);
+                if (!retry) {
+                    deduplicated.increment();
+                    counters[1].increment();
+                }
+            }
+        }
+        if (!retry) {
+            requested.add(ids.size());
+            counters[0].add(ids.size());
+        }
+        return claim;
+    }
+
+    /**
+     * @return 请求的id总数
+     */
+    public long getRequestedCount() {
+        return requested.sum();
+    }
+
+    /**
+     * @return 等待其他调用结果、省去的id总数
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * @param valueNamespace 命名空间
+     * @return 该命名空间请求的id数
+     */
+    public long getRequestedCount(Object valueNamespace) {
+        LongAdder[] counters = namespaceCounters.get(valueNamespace);
+        return counters == null ? 0 : counters[0].sum();
+    }
+
+    /**
+     * @param valueNamespace 命名空间
+     * @return 该命名空间省去的id数
+     */
+    public long getDeduplicatedCount(Object valueNamespace) {
+        LongAdder[] counters = namespaceCounters.get(valueNamespace);
+        return counters == null ? 0 : counters[1].sum();
+    }
+
+    /**
+     * 一次调用领取的id
+     */
+    private final class Claim<K> {
+        private final Object valueNamespace;
+        /**
+         * 由本次调用获取的id
+         */
+        private final List<K> owned;
+        /**
+         * 所有id的获取结果
+         */
+        private final Map<K, CompletableFuture<Object>> futures;
+
+        private Claim(Object valueNamespace, int size) {
+            this.valueNamespace = valueNamespace;
+            this.owned = new ArrayList<>(size);
+            this.futures = new HashMap<>(size);
+        }
+
+        private void complete(Map<K, ?> values) {
+            for (K id : owned) {
+                CompletableFuture<Object> future = futures.get(id);
+                inFlight.remove(new NamespacedId(valueNamespace, id), future);
+                future.complete(values == null ? null : values.get(id));
+            }
+        }
+
+        /**
+         * 本次调用失败：释放领取的id，异常只由本次调用抛出，等待者重新领取
+         */
+        private void release() {
+            for (K id : owned) {
+                CompletableFuture<Object> future = futures.get(id);
+                inFlight.remove(new NamespacedId(valueNamespace, id), future);
+                future.complete(RELEASED);
+            }
+        }
+
+        /**
+         * 等待所有id的结果放入values
+         *
+         * @return 其他调用失败后释放、需要重新领取的id
+         */
+        @SuppressWarnings("unchecked")
+        private <V> List<K> collect(Map<K, V> values) {
+            List<K> released = new ArrayList<>();
+            futures.forEach((id, future) -> {
+                Object value = future.join();
+                if (value == RELEASED) {
+                    released.add(id);
+                } else if (value != null) {
+                    values.put(id, (V) value);
+                }
+            });
+            return released;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.msl.model.builder.support;
+
+import java.util.Objects;
+
+/**
+ * 命名空间（或作用域）与id组成的键，供跨构建共享的缓存、登记表使用
+ *
+ * @author wanglq
+ * Date 2022/11/18
+ * Time 10:20
+ */
+final class NamespacedId {
+    private final Object namespace;
+    private final Object id;
+
+    NamespacedId(Object namespace, Object id) {
+        this.namespace = namespace;
+        this.id = id;
+    }
+
+    Object getNamespace() {
+        return namespace;
+    }
+
+    Object getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NamespacedId)) {
+            return false;
+        }
+        NamespacedId key = (NamespacedId) o;
+        return Objects.equals(namespace, key.namespace) && Objects.equals(id, key.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(namespace) + Objects.hashCode(id);
+    }
+}
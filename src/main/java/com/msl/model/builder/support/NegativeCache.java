@@ -0,0 +1,182 @@
+package com.msl.model.builder.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 跨请求共享的不存在id缓存
+ * <p>
+ * 记录构造器请求过但未返回数据的(valueNamespace, id)，在过期前不再交给构造器。
+ * 前置一个布隆过滤器，绝大多数存在的id只需一次过滤器判断，不必查询精确缓存；
+ * 过滤器元素数超过容量时按精确缓存中的记录重建
+ *
+ * <pre>
+ * NegativeCache negativeCache = new NegativeCache(100000, 10, TimeUnit.MINUTES);
+ * modelBuilder.buildValue(User.class, negativeCache.wrap(User.class, userDao::getUsers));
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/18
+ * Time 11:05
+ */
+public class NegativeCache {
+    private static final double FPP = 0.01;
+    /**
+     * 命名空间与id分别写入，整数id按long写入，避免只用32位hashCode时的额外碰撞
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    private static final Funnel<NamespacedId> KEY_FUNNEL = (key, into) -> {
+        putObject(key.getNamespace(), into);
+        putObject(key.getId(), into);
+    };
+
+    /**
+     * 过滤器容量为精确缓存上限的两倍，重建后至少再写入一倍记录才会再次重建
+     */
+    private final long filterCapacity;
+    private final Cache<NamespacedId, Boolean> absent;
+    private volatile BloomFilter<NamespacedId> filter;
+    private final LongAdder filtered = new LongAdder();
+
+    /**
+     * @param expectedInsertions 预期记录数
+     * @param ttl                记录的过期时间
+     * @param unit               时间单位
+     */
+    public NegativeCache(long expectedInsertions, long ttl, TimeUnit unit) {
+        this.filterCapacity = expectedInsertions * 2;
+        this.absent = CacheBuilder.newBuilder().maximumSize(expectedInsertions).expireAfterWrite(ttl, unit).build();
+        this.filter = newFilter();
+    }
+
+    /**
+     * 包装构造器：过滤已知不存在的id，并记录本次未返回数据的id
+     *
+     * @param valueNamespace 构造结果的命名空间
+     * @param valueBuilder   构造器
+     * @param <K>            id类型
+     * @param <V>            value类型
+     * @return 包装后的构造器
+     */
+    public <K, V> Function<Collection<K>, Map<K, V>> wrap(Object valueNamespace,
+                                                          Function<? super Collection<K>, ? extends Map<K, ? extends V>> valueBuilder) {
+        return ids -> {
+            List<K> toBuildIds = new ArrayList<>(ids.size());
+            for (K id : ids) {
+                if (isAbsent(valueNamespace, id)) {
+                    filtered.increment();
+                } else {
+                    toBuildIds.add(id);
+                }
+            }
+            Map<K, V> values = new HashMap<>(toBuildIds.size());
+            if (toBuildIds.isEmpty()) {
+                return values;
+            }
+            Map<K, ? extends V> built = valueBuilder.apply(toBuildIds);
+            if (built != null) {
+                values.putAll(built);
+            }
+            List<K> missing = new ArrayList<>();
+            for (K id : toBuildIds) {
+                if (values.get(id) == null) {
+                    missing.add(id);
+                }
+            }
+            markAbsent(valueNamespace, missing);
+            return values;
+        };
+    }
+
+    /**
+     * @param valueNamespace 命名空间
+     * @param id             id
+     * @return 是否已记为不存在
+     */
+    public boolean isAbsent(Object valueNamespace, Object id) {
+        NamespacedId key = new NamespacedId(valueNamespace, id);
+        return filter.mightContain(key) && absent.getIfPresent(key) != null;
+    }
+
+    /**
+     * 记录命名空间内不存在的id
+     *
+     * @param valueNamespace 命名空间
+     * @param ids            不存在的id
+     */
+    public void markAbsent(Object valueNamespace, Collection<?> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        // 与重建在同一把锁下写入，重建时不会丢失写入旧过滤器的记录
+        synchronized (this) {
+            for (Object id : ids) {
+                NamespacedId key = new NamespacedId(valueNamespace, id);
+                absent.put(key, Boolean.TRUE);
+                filter.put(key);
+            }
+            if (filter.approximateElementCount() > filterCapacity) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * 清除记录（如数据被重新创建）
+     *
+     * @param valueNamespace 命名空间
+     * @param id             id
+     */
+    public void invalidate(Object valueNamespace, Object id) {
+        absent.invalidate(new NamespacedId(valueNamespace, id));
+    }
+
+    /**
+     * @return 因已知不存在而未交给构造器的id数
+     */
+    public long getFilteredCount() {
+        return filtered.sum();
+    }
+
+    /**
+     * 过滤器中已过期、被淘汰的记录无法删除，元素数超过容量时按当前记录重建；需持有写入锁
+     */
+    private void rebuild() {
+        BloomFilter<NamespacedId> rebuilt = newFilter();
+        absent.asMap().keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private static void putObject(Object value, PrimitiveSink into) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            into.putLong(((Number) value).longValue());
+        } else if (value instanceof Class) {
+            into.putUnencodedChars(((Class<?>) value).getName());
+        } else if (value instanceof CharSequence) {
+            into.putUnencodedChars((CharSequence) value);
+        } else {
+            into.putInt(Objects.hashCode(value));
+        }
+        // 分隔符，避免前后两部分拼接后相同
+        into.putByte((byte) 0);
+    }
+
+    @SuppressWarnings("UnstableApiUsage")
+    private BloomFilter<NamespacedId> newFilter() {
+        return BloomFilter.create(KEY_FUNNEL, filterCapacity, FPP);
+    }
+}
@@ -0,0 +1,192 @@
+package com.msl.model.builder.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.msl.model.builder.context.BuildContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 跨请求共享的构造结果缓存
+ * <p>
+ * 包装构造器：先查进程内缓存，只把未命中的id交给实际的构造器，结果回填缓存。
+ * 每个命名空间一个独立的缓存，可分别设置最大条数、过期时间与淘汰策略；
+ * 缓存key可以带上下文中的属性（如所属公司），不同租户的数据互不可见
+ *
+ * <pre>
+ * SharedValueCache cache = new SharedValueCache()
+ *         .namespace(Category.class, 1000, 1, TimeUnit.HOURS);
+ * modelBuilder.buildValue(User.class, cache.wrap(User.class, userDao::getUsers));
+ * modelBuilder.&lt;Integer, CompanyBuilderContext&gt;buildValue(User.class,
+ *         cache.wrap("booksOfUser", (context, ids) -&gt; listBookByUser(ids, context.getCompanyNo()),
+ *                 CompanyBuilderContext::getCompanyNo), "booksOfUser");
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/17
+ * Time 15:10
+ */
+public class SharedValueCache {
+    /**
+     * 未单独设置的命名空间使用的缓存配置
+     */
+    private final Supplier<CacheBuilder<Object, Object>> defaultSpec;
+    /**
+     * {valueNamespace, cache}
+     */
+    private final ConcurrentMap<Object, Cache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 默认每个命名空间最多10000条，写入1分钟后过期
+     */
+    public SharedValueCache() {
+        this(10000, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @param maximumSize 默认每个命名空间最多条数，超出时淘汰最近最少使用的
+     * @param ttl         默认写入后的过期时间
+     * @param unit        时间单位
+     */
+    public SharedValueCache(long maximumSize, long ttl, TimeUnit unit) {
+        this.defaultSpec = () -> CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, unit);
+    }
+
+    /**
+     * 单独设置命名空间的缓存：最多条数、写入后过期时间
+     *
+     * @param valueNamespace 命名空间
+     * @param maximumSize    最多条数
+     * @param ttl            写入后的过期时间
+     * @param unit           时间单位
+     * @return 当前缓存
+     */
+    public SharedValueCache namespace(Object valueNamespace, long maximumSize, long ttl, TimeUnit unit) {
+        return namespace(valueNamespace, CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl, unit));
+    }
+
+    /**
+     * 单独设置命名空间的缓存，可使用访问后过期、按权重淘汰、软引用等策略，统计会自动开启
+     *
+     * @param valueNamespace 命名空间
+     * @param cacheBuilder   缓存配置
+     * @return 当前缓存
+     */
+    public SharedValueCache namespace(Object valueNamespace, CacheBuilder<Object, Object> cacheBuilder) {
+        caches.put(valueNamespace, cacheBuilder.recordStats().build());
+        return this;
+    }
+
+    /**
+     * 包装与上下文无关的构造器
+     *
+     * @param valueNamespace 构造结果的命名空间
+     * @param valueBuilder   构造器
+     * @param <K>            id类型
+     * @param <V>            value类型
+     * @return 包装后的构造器
+     */
+    public <K, V> Function<Collection<K>, Map<K, V>> wrap(Object valueNamespace,
+                                                          Function<? super Collection<K>, ? extends Map<K, ? extends V>> valueBuilder) {
+        BiFunction<BuildContext, Collection<K>, Map<K, V>> builder = wrap(valueNamespace,
+                (BuildContext context, Collection<K> ids) -> valueBuilder.apply(ids), context -> null);
+        return ids -> builder.apply(null, ids);
+    }
+
+    /**
+     * 包装依赖上下文的构造器，缓存key带上下文属性
+     *
+     * @param valueNamespace 构造结果的命名空间
+     * @param valueBuilder   构造器
+     * @param scope          从上下文中取缓存范围（如租户），为null时不区分
+     * @param <K>            id类型
+     * @param <V>            value类型
+     * @param <B>            上下文类型
+     * @return 包装后的构造器
+     */
+    public <K, V, B extends BuildContext> BiFunction<B, Collection<K>, Map<K, V>> wrap(
+            Object valueNamespace, BiFunction<B, ? super Collection<K>, ? extends Map<K, ? extends V>> valueBuilder,
+            Function<? super B, ?> scope) {
+        return (context, ids) -> {
+            Cache<Object, Object> cache = getCache(valueNamespace);
+            Object scopeKey = context == null ? null : scope.apply(context);
+            Map<K, V> values = new HashMap<>(ids.size());
+            List<K> misses = new ArrayList<>();
+            for (K id : ids) {
+                @SuppressWarnings("unchecked")
+                V value = (V) cache.getIfPresent(key(scopeKey, id));
+                if (value != null) {
+                    values.put(id, value);
+                } else {
+                    misses.add(id);
+                }
+            }
+            if (misses.isEmpty()) {
+                return values;
+            }
+            Map<K, ? extends V> built = valueBuilder.apply(context, misses);
+            if (built != null) {
+                built.forEach((id, value) -> {
+                    if (value != null) {
+                        cache.put(key(scopeKey, id), value);
+                        values.put(id, value);
+                    }
+                });
+            }
+            return values;
+        };
+    }
+
+    /**
+     * @param valueNamespace 命名空间
+     * @return 该命名空间的命中、未命中、淘汰统计
+     */
+    public CacheStats stats(Object valueNamespace) {
+        return getCache(valueNamespace).stats();
+    }
+
+    /**
+     * 清空命名空间的缓存
+     *
+     * @param valueNamespace 命名空间
+     */
+    public void invalidate(Object valueNamespace) {
+        Cache<Object, Object> cache = caches.get(valueNamespace);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 清除命名空间中指定id的缓存（所有范围下的该id需要分别按范围清除）
+     *
+     * @param valueNamespace 命名空间
+     * @param scope          缓存范围，不区分时为null
+     * @param id             id
+     */
+    public void invalidate(Object valueNamespace, Object scope, Object id) {
+        Cache<Object, Object> cache = caches.get(valueNamespace);
+        if (cache != null) {
+            cache.invalidate(key(scope, id));
+        }
+    }
+
+    private Cache<Object, Object> getCache(Object valueNamespace) {
+        return caches.computeIfAbsent(valueNamespace, ns -> defaultSpec.get().recordStats().build());
+    }
+
+    private static Object key(Object scope, Object id) {
+        return scope == null ? id : new NamespacedId(scope, id);
+    }
+}
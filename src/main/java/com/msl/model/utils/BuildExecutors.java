@@ -0,0 +1,65 @@
+package com.msl.model.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 构造器执行线程池
+ * <p>
+ * 工程以Java 8编译，虚拟线程（Java 21+）通过方法句柄在运行时获取，低版本运行时不可用
+ *
+ * @author wanglq
+ * Date 2022/11/14
+ * Time 15:20
+ */
+public class BuildExecutors {
+    private static final MethodHandle VIRTUAL_THREAD_PER_TASK = findVirtualThreadPerTask();
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     *
+     * @return 是否支持
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_PER_TASK != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的线程池，适合阻塞的构造器（如JDBC）大量并发执行
+     *
+     * @return 线程池
+     * @throws UnsupportedOperationException 运行时低于Java 21
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        if (VIRTUAL_THREAD_PER_TASK == null) {
+            throw new UnsupportedOperationException("virtual threads require Java 21+, current:" + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_PER_TASK.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("fail to create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * 优先使用虚拟线程，不支持时退回到指定大小的平台线程池
+     *
+     * @param platformThreads 不支持虚拟线程时的平台线程数
+     * @return 线程池
+     */
+    public static ExecutorService virtualThreadPerTaskOrFixed(int platformThreads) {
+        return isVirtualThreadSupported() ? virtualThreadPerTask() : Executors.newFixedThreadPool(platformThreads);
+    }
+
+    private static MethodHandle findVirtualThreadPerTask() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.msl.model.utils;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 类文件头：只读取常量池、访问标志、父类与接口，不加载类
+ *
+ * @author wanglq
+ * Date 2022/11/28
+ * Time 17:10
+ */
+final class ClassHeader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    final String name;
+    /**
+     * 父类全名，java.lang.Object为null
+     */
+    final String superName;
+    final String[] interfaces;
+    final int access;
+
+    ClassHeader(String name, String superName, String[] interfaces, int access) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.access = access;
+    }
+
+    boolean isConcrete() {
+        return (access & (ACC_INTERFACE | ACC_ABSTRACT)) == 0;
+    }
+
+    /**
+     * 读取类文件头，读到接口列表为止
+     *
+     * @param in 类文件
+     * @return 类文件头
+     * @throws IOException 不是类文件时抛出
+     */
+    static ClassHeader read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a class file");
+        }
+        // minor_version, major_version
+        data.readInt();
+        int count = data.readUnsignedShort();
+        String[] utf8 = new String[count];
+        int[] classNames = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = data.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = data.readUTF();
+                    break;
+                case 7:
+                    classNames[i] = data.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    data.skipBytes(2);
+                    break;
+                case 15:
+                    data.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    data.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    data.skipBytes(8);
+                    // long与double占两个位置
+                    i++;
+                    break;
+                default:
+                    throw new IOException("unknown constant pool tag " + tag);
+            }
+        }
+        int access = data.readUnsignedShort();
+        String name = className(utf8, classNames, data.readUnsignedShort());
+        String superName = className(utf8, classNames, data.readUnsignedShort());
+        String[] interfaces = new String[data.readUnsignedShort()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = className(utf8, classNames, data.readUnsignedShort());
+        }
+        return new ClassHeader(name, superName, interfaces, access);
+    }
+
+    private static String className(String[] utf8, int[] classNames, int index) {
+        return index == 0 ? null : utf8[classNames[index]].replace('/', '.');
+    }
+}
@@ -1,16 +1,38 @@
 package com.msl.model.utils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 
 
 /**
@@ -19,6 +41,11 @@ import java.util.jar.JarFile;
  * @CopyRight
  */
 public class ClassScanner {
+    private static final Logger log = LoggerFactory.getLogger(ClassScanner.class);
+    /**
+     * 没有本地文件、不写入索引的类文件的修改时间
+     */
+    private static final long UNINDEXED = -1;
     private Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
     /**
      * 类文件过滤器,只扫描一级类
@@ -32,6 +59,10 @@ public class ClassScanner {
      * 包路径根路劲
      */
     private String bashPath;
+    /**
+     * 扫描索引文件，为空时不使用索引
+     */
+    private File indexFile;
 
     public ClassScanner() {
         javaClassFilter = new FilenameFilter() {
@@ -41,7 +72,9 @@ public class ClassScanner {
                 return isNotInnerClass(name);
             }
         };
-        bashPath = getRealFilePath(Objects.requireNonNull(Thread.currentThread().getContextClassLoader().getResource("")));
+        // 只有jar的类路径中没有根目录
+        URL root = Thread.currentThread().getContextClassLoader().getResource("");
+        bashPath = root == null ? null : getRealFilePath(root);
     }
 
     /**
@@ -78,6 +111,289 @@ public class ClassScanner {
         return classes.size();
     }
 
+    /**
+     * 设置扫描索引文件：{@link #scanSubtypes}按类文件（jar中的类按jar）的修改时间复用索引中的类文件头，扫描后写回索引
+     *
+     * @param indexFile 索引文件
+     * @return this
+     */
+    public ClassScanner index(File indexFile) {
+        this.indexFile = indexFile;
+        return this;
+    }
+
+    /**
+     * 只读取类文件头查找指定类型的非抽象子类，不加载（初始化）类；并行扫描各目录与jar
+     *
+     * @param packagePath 包路径
+     * @param recursive   是否扫描子包
+     * @param superType   父类型
+     * @return 子类全名，不含内部类
+     */
+    public Set<String> scanSubtypes(String packagePath, boolean recursive, Class<?> superType) {
+        long start = System.nanoTime();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<URL> roots;
+        try {
+            roots = Collections.list(classLoader.getResources(packagePath.replace('.', '/')));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Map<String, IndexEntry> index = readIndex();
+        List<JarFile> jars = new CopyOnWriteArrayList<>();
+        AtomicInteger parsed = new AtomicInteger();
+        List<IndexEntry> entries;
+        try {
+            entries = roots.parallelStream()
+                    .flatMap(url -> list(url, packagePath, recursive, jars).stream())
+                    .collect(Collectors.toList())
+                    .parallelStream()
+                    .map(source -> {
+                        IndexEntry cached = index.get(source.key);
+                        if (cached != null && cached.mtime == source.mtime) {
+                            return cached;
+                        }
+                        try {
+                            ClassHeader header = source.read();
+                            parsed.incrementAndGet();
+                            return new IndexEntry(source.key, source.mtime, header);
+                        } catch (UncheckedIOException e) {
+                            log.warn("fail to read class header {}, skipped.", source.key, e);
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } finally {
+            jars.forEach(ClassScanner::closeQuietly);
+        }
+
+        Map<String, ClassHeader> headers = new HashMap<>();
+        entries.forEach(e -> headers.put(e.header.name, e.header));
+        Map<String, Boolean> subtypes = new HashMap<>();
+        Set<String> result = new TreeSet<>();
+        for (IndexEntry entry : entries) {
+            ClassHeader header = entry.header;
+            if (header.isConcrete() && !header.name.equals(superType.getName())
+                    && isSubtype(header.name, superType.getName(), headers, subtypes, classLoader)) {
+                result.add(header.name);
+            }
+        }
+        if (parsed.get() > 0) {
+            entries.stream().filter(e -> e.mtime != UNINDEXED).forEach(e -> index.put(e.key, e));
+            writeIndex(index);
+        }
+        log.info("扫描包[{}]：{}个类文件，读取类文件头{}个，找到{}个{}的子类，耗时{}ms", packagePath, entries.size(), parsed.get(),
+                result.size(), superType.getSimpleName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private boolean isSubtype(String name, String superType, Map<String, ClassHeader> headers, Map<String, Boolean> subtypes,
+                              ClassLoader classLoader) {
+        if (name == null) {
+            return false;
+        }
+        if (name.equals(superType)) {
+            return true;
+        }
+        Boolean cached = subtypes.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        ClassHeader header = headers.get(name);
+        if (header == null && !name.startsWith("java.")) {
+            // 扫描范围之外的父类型，同样只读取类文件头
+            header = readHeader(classLoader, name);
+            headers.put(name, header);
+        }
+        boolean result = false;
+        if (header != null) {
+            result = isSubtype(header.superName, superType, headers, subtypes, classLoader);
+            for (int i = 0; !result && i < header.interfaces.length; i++) {
+                result = isSubtype(header.interfaces[i], superType, headers, subtypes, classLoader);
+            }
+        }
+        subtypes.put(name, result);
+        return result;
+    }
+
+    private ClassHeader readHeader(ClassLoader classLoader, String name) {
+        try (InputStream in = classLoader.getResourceAsStream(name.replace('.', '/') + CLASS_FILE_SUFFIX)) {
+            return in == null ? null : ClassHeader.read(in);
+        } catch (IOException e) {
+            log.warn("fail to read class header: {}", name, e);
+            return null;
+        }
+    }
+
+    /**
+     * 列出目录或jar中包内的类文件，不含内部类；无法读取的目录或jar记录日志后跳过
+     */
+    private List<ClassSource> list(URL url, String packagePath, boolean recursive, List<JarFile> jars) {
+        List<ClassSource> sources = new ArrayList<>();
+        try {
+            if ("file".equals(url.getProtocol())) {
+                listDir(new File(url.toURI()), recursive, sources);
+            } else if ("jar".equals(url.getProtocol())) {
+                JarURLConnection connection = (JarURLConnection) url.openConnection();
+                File file = localJarFile(connection);
+                JarFile jarFile;
+                String jarKey;
+                long mtime;
+                if (file != null) {
+                    jarFile = new JarFile(file);
+                    jarKey = file.getPath();
+                    mtime = file.lastModified();
+                } else {
+                    // 嵌套的jar（如Spring Boot的BOOT-INF/lib）没有对应的本地文件，由连接打开且不使用索引
+                    connection.setUseCaches(false);
+                    jarFile = connection.getJarFile();
+                    jarKey = connection.getJarFileURL().toString();
+                    mtime = UNINDEXED;
+                }
+                jars.add(jarFile);
+                String prefix = packagePath.replace('.', '/') + "/";
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.startsWith(prefix) || !name.endsWith(CLASS_FILE_SUFFIX) || !isNotInnerClass(name)
+                            || (!recursive && name.indexOf('/', prefix.length()) >= 0)) {
+                        continue;
+                    }
+                    sources.add(new ClassSource(jarKey + "!/" + name, mtime, () -> jarFile.getInputStream(entry)));
+                }
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            log.warn("fail to scan {}, skipped.", url, e);
+            return Collections.emptyList();
+        }
+        return sources;
+    }
+
+    /**
+     * @return jar对应的本地文件，不是本地文件时返回null
+     */
+    private static File localJarFile(JarURLConnection connection) {
+        URL jarFileUrl = connection.getJarFileURL();
+        if (!"file".equals(jarFileUrl.getProtocol())) {
+            return null;
+        }
+        try {
+            File file = new File(jarFileUrl.toURI());
+            return file.isFile() ? file : null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void listDir(File dir, boolean recursive, List<ClassSource> sources) {
+        File[] fs = dir.listFiles(javaClassFilter);
+        for (int i = 0; fs != null && i < fs.length; i++) {
+            File f = fs[i];
+            if (f.isDirectory()) {
+                if (recursive) {
+                    listDir(f, true, sources);
+                }
+            } else if (f.getName().endsWith(CLASS_FILE_SUFFIX)) {
+                sources.add(new ClassSource(f.getPath(), f.lastModified(), () -> new FileInputStream(f)));
+            }
+        }
+    }
+
+    /**
+     * 索引每行：类文件 \t 修改时间 \t 类名 \t 父类 \t 接口(逗号分隔) \t 访问标志
+     */
+    private Map<String, IndexEntry> readIndex() {
+        Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+        if (indexFile == null || !indexFile.isFile()) {
+            return index;
+        }
+        try {
+            for (String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 6) {
+                    continue;
+                }
+                String[] interfaces = fields[4].isEmpty() ? new String[0] : fields[4].split(",");
+                ClassHeader header = new ClassHeader(fields[2], fields[3].isEmpty() ? null : fields[3], interfaces,
+                        Integer.parseInt(fields[5]));
+                index.put(fields[0], new IndexEntry(fields[0], Long.parseLong(fields[1]), header));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("fail to read scan index {}, rescan.", indexFile, e);
+            index.clear();
+        }
+        return index;
+    }
+
+    private void writeIndex(Map<String, IndexEntry> index) {
+        if (indexFile == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(index.size());
+        for (IndexEntry e : index.values()) {
+            ClassHeader h = e.header;
+            lines.add(e.key + "\t" + e.mtime + "\t" + h.name + "\t" + (h.superName == null ? "" : h.superName) + "\t"
+                    + String.join(",", h.interfaces) + "\t" + h.access);
+        }
+        try {
+            File parent = indexFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            Path temp = Files.createTempFile(parent == null ? null : parent.toPath(), indexFile.getName(), ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("fail to write scan index {}", indexFile, e);
+        }
+    }
+
+    private static void closeQuietly(JarFile jarFile) {
+        try {
+            jarFile.close();
+        } catch (IOException e) {
+            log.warn("fail to close {}", jarFile.getName(), e);
+        }
+    }
+
+    private interface ClassFile {
+        InputStream open() throws IOException;
+    }
+
+    private static final class ClassSource {
+        final String key;
+        final long mtime;
+        final ClassFile file;
+
+        ClassSource(String key, long mtime, ClassFile file) {
+            this.key = key;
+            this.mtime = mtime;
+            this.file = file;
+        }
+
+        ClassHeader read() {
+            try (InputStream in = new BufferedInputStream(file.open())) {
+                return ClassHeader.read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("fail to read " + key, e);
+            }
+        }
+    }
+
+    private static final class IndexEntry {
+        final String key;
+        final long mtime;
+        final ClassHeader header;
+
+        IndexEntry(String key, long mtime, ClassHeader header) {
+            this.key = key;
+            this.mtime = mtime;
+            this.header = header;
+        }
+    }
+
     private String getRealFilePath(URL url) {
         String path = url.getPath();
         if (System.getProperty("file.separator").equals("\\")) {
@@ -0,0 +1,135 @@
+package com.msl.model.utils;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 以{@link ConcurrentHashMap}判断成员、以数组按写入顺序记录id的索引
+ * <p>
+ * 写入时先在成员集合中去重，新id在锁内追加到记录中；读取不加锁，迭代遍历当前水位线之前的记录，不会抛出并发修改异常。
+ * 不支持删除，null id被忽略
+ *
+ * @author wanglq
+ * Date 2022/11/23
+ * Time 10:20
+ */
+public class ConcurrentIdIndex extends AbstractSet<Object> implements IdIndex<Object> {
+    private static final int MIN_CAPACITY = 16;
+
+    private final Set<Object> members = ConcurrentHashMap.newKeySet();
+    /**
+     * 按写入顺序的id，只在锁内修改，扩容时替换为新数组
+     */
+    private volatile Object[] log = new Object[MIN_CAPACITY];
+    /**
+     * 已追加的id数，在写入数组元素之后更新
+     */
+    private volatile int size;
+
+    @Override
+    public boolean add(Object id) {
+        if (id == null || !members.add(id)) {
+            return false;
+        }
+        synchronized (this) {
+            append(new Object[]{id}, 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<?> ids) {
+        Object[] added = new Object[ids.size()];
+        int count = 0;
+        for (Object id : ids) {
+            if (id != null && members.add(id)) {
+                if (count == added.length) {
+                    added = Arrays.copyOf(added, Math.max(MIN_CAPACITY, count << 1));
+                }
+                added[count++] = id;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        synchronized (this) {
+            append(added, count);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object id) {
+        return id != null && members.contains(id);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int watermark() {
+        return size;
+    }
+
+    @Override
+    public Collection<Object> idsSince(int watermark) {
+        int end = size;
+        if (watermark >= end) {
+            return Collections.emptyList();
+        }
+        List<Object> ids = new ArrayList<>(end - watermark);
+        Object[] current = log;
+        for (int i = Math.max(0, watermark); i < end; i++) {
+            ids.add(current[i]);
+        }
+        return ids;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        int end = size;
+        Object[] current = log;
+        return new Iterator<Object>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Object next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                return current[next++];
+            }
+        };
+    }
+
+    private void append(Object[] ids, int count) {
+        Object[] current = log;
+        int newSize = size + count;
+        if (newSize > current.length) {
+            current = Arrays.copyOf(current, Math.max(newSize, current.length << 1));
+        }
+        System.arraycopy(ids, 0, current, size, count);
+        log = current;
+        size = newSize;
+    }
+}
@@ -0,0 +1,126 @@
+package com.msl.model.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author wanglq
+ * Date 2022/11/14
+ * Time 10:12
+ */
+public class FutureUtil {
+    private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+    /**
+     * 等待异步结果，异常时抛出原始异常而非{@link CompletionException}
+     *
+     * @param stage 异步结果
+     * @param <T>   结果类型
+     * @return 结果
+     */
+    public static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 以异常结束的异步结果
+     *
+     * @param e   异常
+     * @param <T> 结果类型
+     * @return 异步结果
+     */
+    public static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 在线程池中执行，与{@link CompletableFuture#supplyAsync(Supplier, Executor)}不同的是
+     * cancel(true)会中断正在执行的线程
+     *
+     * @param supplier 任务
+     * @param executor 线程池
+     * @param <T>      结果类型
+     * @return 异步结果
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        FutureTask<T> task = new FutureTask<T>(supplier::get) {
+            @Override
+            protected void done() {
+                try {
+                    future.complete(get());
+                } catch (CancellationException e) {
+                    future.cancel(false);
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        future.task = task;
+        try {
+            executor.execute(task);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 延迟执行，用于超时等轻量的定时动作
+     *
+     * @param action 动作
+     * @param delay  延迟
+     * @param unit   时间单位
+     * @return 可取消的定时任务
+     */
+    public static ScheduledFuture<?> schedule(Runnable action, long delay, TimeUnit unit) {
+        return TIMER.schedule(action, delay, unit);
+    }
+
+    private static ScheduledThreadPoolExecutor newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("build-timer").build());
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private static final class InterruptibleFuture<T> extends CompletableFuture<T> {
+        private volatile FutureTask<T> task;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            FutureTask<T> running = task;
+            if (running != null) {
+                running.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.msl.model.utils;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 可并发写入的id索引
+ * <p>
+ * 批量写入只做一次追加，成员判断为常数时间；按写入顺序记录id，
+ * 可通过水位线（{@link #watermark()}）查询某一时刻之后新写入的id
+ *
+ * @param <K> id类型
+ * @author wanglq
+ * Date 2022/11/23
+ * Time 10:20
+ */
+public interface IdIndex<K> extends Set<K> {
+    /**
+     * 当前水位线，即已写入的id数
+     *
+     * @return 水位线
+     */
+    int watermark();
+
+    /**
+     * 获取水位线之后写入的id
+     *
+     * @param watermark 之前获取的水位线
+     * @return 之后写入的id，按写入顺序
+     */
+    Collection<K> idsSince(int watermark);
+}
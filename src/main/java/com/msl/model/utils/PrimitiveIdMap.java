@@ -0,0 +1,379 @@
+package com.msl.model.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 以long为key开放寻址存储的Map
+ * <p>
+ * 以{@link Map}使用时接受任意整数类型的key，迭代时按声明装箱为Long或Integer；
+ * 可通过{@link #get(long)}、{@link #put(long, Object)}、{@link #containsKey(long)}免装箱访问。
+ * 不支持删除；非线程安全，并发使用{@link #concurrent(boolean)}
+ *
+ * @param <V> value类型
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 15:05
+ */
+public class PrimitiveIdMap<V> extends AbstractMap<Object, V> {
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * 迭代时key是否装箱为Integer
+     */
+    private final boolean intIds;
+    /**
+     * 0表示空槽，key为0时单独记录
+     */
+    private long[] keys;
+    private Object[] values;
+    private boolean hasZero;
+    private V zeroValue;
+    private int size;
+
+    public PrimitiveIdMap(boolean intIds) {
+        this(intIds, MIN_CAPACITY);
+    }
+
+    public PrimitiveIdMap(boolean intIds, int expectedSize) {
+        this.intIds = intIds;
+        int capacity = PrimitiveIds.capacity(expectedSize, MIN_CAPACITY);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * 线程安全的Map，迭代时遍历快照
+     *
+     * @param intIds 迭代时key是否装箱为Integer
+     * @param <V>    value类型
+     * @return Map
+     */
+    public static <V> PrimitiveIdMap<V> concurrent(boolean intIds) {
+        return new Concurrent<>(intIds);
+    }
+
+    public boolean isIntIds() {
+        return intIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            zeroValue = value;
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            return old;
+        }
+        int mask = keys.length - 1;
+        int i = PrimitiveIds.hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > PrimitiveIds.threshold(keys.length)) {
+            rehash();
+        }
+        return null;
+    }
+
+    @Override
+    public V get(Object key) {
+        return PrimitiveIds.isIntegral(key) ? get(((Number) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return PrimitiveIds.isIntegral(key) && containsKey(((Number) key).longValue());
+    }
+
+    @Override
+    public V put(Object key, V value) {
+        return put(PrimitiveIds.toLong(key), value);
+    }
+
+    @Override
+    public void putAll(Map<?, ? extends V> map) {
+        for (Map.Entry<?, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Object, V>>() {
+            @Override
+            public Iterator<Map.Entry<Object, V>> iterator() {
+                return new EntryIterator(snapshot());
+            }
+
+            @Override
+            public int size() {
+                return PrimitiveIdMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * 当前全部entry
+     */
+    Object[] snapshot() {
+        Object[] entries = new Object[size];
+        int n = 0;
+        if (hasZero) {
+            entries[n++] = entry(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                entries[n++] = entry(keys[i], values[i]);
+            }
+        }
+        return entries;
+    }
+
+    Map.Entry<Object, Object> entry(long key, Object value) {
+        return new SimpleImmutableEntry<>(intIds ? (Object) (int) key : (Object) key, value);
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = PrimitiveIds.hash(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new Object[oldKeys.length << 1];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = PrimitiveIds.hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Object, V>> {
+        private final Object[] entries;
+        private int next;
+
+        private EntryIterator(Object[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < entries.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<Object, V> next() {
+            if (next >= entries.length) {
+                throw new NoSuchElementException();
+            }
+            return (Map.Entry<Object, V>) entries[next++];
+        }
+    }
+
+    /**
+     * 线程安全的Map：读不加锁，写以自身为锁
+     * <p>
+     * 槽位以原子数组存储，先写value再写key，读到key时一定能读到其value；
+     * 扩容时在锁内构造新表后整体替换，读线程看到的总是完整的旧表或新表。父类的存储不使用
+     */
+    private static final class Concurrent<V> extends PrimitiveIdMap<V> {
+        private volatile Table table = new Table(MIN_CAPACITY);
+        private volatile boolean hasZero;
+        private volatile V zeroValue;
+        private volatile int size;
+
+        private Concurrent(boolean intIds) {
+            super(intIds, 0);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(long key) {
+            if (key == 0) {
+                return zeroValue;
+            }
+            Table table = this.table;
+            int i = table.indexOf(key);
+            return i < 0 ? null : (V) table.values.get(i);
+        }
+
+        @Override
+        public boolean containsKey(long key) {
+            return key == 0 ? hasZero : table.indexOf(key) >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized V put(long key, V value) {
+            if (key == 0) {
+                V old = zeroValue;
+                zeroValue = value;
+                if (!hasZero) {
+                    hasZero = true;
+                    size++;
+                }
+                return old;
+            }
+            Table table = this.table;
+            int mask = table.keys.length() - 1;
+            int i = PrimitiveIds.hash(key) & mask;
+            long k;
+            while ((k = table.keys.get(i)) != 0) {
+                if (k == key) {
+                    return (V) table.values.getAndSet(i, value);
+                }
+                i = (i + 1) & mask;
+            }
+            table.values.set(i, value);
+            table.keys.set(i, key);
+            if (++size > PrimitiveIds.threshold(table.keys.length())) {
+                this.table = table.resize();
+            }
+            return null;
+        }
+
+        @Override
+        public void putAll(Map<?, ? extends V> map) {
+            Object[] entries = map instanceof PrimitiveIdMap ? ((PrimitiveIdMap<?>) map).snapshot() : map.entrySet().toArray();
+            synchronized (this) {
+                for (Object entry : entries) {
+                    Map.Entry<?, ? extends V> e = (Map.Entry<?, ? extends V>) entry;
+                    put(PrimitiveIds.toLong(e.getKey()), e.getValue());
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public synchronized void clear() {
+            table = new Table(MIN_CAPACITY);
+            hasZero = false;
+            zeroValue = null;
+            size = 0;
+        }
+
+        @Override
+        synchronized Object[] snapshot() {
+            Object[] entries = new Object[size];
+            int n = 0;
+            if (hasZero) {
+                entries[n++] = entry(0, zeroValue);
+            }
+            for (int i = 0; i < table.keys.length(); i++) {
+                long key = table.keys.get(i);
+                if (key != 0) {
+                    entries[n++] = entry(key, table.values.get(i));
+                }
+            }
+            return entries;
+        }
+    }
+
+    private static final class Table {
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<Object> values;
+
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+        }
+
+        private int indexOf(long key) {
+            int mask = keys.length() - 1;
+            int i = PrimitiveIds.hash(key) & mask;
+            long k;
+            while ((k = keys.get(i)) != 0) {
+                if (k == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * 容量加倍的新表，只在写锁内调用
+         */
+        private Table resize() {
+            Table table = new Table(keys.length() << 1);
+            int mask = table.keys.length() - 1;
+            for (int j = 0; j < keys.length(); j++) {
+                long key = keys.get(j);
+                if (key != 0) {
+                    int i = PrimitiveIds.hash(key) & mask;
+                    while (table.keys.get(i) != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table.values.set(i, values.get(j));
+                    table.keys.set(i, key);
+                }
+            }
+            return table;
+        }
+    }
+}
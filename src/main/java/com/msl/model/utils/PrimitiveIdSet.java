@@ -0,0 +1,420 @@
+package com.msl.model.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * 以long开放寻址存储的id集合
+ * <p>
+ * 以{@link java.util.Set}使用时接受任意整数类型的id，迭代时按声明装箱为Long或Integer；
+ * 可通过{@link #add(long)}、{@link #contains(long)}、{@link #forEachId(LongConsumer)}、{@link #toLongArray()}免装箱访问。
+ * 不支持删除，null id被忽略；非线程安全，并发使用{@link #concurrent(boolean)}
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 14:20
+ */
+public class PrimitiveIdSet extends AbstractSet<Object> {
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * 迭代时是否装箱为Integer
+     */
+    private final boolean intIds;
+    /**
+     * 0表示空槽，id为0时单独记录
+     */
+    private long[] keys;
+    private boolean hasZero;
+    private int size;
+
+    public PrimitiveIdSet(boolean intIds) {
+        this(intIds, MIN_CAPACITY);
+    }
+
+    public PrimitiveIdSet(boolean intIds, int expectedSize) {
+        this.intIds = intIds;
+        this.keys = new long[PrimitiveIds.capacity(expectedSize, MIN_CAPACITY)];
+    }
+
+    public static PrimitiveIdSet longIds() {
+        return new PrimitiveIdSet(false);
+    }
+
+    public static PrimitiveIdSet intIds() {
+        return new PrimitiveIdSet(true);
+    }
+
+    /**
+     * 按写入顺序记录id的集合，非线程安全
+     *
+     * @param intIds 迭代时是否装箱为Integer
+     * @return id集合
+     */
+    public static Indexed indexed(boolean intIds) {
+        return new Indexed(intIds);
+    }
+
+    /**
+     * 线程安全的集合，同时按写入顺序记录id，迭代时遍历快照
+     *
+     * @param intIds 迭代时是否装箱为Integer
+     * @return id集合
+     */
+    public static Concurrent concurrent(boolean intIds) {
+        return new Concurrent(intIds);
+    }
+
+    public boolean isIntIds() {
+        return intIds;
+    }
+
+    public boolean add(long id) {
+        if (id == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = PrimitiveIds.hash(id) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == id) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        if (++size > PrimitiveIds.threshold(keys.length)) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        if (id == 0) {
+            return hasZero;
+        }
+        int mask = keys.length - 1;
+        int i = PrimitiveIds.hash(id) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == id) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public void forEachId(LongConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public long[] toLongArray() {
+        long[] ids = new long[size];
+        int n = 0;
+        if (hasZero) {
+            n++;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                ids[n++] = key;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean add(Object id) {
+        return id != null && add(PrimitiveIds.toLong(id));
+    }
+
+    @Override
+    public boolean contains(Object id) {
+        return PrimitiveIds.isIntegral(id) && contains(((Number) id).longValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<?> ids) {
+        if (ids instanceof PrimitiveIdSet) {
+            boolean changed = false;
+            for (long id : ((PrimitiveIdSet) ids).toLongArray()) {
+                changed |= add(id);
+            }
+            return changed;
+        }
+        return super.addAll(ids);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new IdIterator(toLongArray());
+    }
+
+    private void rehash() {
+        long[] old = keys;
+        keys = new long[old.length << 1];
+        int mask = keys.length - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int i = PrimitiveIds.hash(key) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private final class IdIterator implements Iterator<Object> {
+        private final long[] ids;
+        private int next;
+
+        private IdIterator(long[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < ids.length;
+        }
+
+        @Override
+        public Object next() {
+            if (next >= ids.length) {
+                throw new NoSuchElementException();
+            }
+            long id = ids[next++];
+            return intIds ? (Object) (int) id : (Object) id;
+        }
+    }
+
+    /**
+     * 按写入顺序记录id以支持水位线查询的集合，非线程安全
+     */
+    public static class Indexed extends PrimitiveIdSet implements IdIndex<Object> {
+        private long[] log = new long[MIN_CAPACITY];
+        private int logSize;
+
+        private Indexed(boolean intIds) {
+            super(intIds);
+        }
+
+        @Override
+        public boolean add(long id) {
+            if (!super.add(id)) {
+                return false;
+            }
+            if (logSize == log.length) {
+                log = Arrays.copyOf(log, logSize << 1);
+            }
+            log[logSize++] = id;
+            return true;
+        }
+
+        @Override
+        public int watermark() {
+            return logSize;
+        }
+
+        @Override
+        public Collection<Object> idsSince(int watermark) {
+            if (watermark >= logSize) {
+                return Collections.emptyList();
+            }
+            PrimitiveIdSet ids = new PrimitiveIdSet(isIntIds(), logSize - watermark);
+            for (int i = Math.max(0, watermark); i < logSize; i++) {
+                ids.add(log[i]);
+            }
+            return ids;
+        }
+
+        @Override
+        public long[] toLongArray() {
+            return Arrays.copyOf(log, logSize);
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            logSize = 0;
+        }
+    }
+
+    /**
+     * 线程安全的集合，按写入顺序记录id以支持水位线查询：判断、数量、水位线的读取不加锁，写以自身为锁
+     * <p>
+     * 槽位以原子数组存储，扩容时在锁内构造新表后整体替换，读线程看到的总是完整的旧表或新表。父类的存储不使用
+     */
+    public static final class Concurrent extends Indexed {
+        private volatile AtomicLongArray keys = new AtomicLongArray(MIN_CAPACITY);
+        private volatile boolean hasZero;
+        private volatile int size;
+        /**
+         * 写入顺序，只在锁内访问
+         */
+        private long[] log = new long[MIN_CAPACITY];
+        private volatile int logSize;
+
+        private Concurrent(boolean intIds) {
+            super(intIds);
+        }
+
+        @Override
+        public synchronized boolean add(long id) {
+            if (id == 0) {
+                if (hasZero) {
+                    return false;
+                }
+                hasZero = true;
+            } else {
+                AtomicLongArray keys = this.keys;
+                int mask = keys.length() - 1;
+                int i = PrimitiveIds.hash(id) & mask;
+                long k;
+                while ((k = keys.get(i)) != 0) {
+                    if (k == id) {
+                        return false;
+                    }
+                    i = (i + 1) & mask;
+                }
+                keys.set(i, id);
+            }
+            if (logSize == log.length) {
+                log = Arrays.copyOf(log, logSize << 1);
+            }
+            log[logSize] = id;
+            logSize++;
+            if (++size > PrimitiveIds.threshold(keys.length())) {
+                keys = resize(keys);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean contains(long id) {
+            if (id == 0) {
+                return hasZero;
+            }
+            AtomicLongArray keys = this.keys;
+            int mask = keys.length() - 1;
+            int i = PrimitiveIds.hash(id) & mask;
+            long k;
+            while ((k = keys.get(i)) != 0) {
+                if (k == id) {
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachId(LongConsumer action) {
+            for (long id : toLongArray()) {
+                action.accept(id);
+            }
+        }
+
+        @Override
+        public synchronized long[] toLongArray() {
+            return Arrays.copyOf(log, logSize);
+        }
+
+        @Override
+        public int watermark() {
+            return logSize;
+        }
+
+        @Override
+        public synchronized Collection<Object> idsSince(int watermark) {
+            if (watermark >= logSize) {
+                return Collections.emptyList();
+            }
+            PrimitiveIdSet ids = new PrimitiveIdSet(isIntIds(), logSize - watermark);
+            for (int i = Math.max(0, watermark); i < logSize; i++) {
+                ids.add(log[i]);
+            }
+            return ids;
+        }
+
+        @Override
+        public boolean addAll(Collection<?> ids) {
+            Object[] snapshot = ids instanceof PrimitiveIdSet ? null : ids.toArray();
+            long[] primitiveSnapshot = snapshot == null ? ((PrimitiveIdSet) ids).toLongArray() : null;
+            synchronized (this) {
+                boolean changed = false;
+                if (primitiveSnapshot != null) {
+                    for (long id : primitiveSnapshot) {
+                        changed |= add(id);
+                    }
+                } else {
+                    for (Object id : snapshot) {
+                        changed |= id != null && add(PrimitiveIds.toLong(id));
+                    }
+                }
+                return changed;
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public synchronized void clear() {
+            keys = new AtomicLongArray(MIN_CAPACITY);
+            hasZero = false;
+            size = 0;
+            log = new long[MIN_CAPACITY];
+            logSize = 0;
+        }
+
+        /**
+         * 容量加倍的新表，只在写锁内调用
+         */
+        private static AtomicLongArray resize(AtomicLongArray old) {
+            AtomicLongArray keys = new AtomicLongArray(old.length() << 1);
+            int mask = keys.length() - 1;
+            for (int j = 0; j < old.length(); j++) {
+                long key = old.get(j);
+                if (key != 0) {
+                    int i = PrimitiveIds.hash(key) & mask;
+                    while (keys.get(i) != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys.set(i, key);
+                }
+            }
+            return keys;
+        }
+    }
+}
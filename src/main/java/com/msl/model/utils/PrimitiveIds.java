@@ -0,0 +1,49 @@
+package com.msl.model.utils;
+
+/**
+ * 开放寻址id集合的公共计算
+ *
+ * @author wanglq
+ * Date 2022/11/22
+ * Time 14:20
+ */
+final class PrimitiveIds {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private PrimitiveIds() {
+    }
+
+    static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 能容纳指定数量的2的幂容量
+     */
+    static int capacity(int expectedSize, int minCapacity) {
+        int capacity = minCapacity;
+        while (capacity < MAX_CAPACITY && threshold(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * 扩容阈值，负载因子0.75
+     */
+    static int threshold(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    static boolean isIntegral(Object id) {
+        return id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte;
+    }
+
+    static long toLong(Object id) {
+        if (isIntegral(id)) {
+            return ((Number) id).longValue();
+        }
+        throw new IllegalArgumentException("不是整数id：" + id + "(" + id.getClass().getName() + ")");
+    }
+}
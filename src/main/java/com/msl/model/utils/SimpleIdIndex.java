@@ -0,0 +1,61 @@
+package com.msl.model.utils;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 以{@link HashSet}判断成员、以列表按写入顺序记录id的索引，非线程安全
+ * <p>
+ * 不支持删除，null id被忽略
+ *
+ * @author wanglq
+ * Date 2022/11/23
+ * Time 15:40
+ */
+public class SimpleIdIndex extends AbstractSet<Object> implements IdIndex<Object> {
+    private final Set<Object> members = new HashSet<>();
+    private final List<Object> log = new ArrayList<>();
+
+    @Override
+    public boolean add(Object id) {
+        if (id == null || !members.add(id)) {
+            return false;
+        }
+        log.add(id);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object id) {
+        return members.contains(id);
+    }
+
+    @Override
+    public int size() {
+        return log.size();
+    }
+
+    @Override
+    public int watermark() {
+        return log.size();
+    }
+
+    @Override
+    public Collection<Object> idsSince(int watermark) {
+        if (watermark >= log.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(log.subList(Math.max(0, watermark), log.size()));
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return Collections.unmodifiableList(log).iterator();
+    }
+}
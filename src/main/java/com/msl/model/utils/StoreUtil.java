@@ -1,12 +1,20 @@
 package com.msl.model.utils;
 
 import com.msl.base.KeyPair;
+import com.msl.model.builder.PrimitiveIdNamespace;
 import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.LazyBuildContext;
+import com.msl.model.builder.context.PendingIds;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -30,29 +38,118 @@ public class StoreUtil {
         return map.get(key);
     }
 
-    public static <K> Set<K> filterIdSet(Object valueNamespace, Set<K> ids, BuildContext buildContext) {
+    /**
+     * 创建命名空间的id集合，整数id命名空间为{@link PrimitiveIdSet}
+     *
+     * @param namespace 命名空间
+     * @return id集合
+     */
+    public static Set<Object> newIdSet(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newIdSet() : new HashSet<>();
+    }
+
+    /**
+     * 创建命名空间的数据集合，整数id命名空间为{@link PrimitiveIdMap}
+     *
+     * @param namespace 命名空间
+     * @return 数据集合
+     */
+    public static Map<Object, Object> newValueMap(Object namespace) {
+        return namespace instanceof PrimitiveIdNamespace ? ((PrimitiveIdNamespace) namespace).newDataMap() : new HashMap<>();
+    }
+
+    public static <K> Set<K> filterIdSet(Object valueNamespace, Collection<K> ids, BuildContext buildContext) {
+        if (ids instanceof PrimitiveIdSet) {
+            return (Set<K>) filterPrimitiveIdSet((PrimitiveIdSet) ids, buildContext.getCachedData(valueNamespace),
+                    buildContext.getAbsentIds(valueNamespace), Collections.emptyMap());
+        }
         Set<Object> cachedDataIds = buildContext.getCachedData(valueNamespace).keySet();
-        if (cachedDataIds.isEmpty()) {
+        Set<Object> absentIds = buildContext.getAbsentIds(valueNamespace);
+        if (cachedDataIds.isEmpty() && absentIds.isEmpty()) {
             return new HashSet<>(ids);
         }
         return ids.stream()
-                .filter(id -> !cachedDataIds.contains(id))
+                .filter(id -> !cachedDataIds.contains(id) && !absentIds.contains(id))
                 .collect(Collectors.toSet());
 
     }
 
     public static <K> Set<K> filterIdSet(Object valueNamespace, Set<K> ids, BuildContext buildContext, Map<Object, Map<Object, Object>> valuesMap) {
+        if (ids instanceof PrimitiveIdSet) {
+            return (Set<K>) filterPrimitiveIdSet((PrimitiveIdSet) ids, buildContext.getCachedData(valueNamespace),
+                    buildContext.getAbsentIds(valueNamespace), valuesMap.getOrDefault(valueNamespace, Collections.emptyMap()));
+        }
         Set<Object> cachedDataIds = buildContext.getCachedData(valueNamespace).keySet();
         Set<Object> valueMapExistIds = StoreUtil.computeIfAbsent(valuesMap, valueNamespace, i -> new HashMap<>(1)).keySet();
-        if (cachedDataIds.isEmpty() && valueMapExistIds.isEmpty()) {
+        Set<Object> absentIds = buildContext.getAbsentIds(valueNamespace);
+        if (cachedDataIds.isEmpty() && valueMapExistIds.isEmpty() && absentIds.isEmpty()) {
             return new HashSet<>(ids);
         }
         return ids.stream()
-                .filter(id -> !cachedDataIds.contains(id) && !valueMapExistIds.contains(id))
+                .filter(id -> !cachedDataIds.contains(id) && !valueMapExistIds.contains(id) && !absentIds.contains(id))
                 .collect(toSet());
 
     }
 
+    /**
+     * 按long过滤，缓存为{@link PrimitiveIdMap}、{@link PrimitiveIdSet}时不装箱
+     */
+    private static PrimitiveIdSet filterPrimitiveIdSet(PrimitiveIdSet ids, Map<?, ?> cachedData, Set<?> absentIds, Map<?, ?> values) {
+        boolean intIds = ids.isIntIds();
+        PrimitiveIdSet result = new PrimitiveIdSet(intIds, ids.size());
+        for (long id : ids.toLongArray()) {
+            if (!containsId(cachedData, id, intIds) && !containsId(absentIds, id, intIds) && !containsId(values, id, intIds)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsId(Map<?, ?> map, long id, boolean intIds) {
+        if (map.isEmpty()) {
+            return false;
+        }
+        if (map instanceof PrimitiveIdMap) {
+            return ((PrimitiveIdMap<?>) map).containsKey(id);
+        }
+        return map.containsKey(intIds ? (Object) (int) id : (Object) id);
+    }
+
+    private static boolean containsId(Set<?> set, long id, boolean intIds) {
+        if (set.isEmpty()) {
+            return false;
+        }
+        if (set instanceof PrimitiveIdSet) {
+            return ((PrimitiveIdSet) set).contains(id);
+        }
+        return set.contains(intIds ? (Object) (int) id : (Object) id);
+    }
+
+    /**
+     * 记录构造器未返回数据的id为不存在
+     *
+     * @param valueNamespace 命名空间
+     * @param requestedIds   交给构造器的id
+     * @param values         构造结果
+     * @param buildContext   上下文
+     */
+    public static void markAbsent(Object valueNamespace, Collection<?> requestedIds, Map<?, ?> values, BuildContext buildContext) {
+        if (requestedIds.isEmpty()) {
+            return;
+        }
+        if (values == null || values.isEmpty()) {
+            buildContext.markAbsent(valueNamespace, requestedIds);
+            return;
+        }
+        List<Object> absent = new ArrayList<>();
+        for (Object id : requestedIds) {
+            if (values.get(id) == null) {
+                absent.add(id);
+            }
+        }
+        buildContext.markAbsent(valueNamespace, absent);
+    }
+
     public static Map<Object, Object> filterValueMap(KeyPair<Map<Object, Object>> values, BuildContext buildContext) {
         Map<Object, Object> cachedData = buildContext.getCachedData(values.getKey());
         if (cachedData.isEmpty()) {
@@ -91,6 +188,33 @@ public class StoreUtil {
         valuesMap.forEach((k, v) -> buildContext.getCachedData(k).putAll(v));
     }
 
+    /**
+     * 延迟构造一次：取出上次构造后新增的id，以构造器获取数据，记录不存在的id并合并到上下文，最后推进水位线
+     *
+     * @param context        上下文
+     * @param idNamespace    id命名空间
+     * @param valueNamespace value命名空间
+     * @param valueBuilder   构造器
+     * @param <K>            id类型
+     * @param <B>            上下文类型
+     * @return 获取到的数据，没有新增的id时为空
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, B extends LazyBuildContext> Map<K, ?> lazyFetch(B context, Object idNamespace, Object valueNamespace,
+                                                                      BiFunction<B, ? super Collection<K>, ? extends Map<K, ?>> valueBuilder) {
+        PendingIds<K> pending = context.pendingIds(idNamespace, valueNamespace);
+        Set<K> ids = pending.ids();
+        if (ids.isEmpty()) {
+            pending.fetched();
+            return Collections.<K, Object>emptyMap();
+        }
+        Map<K, ?> map = valueBuilder.apply(context, ids);
+        markAbsent(valueNamespace, ids, map, context);
+        mergeValueToBuildContext((Map<Object, Object>) map, valueNamespace, context);
+        pending.fetched();
+        return map;
+    }
+
     /**
      * 合并数据到上下文
      *
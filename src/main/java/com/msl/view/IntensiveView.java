@@ -1,6 +1,7 @@
 package com.msl.view;
 
 
+import com.msl.base.Namespace;
 import com.msl.model.builder.context.BuildContext;
 import com.msl.model.utils.HasKey;
 import com.msl.view.mapper.ViewMapper;
@@ -57,4 +58,26 @@ public class IntensiveView<T extends HasKey<?>> extends View<T> {
 
     }
 
+    /**
+     * 以命名空间句柄构造单个view返回
+     *
+     * @param namespace value命名空间句柄
+     * @param key       待构造的value对应的key
+     * @return view
+     */
+    protected <V extends View<D>, K, D> V build(Namespace<K, D> namespace, K key) {
+        return build(namespace, key, (d, ctx) -> viewMapper.<D, V>map(d, ctx));
+    }
+
+    /**
+     * 以命名空间句柄构造view集合返回
+     *
+     * @param namespace value命名空间句柄，空间内数据为集合
+     * @param key       待构造的value集合对应的key
+     * @return view
+     */
+    protected <V extends View<D>, K, D> List<V> buildList(Namespace<K, ? extends List<D>> namespace, K key) {
+        return buildList(namespace, key, (d, ctx) -> viewMapper.<D, V>map(d, ctx));
+    }
+
 }
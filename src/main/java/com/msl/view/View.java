@@ -1,6 +1,7 @@
 package com.msl.view;
 
 
+import com.msl.base.Namespace;
 import com.msl.model.builder.context.BuildContext;
 
 import java.util.ArrayList;
@@ -32,6 +33,16 @@ public abstract class View<T> {
         return context;
     }
 
+    /**
+     * 命名空间是否因构建超时未能构造（完整），可据此渲染降级内容
+     *
+     * @param namespace 命名空间
+     * @return 是否超时
+     */
+    protected boolean isTimedOut(Object namespace) {
+        return context.isTimedOut(namespace);
+    }
+
     protected <V extends View<D>, K, D> V build(Object namespace, K key, BiFunction<D, BuildContext, V> view) {
         return Optional.ofNullable(key)
                 .map(k -> context.<K, D>getData(namespace, k))
@@ -46,4 +57,40 @@ public abstract class View<T> {
                 .orElse(new ArrayList<>());
 
     }
+
+    /**
+     * 以命名空间句柄构造单个view，以句柄的序号直接定位上下文中的数据，不再对命名空间做哈希查找
+     *
+     * @param namespace value命名空间句柄
+     * @param key       待构造的value对应的key
+     * @param view      view的创建方式
+     * @return view，key或数据不存在时为null
+     */
+    protected <V extends View<D>, K, D> V build(Namespace<K, D> namespace, K key, BiFunction<D, BuildContext, V> view) {
+        if (key == null) {
+            return null;
+        }
+        D data = context.getData(namespace, key);
+        return data == null ? null : view.apply(data, context);
+    }
+
+    /**
+     * 以命名空间句柄构造view集合
+     *
+     * @param namespace value命名空间句柄，空间内数据为集合
+     * @param key       待构造的value集合对应的key
+     * @param view      view的创建方式
+     * @return view集合
+     */
+    protected <V extends View<D>, K, D> List<V> buildList(Namespace<K, ? extends List<D>> namespace, K key, BiFunction<D, BuildContext, V> view) {
+        List<D> list = key == null ? null : context.<K, List<D>>getData(namespace, key);
+        if (list == null) {
+            return new ArrayList<>();
+        }
+        List<V> views = new ArrayList<>(list.size());
+        for (D d : list) {
+            views.add(view.apply(d, context));
+        }
+        return views;
+    }
 }
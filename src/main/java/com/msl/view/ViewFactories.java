@@ -0,0 +1,145 @@
+package com.msl.view;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 由View的构造方法生成创建View的函数，代替反射调用{@link Constructor#newInstance(Object...)}
+ * <p>
+ * 以{@link LambdaMetafactory}生成直接调用构造方法的函数，与直接new相同；
+ * 构造方法不可访问（如其他包中非公开的类）或View类对本类的类加载器不可见时无法生成，以{@link MethodHandle}调用
+ *
+ * @author wanglq
+ * Date 2022/11/28
+ * Time 11:05
+ */
+final class ViewFactories {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private ViewFactories() {
+    }
+
+    /**
+     * 以(model, BuildContext, ViewMapper)创建View
+     */
+    @FunctionalInterface
+    interface ViewConstructor {
+        Object create(Object model, Object buildContext, Object viewMapper);
+    }
+
+    /**
+     * 构造方法(model)
+     *
+     * @param constructor 构造方法
+     * @return 创建View的函数
+     */
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> of1(Constructor<?> constructor) {
+        return (Function<Object, Object>) generate(constructor, Function.class, "apply");
+    }
+
+    /**
+     * 构造方法(model, BuildContext)
+     *
+     * @param constructor 构造方法
+     * @return 创建View的函数
+     */
+    @SuppressWarnings("unchecked")
+    static BiFunction<Object, Object, Object> of2(Constructor<?> constructor) {
+        return (BiFunction<Object, Object, Object>) generate(constructor, BiFunction.class, "apply");
+    }
+
+    /**
+     * 构造方法(model, BuildContext, ViewMapper)
+     *
+     * @param constructor 构造方法
+     * @return 创建View的函数
+     */
+    static ViewConstructor of3(Constructor<?> constructor) {
+        return (ViewConstructor) generate(constructor, ViewConstructor.class, "create");
+    }
+
+    private static Object generate(Constructor<?> constructor, Class<?> functionType, String methodName) {
+        int arity = constructor.getParameterCount();
+        MethodType erased = MethodType.genericMethodType(arity);
+        if (!isVisible(constructor.getDeclaringClass())) {
+            return bind(accessible(constructor).asType(erased), arity);
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName, MethodType.methodType(functionType),
+                    erased, handle, handle.type());
+            return site.getTarget().invoke();
+        } catch (IllegalAccessException | LambdaConversionException e) {
+            return bind(accessible(constructor).asType(erased), arity);
+        } catch (Throwable e) {
+            throw new IllegalStateException("无法生成View的创建函数：" + constructor, e);
+        }
+    }
+
+    /**
+     * 生成的函数类由本类的类加载器解析View类，View由子类加载器加载时（如热部署的类加载器）无法解析
+     */
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, ViewFactories.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle accessible(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            return LOOKUP.unreflectConstructor(constructor);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("无法访问View的构造方法：" + constructor, e);
+        }
+    }
+
+    private static Object bind(MethodHandle handle, int arity) {
+        switch (arity) {
+            case 1:
+                return (Function<Object, Object>) model -> {
+                    try {
+                        return handle.invokeExact(model);
+                    } catch (Throwable e) {
+                        throw rethrow(e);
+                    }
+                };
+            case 2:
+                return (BiFunction<Object, Object, Object>) (model, context) -> {
+                    try {
+                        return handle.invokeExact(model, context);
+                    } catch (Throwable e) {
+                        throw rethrow(e);
+                    }
+                };
+            default:
+                return (ViewConstructor) (model, context, viewMapper) -> {
+                    try {
+                        return handle.invokeExact(model, context, viewMapper);
+                    } catch (Throwable e) {
+                        throw rethrow(e);
+                    }
+                };
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,26 @@
+package com.msl.view;
+
+import com.msl.view.mapper.ViewMapper;
+
+/**
+ * 编译期生成的View注册类，由{@link com.msl.view.processor.ViewRegistryProcessor}为每个包含View的包生成，
+ * {@link ViewScanner}通过{@link java.util.ServiceLoader}加载以代替运行时扫描
+ *
+ * @author wanglq
+ * Date 2022/11/28
+ * Time 15:40
+ */
+public interface ViewRegistry {
+
+    /**
+     * @return 注册的View所在的包
+     */
+    String basePackage();
+
+    /**
+     * 注册该包中的View，与{@link ViewScanner}扫描注册的View相同；View的构造方法抛出异常时记录日志并返回null
+     *
+     * @param viewMapper 映射器
+     */
+    void register(ViewMapper viewMapper);
+}
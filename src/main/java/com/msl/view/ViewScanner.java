@@ -10,11 +10,19 @@ import com.msl.view.mapper.impl.DefaultViewMapperImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * @author wanglq
@@ -25,11 +33,24 @@ public class ViewScanner {
 
     private Logger log = LoggerFactory.getLogger(ViewScanner.class);
     private ModelBuilder modelBuilder;
+    private File scanIndex;
 
     public ViewScanner(ModelBuilder modelBuilder) {
         this.modelBuilder = modelBuilder;
     }
 
+    /**
+     * 设置扫描索引文件，再次启动时未修改的类文件不再读取
+     *
+     * @param scanIndex 索引文件
+     * @return this
+     * @see ClassScanner#index(File)
+     */
+    public ViewScanner scanIndex(File scanIndex) {
+        this.scanIndex = scanIndex;
+        return this;
+    }
+
     public ViewMapper viewMapper(String[] basePackage) {
         final ViewMapper viewMapper = scan(basePackage);
         return new ViewMapper() {
@@ -49,6 +70,12 @@ public class ViewScanner {
                 return delegate.map(models, buildContext);
             }
 
+            @Override
+            public <M, V> List<V> mapParallel(Collection<M> models, BuildContext buildContext, Executor executor, int threshold) {
+                builder.buildMulti(models, buildContext);
+                return delegate.mapParallel(models, buildContext, executor, threshold);
+            }
+
             @Override
             public <M, V> ViewMapper addMapper(Class<M> modelType, BiFunction<BuildContext, M, V> viewFactory) {
                 delegate.addMapper(modelType, viewFactory);
@@ -58,16 +85,35 @@ public class ViewScanner {
         };
     }
 
+    /**
+     * 扫描包中的View；编译期生成了{@link ViewRegistry}的包直接注册，其他包（含子包）仍扫描
+     * <p>
+     * 扫描只读取类文件头查找View的子类，只加载找到的类且不初始化
+     */
     protected final ViewMapper scan(String[] pkg) {
         DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl();
         try {
+            List<ViewRegistry> registries = loadRegistries();
+            Set<ViewRegistry> registered = Sets.newLinkedHashSet();
             Set<Class<?>> classes = Sets.newHashSet();
             for (String p : pkg) {
-                ClassScanner scanner = new ClassScanner();
-                scanner.scanning(p, true);
-                classes.addAll(scanner.getClasses().values());
+                Set<String> registeredPackages = Sets.newHashSet();
+                registries.stream()
+                        .filter(r -> r.basePackage().equals(p) || r.basePackage().startsWith(p + "."))
+                        .forEach(r -> {
+                            registered.add(r);
+                            registeredPackages.add(r.basePackage());
+                        });
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                for (String name : new ClassScanner().index(scanIndex).scanSubtypes(p, true, View.class)) {
+                    int dot = name.lastIndexOf('.');
+                    if (!registeredPackages.contains(dot < 0 ? "" : name.substring(0, dot))) {
+                        classes.add(Class.forName(name, false, classLoader));
+                    }
+                }
             }
-            log.info("扫描到View类个数为：{}", classes.size());
+            log.info("编译期生成的View注册类个数为：{}，扫描到View类个数为：{}", registered.size(), classes.size());
+            registered.forEach(r -> r.register(viewMapper));
             classes.forEach(c -> add(viewMapper, c));
         } catch (Exception e) {
             log.error("Ops.", e);
@@ -75,8 +121,46 @@ public class ViewScanner {
         return viewMapper;
     }
 
+    /**
+     * 包装View的创建函数：构造方法抛出异常时记录日志并返回null，扫描注册与编译期生成的注册类一致
+     *
+     * @param factory 创建函数
+     * @param <M>     模型类型
+     * @param <V>     View类型
+     * @return 包装后的创建函数
+     */
+    public static <M, V> BiFunction<BuildContext, M, V> guarded(BiFunction<BuildContext, M, V> factory) {
+        return (context, model) -> {
+            try {
+                return factory.apply(context, model);
+            } catch (Exception e) {
+                LoggerFactory.getLogger(ViewScanner.class).error("fail to construct model:{}", model, e);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return 类路径中编译期生成的View注册类
+     */
+    protected List<ViewRegistry> loadRegistries() {
+        List<ViewRegistry> registries = new ArrayList<>();
+        Iterator<ViewRegistry> iterator = ServiceLoader.load(ViewRegistry.class, Thread.currentThread().getContextClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    return registries;
+                }
+                registries.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                // 服务文件中残留已删除的注册类
+                log.warn("fail to load view registry", e);
+            }
+        }
+    }
+
     protected void add(DefaultViewMapperImpl viewMapper, Class<?> type) {
-        if (!View.class.isAssignableFrom(type)) {
+        if (!View.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
             return;
         }
         ViewIgnore ignore = type.getAnnotation(ViewIgnore.class);
@@ -84,46 +168,36 @@ public class ViewScanner {
             return;
         }
 
-        Constructor<?>[] constructors = type.getConstructors();
-        for (Constructor<?> constructor : constructors) {
-            Class<?>[] params = constructor.getParameterTypes();
-            if (params.length == 2 && params[1] == BuildContext.class) {
-                log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}], with buildContext.",
-                        type.getSimpleName(), params[0].getSimpleName());
-                viewMapper.addMapper(params[0], (context, model) -> {
-                    try {
-                        return constructor.newInstance(model, context);
-                    } catch (Exception e) {
-                        log.error("fail to construct model:{}", model, e);
-                        return null;
-                    }
-                });
-            }
-            if (params.length == 1) {
-                log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}]", type.getSimpleName(),
-                        params[0].getSimpleName());
-                viewMapper.addMapper(params[0], (buildContext, model) -> {
-                    try {
-                        return constructor.newInstance(model);
-                    } catch (Exception e) {
-                        log.error("fail to construct model:{}", model, e);
-                        return null;
-                    }
-                });
+        for (Constructor<?> constructor : type.getConstructors()) {
+            try {
+                add(viewMapper, type, constructor);
+            } catch (RuntimeException e) {
+                // 单个View无法注册时不影响其他View
+                log.error("fail to register view [{}] with constructor {}", type.getSimpleName(), constructor, e);
             }
+        }
+    }
 
-            if (params.length == 3 && params[1] == BuildContext.class && params[2] == ViewMapper.class) {
-                log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}], with buildContext and viewMapper.",
-                        type.getSimpleName(), params[0].getSimpleName());
-                viewMapper.addMapper(params[0], (context, model) -> {
-                    try {
-                        return constructor.newInstance(model, context, viewMapper);
-                    } catch (Exception e) {
-                        log.error("fail to construct model:{}", model, e);
-                        return null;
-                    }
-                });
-            }
+    private void add(DefaultViewMapperImpl viewMapper, Class<?> type, Constructor<?> constructor) {
+        Class<?>[] params = constructor.getParameterTypes();
+        if (params.length == 2 && params[1] == BuildContext.class) {
+            log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}], with buildContext.",
+                    type.getSimpleName(), params[0].getSimpleName());
+            BiFunction<Object, Object, Object> factory = ViewFactories.of2(constructor);
+            viewMapper.addMapper(params[0], guarded((context, model) -> factory.apply(model, context)));
+        }
+        if (params.length == 1) {
+            log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}]", type.getSimpleName(),
+                    params[0].getSimpleName());
+            Function<Object, Object> factory = ViewFactories.of1(constructor);
+            viewMapper.addMapper(params[0], guarded((context, model) -> factory.apply(model)));
+        }
+
+        if (params.length == 3 && params[1] == BuildContext.class && params[2] == ViewMapper.class) {
+            log.info(">>>>>>>>>>>>>>>>>>>> register view [{}] for model [{}], with buildContext and viewMapper.",
+                    type.getSimpleName(), params[0].getSimpleName());
+            ViewFactories.ViewConstructor factory = ViewFactories.of3(constructor);
+            viewMapper.addMapper(params[0], guarded((context, model) -> factory.create(model, context, viewMapper)));
         }
     }
 }
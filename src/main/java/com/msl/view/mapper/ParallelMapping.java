@@ -0,0 +1,131 @@
+package com.msl.view.mapper;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.utils.FutureUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * 保持顺序的并行映射：结果按下标写入数组，与输入顺序一致
+ *
+ * @author wanglq
+ * Date 2022/11/25
+ * Time 15:20
+ */
+final class ParallelMapping {
+    /**
+     * 每个任务至少映射的数量
+     */
+    private static final int MIN_GRAIN = 16;
+    /**
+     * 当前线程是否正在执行并行映射的一块，嵌套的映射在其中依次执行，避免阻塞等待同一线程池而死锁
+     */
+    private static final ThreadLocal<Boolean> MAPPING = ThreadLocal.withInitial(() -> false);
+
+    private ParallelMapping() {
+    }
+
+    /**
+     * 并行映射；数量小于阈值、上下文只能在单个线程中访问或已在并行映射中时依次映射
+     *
+     * @param models       原模型数据集合
+     * @param mapper       单个模型的映射
+     * @param buildContext 上下文
+     * @param executor     线程池，为空时以{@link ForkJoinPool#commonPool()}分治执行
+     * @param threshold    并行映射的最小数量
+     * @return 与输入顺序一致的映射结果
+     */
+    @SuppressWarnings("unchecked")
+    static <M, V> List<V> map(Collection<M> models, Function<M, V> mapper, BuildContext buildContext, Executor executor, int threshold) {
+        int size = models.size();
+        if (size < Math.max(threshold, 2) || buildContext.isThreadConfined() || MAPPING.get()) {
+            List<V> views = new ArrayList<>(size);
+            for (M model : models) {
+                views.add(mapper.apply(model));
+            }
+            return views;
+        }
+        Object[] input = models.toArray();
+        Object[] output = new Object[size];
+        if (executor == null) {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            pool.invoke(new MapAction<>(input, output, mapper, 0, size, grain(size, pool.getParallelism())));
+        } else {
+            mapChunks(input, output, mapper, executor, grain(size, Runtime.getRuntime().availableProcessors()));
+        }
+        return new ArrayList<>((List<V>) Arrays.asList(output));
+    }
+
+    private static int grain(int size, int parallelism) {
+        return Math.max(MIN_GRAIN, size / (Math.max(1, parallelism) * 4));
+    }
+
+    /**
+     * 按块提交到线程池，第一块在调用线程中执行；任一块失败时抛出其异常
+     */
+    @SuppressWarnings("unchecked")
+    private static <M, V> void mapChunks(Object[] input, Object[] output, Function<M, V> mapper, Executor executor, int grain) {
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = grain; from < input.length; from += grain) {
+            int start = from;
+            int end = Math.min(input.length, from + grain);
+            chunks.add(CompletableFuture.runAsync(() -> mapRange(input, output, mapper, start, end), executor));
+        }
+        mapRange(input, output, mapper, 0, Math.min(input.length, grain));
+        FutureUtil.join(CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M, V> void mapRange(Object[] input, Object[] output, Function<M, V> mapper, int from, int to) {
+        boolean nested = MAPPING.get();
+        MAPPING.set(true);
+        try {
+            for (int i = from; i < to; i++) {
+                output[i] = mapper.apply((M) input[i]);
+            }
+        } finally {
+            if (!nested) {
+                MAPPING.remove();
+            }
+        }
+    }
+
+    private static final class MapAction<M, V> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] input;
+        private final Object[] output;
+        private final Function<M, V> mapper;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private MapAction(Object[] input, Object[] output, Function<M, V> mapper, int from, int to, int grain) {
+            this.input = input;
+            this.output = output;
+            this.mapper = mapper;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                mapRange(input, output, mapper, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MapAction<>(input, output, mapper, from, mid, grain),
+                    new MapAction<>(input, output, mapper, mid, to, grain));
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.msl.view.mapper.impl.DefaultViewMapperImpl;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 import static java.util.stream.Collectors.toList;
@@ -15,6 +16,11 @@ import static java.util.stream.Collectors.toList;
  * Time 18:13
  */
 public interface ViewMapper {
+    /**
+     * 并行映射的默认最小数量，少于此数量时依次映射
+     */
+    int PARALLEL_THRESHOLD = 256;
+
     /**
      * <p>addMapper.</p>
      *
@@ -50,4 +56,52 @@ public interface ViewMapper {
     default <M, V> List<V> map(Collection<M> models, BuildContext buildContext) {
         return models.stream().map(i -> this.<M, V>map(i, buildContext)).collect(toList());
     }
+
+    /**
+     * 以{@link java.util.concurrent.ForkJoinPool#commonPool()}并行映射，结果与输入顺序一致
+     *
+     * @param models       原模型数据集合
+     * @param buildContext 上下文
+     * @param <M>          模型类型
+     * @param <V>          View类型
+     * @return View结果
+     * @see #mapParallel(Collection, BuildContext, Executor, int)
+     */
+    default <M, V> List<V> mapParallel(Collection<M> models, BuildContext buildContext) {
+        return mapParallel(models, buildContext, null, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * 以指定线程池并行映射，结果与输入顺序一致
+     *
+     * @param models       原模型数据集合
+     * @param buildContext 上下文
+     * @param executor     线程池，为空时使用{@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @param <M>          模型类型
+     * @param <V>          View类型
+     * @return View结果
+     * @see #mapParallel(Collection, BuildContext, Executor, int)
+     */
+    default <M, V> List<V> mapParallel(Collection<M> models, BuildContext buildContext, Executor executor) {
+        return mapParallel(models, buildContext, executor, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * 并行映射，结果与输入顺序一致
+     * <p>
+     * 集合按块拆分后以fork/join（线程池为空时）或指定线程池执行，数量小于阈值时依次映射；
+     * View会在多个线程中读取上下文，上下文需可并发读取（{@link BuildContext#isThreadConfined()}为true时总是依次映射）；
+     * 在并行映射的View中再次并行映射时依次映射，不再占用线程池。任一View映射失败时抛出其异常
+     *
+     * @param models       原模型数据集合
+     * @param buildContext 上下文
+     * @param executor     线程池，为空时使用{@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @param threshold    并行映射的最小数量
+     * @param <M>          模型类型
+     * @param <V>          View类型
+     * @return View结果
+     */
+    default <M, V> List<V> mapParallel(Collection<M> models, BuildContext buildContext, Executor executor, int threshold) {
+        return ParallelMapping.map(models, model -> this.<M, V>map(model, buildContext), buildContext, executor, threshold);
+    }
 }
@@ -6,11 +6,14 @@ import com.msl.view.mapper.ViewMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 /**
@@ -23,6 +26,38 @@ public class DefaultViewMapperImpl implements ViewMapper {
     private Logger logger = LoggerFactory.getLogger(DefaultViewMapperImpl.class);
     private final Map<Class<?>, BiFunction<?, ?, ?>> mappers = new HashMap<>();
     private final ConcurrentMap<Class<?>, BiFunction<?, ?, ?>> modelTypeCache = new ConcurrentHashMap<>();
+    /**
+     * 集合是否并行映射
+     */
+    private boolean parallel;
+    private Executor parallelExecutor;
+    private int parallelThreshold = PARALLEL_THRESHOLD;
+
+    /**
+     * 设置集合以{@link java.util.concurrent.ForkJoinPool#commonPool()}并行映射
+     *
+     * @param threshold 并行映射的最小数量
+     * @return 自身
+     * @see #mapParallel(Collection, BuildContext, Executor, int)
+     */
+    public DefaultViewMapperImpl parallel(int threshold) {
+        return parallel(null, threshold);
+    }
+
+    /**
+     * 设置集合以指定线程池并行映射
+     *
+     * @param executor  线程池，为空时使用{@link java.util.concurrent.ForkJoinPool#commonPool()}
+     * @param threshold 并行映射的最小数量
+     * @return 自身
+     * @see #mapParallel(Collection, BuildContext, Executor, int)
+     */
+    public DefaultViewMapperImpl parallel(Executor executor, int threshold) {
+        this.parallel = true;
+        this.parallelExecutor = executor;
+        this.parallelThreshold = threshold;
+        return this;
+    }
 
     /**
      * 映射结果
@@ -40,6 +75,18 @@ public class DefaultViewMapperImpl implements ViewMapper {
         return (V) mapper.apply(buildContext, model);
     }
 
+    /**
+     * 映射结果，设置了并行映射时按{@link #parallel(Executor, int)}的配置并行映射
+     *
+     * @param models       原模型数据集合
+     * @param buildContext 上下文
+     * @return View结果，与输入顺序一致
+     */
+    @Override
+    public <M, V> List<V> map(Collection<M> models, BuildContext buildContext) {
+        return parallel ? mapParallel(models, buildContext, parallelExecutor, parallelThreshold) : ViewMapper.super.map(models, buildContext);
+    }
+
     private BiFunction getMapper(Class<?> modelType) {
         return modelTypeCache.computeIfAbsent(modelType, t -> {
             BiFunction<?, ?, ?> result = mappers.get(t);
@@ -0,0 +1,242 @@
+package com.msl.view.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * 编译期查找View子类（未标记{@link com.msl.view.annotation.ViewIgnore}），为每个包生成
+ * {@link com.msl.view.ViewRegistry}的实现并写入META-INF/services，启动时不再扫描包
+ * <p>
+ * 与{@link com.msl.view.ViewScanner}扫描的范围一致：只处理顶层的非抽象类，注册其public的
+ * (model)、(model, BuildContext)、(model, BuildContext, ViewMapper)构造方法；构造方法抛出异常时与扫描注册一致，记录日志并返回null
+ * <p>
+ * 增量编译时合并该包已有注册类中记录的View（{@code VIEWS}），已删除的View随之移除
+ *
+ * @author wanglq
+ * Date 2022/11/28
+ * Time 15:45
+ */
+@SupportedAnnotationTypes("*")
+public class ViewRegistryProcessor extends AbstractProcessor {
+    private static final String VIEW = "com.msl.view.View";
+    private static final String VIEW_IGNORE = "com.msl.view.annotation.ViewIgnore";
+    private static final String VIEW_REGISTRY = "com.msl.view.ViewRegistry";
+    private static final String BUILD_CONTEXT = "com.msl.model.builder.context.BuildContext";
+    private static final String VIEW_MAPPER = "com.msl.view.mapper.ViewMapper";
+    private static final String VIEW_SCANNER = "com.msl.view.ViewScanner";
+    private static final String REGISTRY_NAME = "GeneratedViewRegistry";
+    private static final String VIEWS_FIELD = "VIEWS";
+    private static final String SERVICE_FILE = "META-INF/services/" + VIEW_REGISTRY;
+
+    private final Set<String> registries = new TreeSet<>();
+    private final Set<String> generatedNames = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement view = processingEnv.getElementUtils().getTypeElement(VIEW);
+        if (view == null) {
+            return false;
+        }
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        Map<String, List<TypeElement>> views = new LinkedHashMap<>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            if (isView(type, view)) {
+                String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+                views.computeIfAbsent(pkg, p -> new ArrayList<>()).add(type);
+            }
+        }
+        views.forEach((pkg, types) -> generate(pkg, types, view));
+        // 不占用注解，其他处理器照常执行
+        return false;
+    }
+
+    private boolean isView(TypeElement type, TypeElement view) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+        if (!(type.getEnclosingElement() instanceof PackageElement)) {
+            return false;
+        }
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(VIEW_IGNORE)) {
+                return false;
+            }
+        }
+        return processingEnv.getTypeUtils().isSubtype(erasure(type.asType()), erasure(view.asType()));
+    }
+
+    private void generate(String pkg, List<TypeElement> views, TypeElement view) {
+        mergeExisting(pkg, views, view);
+        List<String> registrations = new ArrayList<>();
+        for (TypeElement type : views) {
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                    String registration = registration(type, constructor);
+                    if (registration != null) {
+                        registrations.add(registration);
+                    }
+                }
+            }
+        }
+        if (registrations.isEmpty()) {
+            return;
+        }
+        String simpleName = REGISTRY_NAME;
+        String name = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        for (int i = 2; !generatedNames.add(name); i++) {
+            simpleName = REGISTRY_NAME + i;
+            name = pkg.isEmpty() ? simpleName : pkg + "." + simpleName;
+        }
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, views.toArray(new Element[0])).openWriter()) {
+            writer.write(source(pkg, simpleName, views, registrations));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "fail to generate " + name + ": " + e);
+            return;
+        }
+        registries.add(name);
+    }
+
+    /**
+     * 增量编译时只有修改过的View是本轮的源文件：合并该包已有注册类中记录的、仍存在的View
+     */
+    private void mergeExisting(String pkg, List<TypeElement> views, TypeElement view) {
+        String name = pkg.isEmpty() ? REGISTRY_NAME : pkg + "." + REGISTRY_NAME;
+        TypeElement existing = generatedNames.contains(name) ? null : processingEnv.getElementUtils().getTypeElement(name);
+        if (existing == null) {
+            return;
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(existing.getEnclosedElements())) {
+            if (!field.getSimpleName().contentEquals(VIEWS_FIELD) || !(field.getConstantValue() instanceof String)) {
+                continue;
+            }
+            for (String viewName : ((String) field.getConstantValue()).split(",")) {
+                TypeElement type = processingEnv.getElementUtils().getTypeElement(viewName);
+                if (type != null && !views.contains(type) && isView(type, view)) {
+                    views.add(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * 与{@link com.msl.view.ViewScanner}支持的构造方法一致，其他构造方法返回null
+     */
+    private String registration(TypeElement type, ExecutableElement constructor) {
+        List<TypeMirror> params = new ArrayList<>();
+        constructor.getParameters().forEach(p -> params.add(p.asType()));
+        if (params.isEmpty() || params.size() > 3) {
+            return null;
+        }
+        TypeMirror model = erasure(params.get(0));
+        if (model.getKind() != TypeKind.DECLARED && model.getKind() != TypeKind.ARRAY) {
+            return null;
+        }
+        String arguments;
+        if (params.size() == 1) {
+            arguments = "model";
+        } else if (isType(params.get(1), BUILD_CONTEXT) && (params.size() == 2 || isType(params.get(2), VIEW_MAPPER))) {
+            arguments = params.size() == 2 ? "model, context" : "model, context, viewMapper";
+        } else {
+            return null;
+        }
+        String diamond = type.getTypeParameters().isEmpty() ? "" : "<>";
+        return String.format("        viewMapper.addMapper(%1$s.class, %6$s.guarded((%2$s context, %1$s model) -> new %3$s%4$s(%5$s)));%n",
+                model, BUILD_CONTEXT, type.getQualifiedName(), diamond, arguments, VIEW_SCANNER);
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        return erasure(type).toString().equals(name);
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private static String source(String pkg, String simpleName, List<TypeElement> views, List<String> registrations) {
+        StringJoiner viewNames = new StringJoiner(",");
+        views.forEach(v -> viewNames.add(v.getQualifiedName()));
+        StringBuilder source = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            source.append("package ").append(pkg).append(";\n\n");
+        }
+        source.append("/**\n * 由").append(ViewRegistryProcessor.class.getName()).append("生成\n */\n")
+                .append("public final class ").append(simpleName).append(" implements ").append(VIEW_REGISTRY).append(" {\n")
+                .append("    /**\n     * 注册的View，增量编译时合并\n     */\n")
+                .append("    public static final String ").append(VIEWS_FIELD).append(" = \"").append(viewNames).append("\";\n\n")
+                .append("    @Override\n")
+                .append("    public String basePackage() {\n")
+                .append("        return \"").append(pkg).append("\";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void register(").append(VIEW_MAPPER).append(" viewMapper) {\n");
+        registrations.forEach(source::append);
+        source.append("    }\n}\n");
+        return source.toString();
+    }
+
+    /**
+     * 合并已有的服务文件，增量编译时保留其他包的注册类
+     */
+    private void writeServiceFile() {
+        if (registries.isEmpty()) {
+            return;
+        }
+        Set<String> lines = new TreeSet<>(registries);
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                reader.lines().map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#")).forEach(lines::add);
+            }
+        } catch (IOException e) {
+            // 没有已有的服务文件
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "fail to write " + SERVICE_FILE + ": " + e);
+        }
+    }
+}
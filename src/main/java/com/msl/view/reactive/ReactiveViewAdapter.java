@@ -0,0 +1,342 @@
+package com.msl.view.reactive;
+
+import com.msl.model.builder.ModelBuilder;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.view.mapper.ViewMapper;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 响应式构建与映射
+ * <p>
+ * 将原始数据的Publisher转换为View的Publisher：上游数据按批次收集，每批以一个上下文异步构建并映射，
+ * View按上游顺序发出。onNext中只做收集，构建与映射在线程池中执行；
+ * 上游最多预取 batchSize * concurrency 个数据，某批View全部发出后才继续请求上游，下游按request(n)接收。
+ * 批次在收满或上游结束时提交。对上游的request、cancel都在drain中发出，不会并发调用（Reactive Streams §2.7）。
+ * <p>
+ * 基于Reactive Streams接口（Java 8可用），Java 9+ 的 {@code java.util.concurrent.Flow} 通过
+ * {@code org.reactivestreams.FlowAdapters} 互转：
+ * <pre>
+ * Flow.Publisher&lt;PostView&gt; views = FlowAdapters.toFlowPublisher(adapter.map(FlowAdapters.toPublisher(posts)));
+ * </pre>
+ *
+ * @author wanglq
+ * Date 2022/11/18
+ * Time 16:40
+ */
+public class ReactiveViewAdapter {
+    private final ModelBuilder modelBuilder;
+    private final ViewMapper viewMapper;
+    private final int batchSize;
+    private final int concurrency;
+    private final Executor executor;
+    private final Supplier<? extends BuildContext> contextFactory;
+
+    private ReactiveViewAdapter(Builder builder) {
+        this.modelBuilder = builder.modelBuilder;
+        this.viewMapper = builder.viewMapper;
+        this.batchSize = builder.batchSize;
+        this.concurrency = builder.concurrency;
+        this.executor = builder.executor;
+        this.contextFactory = builder.contextFactory;
+    }
+
+    /**
+     * @param modelBuilder 构建器，为空时只映射（如ViewScanner.viewMapper返回的映射器会在映射时构建）
+     * @param viewMapper   映射器
+     * @return 适配器的构建者
+     */
+    public static Builder newBuilder(ModelBuilder modelBuilder, ViewMapper viewMapper) {
+        return new Builder(modelBuilder, viewMapper);
+    }
+
+    /**
+     * 转换为View的Publisher，每次订阅都会订阅一次上游
+     *
+     * @param source 原始数据
+     * @param <M>    模型类型
+     * @param <V>    View类型
+     * @return View的Publisher
+     */
+    public <M, V> Publisher<V> map(Publisher<M> source) {
+        return subscriber -> {
+            if (subscriber == null) {
+                throw new NullPointerException("subscriber");
+            }
+            source.subscribe(new MapSubscription<M, V>(subscriber));
+        };
+    }
+
+    /**
+     * 一次订阅：对上游是Subscriber，对下游是Subscription
+     */
+    private final class MapSubscription<M, V> implements Subscriber<M>, Subscription {
+        private final Subscriber<? super V> downstream;
+        private final Queue<Batch<V>> batches = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+        private Subscription upstream;
+        /**
+         * 收集中的批次，只在上游信号中访问
+         */
+        private List<M> collecting = new ArrayList<>(batchSize);
+        private volatile boolean upstreamDone;
+        private volatile Throwable upstreamError;
+        private volatile Throwable requestError;
+        private volatile boolean cancelled;
+        private boolean terminated;
+        /**
+         * 是否已向上游发出初始请求、是否已取消上游，只在drain中访问
+         */
+        private boolean upstreamRequested;
+        private boolean upstreamCancelled;
+
+        private MapSubscription(Subscriber<? super V> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscription.cancel();
+                return;
+            }
+            this.upstream = subscription;
+            downstream.onSubscribe(this);
+            drain();
+        }
+
+        @Override
+        public void onNext(M model) {
+            if (upstreamDone || cancelled) {
+                return;
+            }
+            collecting.add(model);
+            if (collecting.size() >= batchSize) {
+                dispatch();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (upstreamDone) {
+                return;
+            }
+            upstreamError = throwable;
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            if (upstreamDone) {
+                return;
+            }
+            if (!collecting.isEmpty()) {
+                dispatch();
+            }
+            upstreamDone = true;
+            drain();
+        }
+
+        private void dispatch() {
+            List<M> models = collecting;
+            collecting = new ArrayList<>(batchSize);
+            // 构建始终提交到线程池，不在onNext所在线程上执行
+            Batch<V> batch = new Batch<>(CompletableFuture.completedFuture(models)
+                    .thenComposeAsync(ms -> {
+                        BuildContext context = contextFactory.get();
+                        return modelBuilder == null
+                                ? CompletableFuture.completedFuture(context)
+                                : modelBuilder.buildMultiAsync(ms, context).thenApply(v -> context);
+                    }, executor)
+                    .thenApplyAsync(context -> viewMapper.<M, V>map(models, context), executor));
+            batches.add(batch);
+            batch.views.whenComplete((views, e) -> drain());
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("request must be positive: " + n);
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                drain();
+            }
+        }
+
+        /**
+         * 按顺序发出已完成批次中的View，同一时刻只有一个线程执行
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    cancelUpstream();
+                    batches.clear();
+                } else if (!upstreamRequested && !terminated) {
+                    upstreamRequested = true;
+                    upstream.request((long) batchSize * concurrency);
+                }
+                if (requestError != null && !terminated && !cancelled) {
+                    terminate(requestError);
+                }
+                long demand = requested.get();
+                long emitted = 0;
+                while (!cancelled && !terminated) {
+                    Batch<V> head = batches.peek();
+                    if (head == null || !head.views.isDone()) {
+                        break;
+                    }
+                    List<V> views;
+                    try {
+                        views = head.views.join();
+                    } catch (Throwable e) {
+                        terminate(e.getCause() != null ? e.getCause() : e);
+                        break;
+                    }
+                    if (head.index >= views.size()) {
+                        batches.poll();
+                        if (!upstreamDone) {
+                            upstream.request(batchSize);
+                        }
+                        continue;
+                    }
+                    if (emitted == demand) {
+                        break;
+                    }
+                    V view = views.get(head.index++);
+                    if (view != null) {
+                        downstream.onNext(view);
+                        emitted++;
+                    }
+                }
+                if (!cancelled && !terminated && upstreamDone && batches.isEmpty()) {
+                    terminate(upstreamError);
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate(Throwable e) {
+            terminated = true;
+            if (e != null) {
+                cancelUpstream();
+                batches.clear();
+                downstream.onError(e);
+            } else {
+                downstream.onComplete();
+            }
+        }
+
+        private void cancelUpstream() {
+            if (!upstreamCancelled) {
+                upstreamCancelled = true;
+                upstream.cancel();
+            }
+        }
+    }
+
+    private static final class Batch<V> {
+        private final CompletableFuture<List<V>> views;
+        /**
+         * 下一个待发出的View，只在drain中访问
+         */
+        private int index;
+
+        private Batch(CompletableFuture<List<V>> views) {
+            this.views = views;
+        }
+    }
+
+    public static final class Builder {
+        private final ModelBuilder modelBuilder;
+        private final ViewMapper viewMapper;
+        private int batchSize = 100;
+        private int concurrency = 2;
+        private Executor executor = ForkJoinPool.commonPool();
+        private Supplier<? extends BuildContext> contextFactory = SimpleBuildContext::new;
+
+        private Builder(ModelBuilder modelBuilder, ViewMapper viewMapper) {
+            this.modelBuilder = modelBuilder;
+            this.viewMapper = viewMapper;
+        }
+
+        /**
+         * 每批构建的数据量，默认100
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("batchSize must be positive");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 同时构建的批次数，默认2
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * 构建与映射使用的线程池，默认ForkJoinPool.commonPool()，构造器阻塞时应单独指定
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * 每批上下文的创建方式，默认SimpleBuildContext
+         */
+        public Builder context(Supplier<? extends BuildContext> contextFactory) {
+            this.contextFactory = contextFactory;
+            return this;
+        }
+
+        public ReactiveViewAdapter build() {
+            return new ReactiveViewAdapter(this);
+        }
+    }
+}
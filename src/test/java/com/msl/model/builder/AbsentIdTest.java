@@ -0,0 +1,169 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.builder.support.NegativeCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 不存在id的墓碑与共享的不存在id缓存
+ */
+class AbsentIdTest {
+    private static final int DELETED_USER = 101;
+
+    private final TestDao testDao = new TestDao();
+    private final List<Integer> requestedUsers = new CopyOnWriteArrayList<>();
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        requestedUsers.addAll(ids);
+        return testDao.getUsers(ids);
+    }
+
+    private static Map<Long, Comment> getComments(Collection<Long> ids) {
+        return ids.stream().collect(toMap(identity(), id -> new Comment(id, DELETED_USER, Collections.singletonList(2))));
+    }
+
+    private DefaultModelBuilder builder() {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Comment.class, Comment::getUserId, User.class)
+                .extractId(Comment.class, Comment::getAtUserIds, User.class)
+                .buildValue(Comment.class, AbsentIdTest::getComments)
+                .buildValue(User.class, this::getUsers);
+        return builder;
+    }
+
+    @Test
+    void testNotRefetchedAcrossRoundsAndNestedBuilds() {
+        testDao.assertOn();
+        DefaultModelBuilder builder = builder();
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildSingle(new Post(1, DELETED_USER, Arrays.asList(1L, 2L)), context);
+        builder.buildSingle(new Post(2, DELETED_USER, null), context);
+
+        assertNull(context.getData(User.class, DELETED_USER));
+        assertEquals(Collections.singleton(DELETED_USER), context.getAbsentIds(User.class));
+        assertEquals(1, Collections.frequency(requestedUsers, DELETED_USER));
+        assertNotNull(context.getData(User.class, 2));
+    }
+
+    @Test
+    void testPipelinedBuild() {
+        testDao.assertOn();
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder().pipelined(true).buildSingle(new Post(1, DELETED_USER, Arrays.asList(1L, 2L)), context);
+        assertEquals(1, Collections.frequency(requestedUsers, DELETED_USER));
+        assertTrue(context.getAbsentIds(User.class).contains(DELETED_USER));
+    }
+
+    @Test
+    void testLazyBuild() {
+        testDao.assertOn();
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .lazyBuild(User.class, this::getUsers, User.class);
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(Arrays.asList(new Post(1, 1, null), new Post(2, DELETED_USER, null)), context);
+        assertNull(context.getData(User.class, DELETED_USER));
+        assertNull(context.getData(User.class, DELETED_USER));
+        assertNotNull(context.getData(User.class, 1));
+        assertEquals(1, Collections.frequency(requestedUsers, DELETED_USER));
+    }
+
+    @Test
+    void testMergeKeepsTombstones() {
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder().buildSingle(new Post(1, DELETED_USER, null), context);
+        SimpleBuildContext merged = new SimpleBuildContext();
+        merged.merge(context);
+        assertTrue(merged.getAbsentIds(User.class).contains(DELETED_USER));
+    }
+
+    @Test
+    void testNegativeCacheAcrossContexts() {
+        NegativeCache negativeCache = new NegativeCache(1000, 1, TimeUnit.MINUTES);
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, negativeCache.wrap(User.class, this::getUsers));
+        for (int i = 0; i < 3; i++) {
+            builder.buildMulti(Arrays.asList(new Post(1, 1, null), new Post(2, DELETED_USER, null)), new SimpleBuildContext());
+        }
+        assertEquals(1, Collections.frequency(requestedUsers, DELETED_USER));
+        assertEquals(3, Collections.frequency(requestedUsers, 1));
+        assertEquals(2, negativeCache.getFilteredCount());
+        assertTrue(negativeCache.isAbsent(User.class, DELETED_USER));
+        assertFalse(negativeCache.isAbsent("isFollowing", DELETED_USER));
+
+        negativeCache.invalidate(User.class, DELETED_USER);
+        assertFalse(negativeCache.isAbsent(User.class, DELETED_USER));
+    }
+
+    @Test
+    void testNegativeCacheRebuild() {
+        NegativeCache negativeCache = new NegativeCache(100, 1, TimeUnit.MINUTES);
+        Function<Collection<Integer>, Map<Integer, User>> users = negativeCache.wrap(User.class, ids -> Collections.emptyMap());
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(i);
+        }
+        users.apply(ids);
+        int absent = 0;
+        for (int i = 0; i < 500; i++) {
+            if (negativeCache.isAbsent(User.class, i)) {
+                absent++;
+            }
+        }
+        assertTrue(absent <= 100, "bounded by maximum size: " + absent);
+        assertTrue(absent > 0);
+    }
+
+    @Test
+    void testNegativeCacheConcurrentRebuild() throws Exception {
+        NegativeCache negativeCache = new NegativeCache(4000, 1, TimeUnit.MINUTES);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    int lost = 0;
+                    for (long i = 0; i < 5000; i++) {
+                        long id = i * 8 + thread;
+                        negativeCache.markAbsent(User.class, Collections.singleton(id));
+                        // 其他线程的重建不应丢失刚写入的记录
+                        if (!negativeCache.isAbsent(User.class, id)) {
+                            lost++;
+                        }
+                    }
+                    return lost;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
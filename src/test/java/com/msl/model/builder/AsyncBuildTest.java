@@ -0,0 +1,106 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步构造器
+ */
+class AsyncBuildTest {
+    private final TestDao testDao = new TestDao();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testBuildMultiAsync() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Comment.class, Comment::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, "commentIds")
+                .buildValueAsync("commentIds", (Collection<Long> ids) -> later(testDao.getComments(ids)), Comment.class)
+                .buildValueAsync(User.class, (Collection<Integer> ids) -> later(testDao.getUsers(ids)));
+        SimpleBuildContext context = new SimpleBuildContext();
+
+        CompletionStage<Void> stage = builder.buildMultiAsync(
+                Arrays.asList(new Post(2, 1, Arrays.asList(1L, 2L, 3L)), new Post(3, 3, null)), context);
+        assertFalse(stage.toCompletableFuture().isDone());
+        stage.toCompletableFuture().join();
+
+        assertEquals(3, context.getData(Comment.class).size());
+        Map<Integer, User> users = context.getData(User.class);
+        assertEquals(3, users.size());
+        assertNotNull(users.get(2));
+    }
+
+    @Test
+    void testBlockingBuildWithAsyncBuilder() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValueAsync(User.class, (Collection<Integer> ids) -> later(testDao.getUsers(ids)))
+                .buildValue(User.class, (Collection<Integer> ids) -> testDao.isFans(1, ids), "isFans");
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildSingle(new Post(1, 5, null), context);
+        assertEquals(new User(5), context.getData(User.class, 5));
+        assertEquals(true, context.getData("isFans", 5));
+    }
+
+    @Test
+    void testLazyBuildAsync() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .lazyBuildAsync(User.class, (Collection<Integer> ids) -> later(testDao.getUsers(ids)), User.class);
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMultiAsync(Arrays.asList(new Post(1, 1, null), new Post(2, 2, null)), context)
+                .toCompletableFuture().join();
+        assertTrue(context.getCachedData(User.class).isEmpty());
+        assertEquals(new User(2), context.getData(User.class, 2));
+    }
+
+    @Test
+    void testAsyncFailure() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValueAsync(User.class, (Collection<Integer> ids) -> {
+                    CompletableFuture<Map<Integer, User>> future = new CompletableFuture<>();
+                    scheduler.schedule(() -> future.completeExceptionally(new IllegalStateException("timeout")),
+                            10, TimeUnit.MILLISECONDS);
+                    return future;
+                });
+        CompletableFuture<Void> future = builder.buildMultiAsync(
+                Arrays.asList(new Post(1, 1, null)), new SimpleBuildContext()).toCompletableFuture();
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> builder.buildSingle(new Post(1, 1, null), new SimpleBuildContext()));
+    }
+
+    private <K, V> CompletableFuture<Map<K, V>> later(Map<K, V> result) {
+        CompletableFuture<Map<K, V>> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(result.keySet().stream()
+                .collect(toMap(identity(), (Function<K, V>) result::get))), 50, TimeUnit.MILLISECONDS);
+        return future;
+    }
+}
@@ -0,0 +1,129 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 构造器调用选项
+ */
+class BuildOptionsTest {
+    private final List<List<Integer>> calls = new CopyOnWriteArrayList<>();
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        calls.add(new ArrayList<>(ids));
+        // 与TestDao一致，id重复时toMap抛出异常
+        return ids.stream().collect(toMap(identity(), User::new));
+    }
+
+    private List<Post> posts(int count) {
+        List<Post> posts = IntStream.rangeClosed(1, count).mapToObj(i -> new Post(i, count + 1 - i, null)).collect(toList());
+        Collections.shuffle(posts);
+        return posts;
+    }
+
+    @Test
+    void testBatchSortedAndPadded() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, this::getUsers, User.class, BuildOptions.batch(4).sorted().buckets(i -> -1 - i, 2, 4));
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts(11), context);
+
+        // 补齐id的数据被丢弃
+        assertEquals(11, context.getData(User.class).size());
+        assertNull(context.getData(User.class, -1));
+        assertEquals(3, calls.size());
+        List<Integer> flat = new ArrayList<>();
+        for (List<Integer> call : calls) {
+            assertTrue(call.size() == 2 || call.size() == 4, "call size " + call.size());
+            assertEquals(call.size(), new HashSet<>(call).size());
+            flat.addAll(call);
+        }
+        assertEquals(Integer.valueOf(1), flat.get(0));
+        for (int i = 1; i < 11; i++) {
+            assertTrue(flat.get(i - 1) <= flat.get(i));
+        }
+        assertEquals(Arrays.asList(9, 10, 11, -1), calls.get(2));
+    }
+
+    @Test
+    void testParallelChunks() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ModelBuilder builder = new DefaultModelBuilder()
+                    .extractId(Post.class, Post::getUserId, User.class)
+                    .buildValue(User.class, (TestBuildContext context, Collection<Integer> ids) -> getUsers(ids), User.class,
+                            BuildOptions.batch(10).parallel(executor));
+            TestBuildContext context = new TestBuildContext(1);
+            builder.buildMulti(posts(95), context);
+            assertEquals(10, calls.size());
+            assertEquals(95, context.getData(User.class).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTimeoutWithBoundedExecutor() {
+        // 超时等待不占用线程池，拆分后的调用不会因线程池已满而饿死
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            ModelBuilder builder = new DefaultModelBuilder()
+                    .extractId(Post.class, Post::getUserId, User.class)
+                    .buildValue(User.class, this::getUsers, User.class,
+                            BuildOptions.batch(2).parallel(executor).timeout(5, TimeUnit.SECONDS));
+            SimpleBuildContext context = new SimpleBuildContext();
+            builder.buildMulti(posts(4), context);
+            assertEquals(2, calls.size());
+            assertEquals(4, context.getData(User.class).size());
+            assertFalse(context.isTimedOut(User.class));
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLazyBuildWithOptions() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .lazyBuild(User.class, this::getUsers, User.class, BuildOptions.batch(3));
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts(7), context);
+        assertTrue(calls.isEmpty());
+        assertEquals(new User(7), context.getData(User.class, 7));
+        assertEquals(3, calls.size());
+        assertEquals(7, context.getCachedData(User.class).size());
+    }
+
+    @Test
+    void testSmallBatchUnchanged() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, this::getUsers, User.class, BuildOptions.batch(100));
+        builder.buildMulti(posts(5), new SimpleBuildContext());
+        assertEquals(1, calls.size());
+        assertEquals(5, calls.get(0).size());
+    }
+}
@@ -0,0 +1,153 @@
+package com.msl.model.builder;
+
+import com.msl.model.utils.ClassScanner;
+import com.msl.view.View;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 只读取类文件头查找子类，不加载类
+ */
+class ClassScannerTest {
+    private static final String PACKAGE = "com.msl.view.scan";
+    private static final String VIEW = PACKAGE + ".InitializingView";
+    private static final String NOT_A_VIEW = PACKAGE + ".NotAView";
+
+    @Test
+    void testScanSubtypes() {
+        Set<String> views = new ClassScanner().scanSubtypes(PACKAGE, true, View.class);
+        // 抽象类与非View的类不在结果中
+        assertEquals(Collections.singleton(VIEW), views);
+        assertNull(System.getProperty(VIEW));
+
+        assertTrue(new ClassScanner().scanSubtypes("com.msl.view", true, View.class).contains(VIEW));
+        assertFalse(new ClassScanner().scanSubtypes("com.msl.view", false, View.class).contains(VIEW));
+    }
+
+    @Test
+    void testIndex(@TempDir Path dir) throws Exception {
+        File index = dir.resolve("scan.index").toFile();
+        assertEquals(Collections.singleton(VIEW), new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class));
+        List<String> lines = Files.readAllLines(index.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.stream().anyMatch(l -> l.contains("\t" + NOT_A_VIEW + "\t")));
+
+        // 修改时间未变的类文件使用索引中的类文件头
+        List<String> tampered = lines.stream()
+                .map(l -> l.contains("\t" + NOT_A_VIEW + "\t") ? l.replace("\tjava.lang.Object\t", "\t" + VIEW + "\t") : l)
+                .collect(Collectors.toList());
+        Files.write(index.toPath(), tampered, StandardCharsets.UTF_8);
+        assertTrue(new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class).contains(NOT_A_VIEW));
+
+        // 类文件修改后重新读取
+        File classFile = new File(getClass().getClassLoader().getResource(NOT_A_VIEW.replace('.', '/') + ".class").toURI());
+        assertTrue(classFile.setLastModified(classFile.lastModified() + 1000));
+        assertEquals(Collections.singleton(VIEW), new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class));
+    }
+
+    @Test
+    void testScanJar(@TempDir Path dir) throws Exception {
+        File jar = viewsJar(dir.resolve("views.jar"));
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            thread.setContextClassLoader(classLoader);
+            File index = dir.resolve("scan.index").toFile();
+            assertEquals(Collections.singleton(VIEW), new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class));
+            assertEquals(Collections.singleton(VIEW), new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class));
+            assertEquals(3, Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).size());
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    @Test
+    void testNestedJarAndBrokenRoot(@TempDir Path dir) throws Exception {
+        // 类似Spring Boot的BOOT-INF/lib：jar中的jar没有本地文件，只能由连接打开
+        File views = viewsJar(dir.resolve("views.jar"));
+        URLStreamHandler nested = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL url) throws IOException {
+                return new JarURLConnection(url) {
+                    @Override
+                    public JarFile getJarFile() throws IOException {
+                        return new JarFile(views);
+                    }
+
+                    @Override
+                    public void connect() {
+                    }
+                };
+            }
+        };
+        String packagePath = PACKAGE.replace('.', '/');
+        List<URL> roots = Arrays.asList(
+                new URL("jar:" + dir.resolve("missing.jar").toUri() + "!/" + packagePath),
+                new URL("jar", "", -1, "http://app/BOOT-INF/lib/views.jar!/" + packagePath, nested));
+        ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return name.equals(packagePath) ? Collections.enumeration(roots) : super.getResources(name);
+            }
+        };
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try {
+            thread.setContextClassLoader(classLoader);
+            File index = dir.resolve("scan.index").toFile();
+            // 无法打开的jar跳过，不影响其他jar
+            assertEquals(Collections.singleton(VIEW), new ClassScanner().index(index).scanSubtypes(PACKAGE, true, View.class));
+            // 嵌套jar中的类不写入索引
+            assertTrue(Files.readAllLines(index.toPath(), StandardCharsets.UTF_8).stream().noneMatch(l -> l.contains("views.jar")));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    private File viewsJar(Path path) throws Exception {
+        File jar = path.toFile();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+            for (String directory : new String[]{"com/", "com/msl/", "com/msl/view/", "com/msl/view/scan/"}) {
+                out.putNextEntry(new JarEntry(directory));
+                out.closeEntry();
+            }
+            for (String name : new String[]{View.class.getName(), PACKAGE + ".AbstractScanView", VIEW, NOT_A_VIEW}) {
+                copy(name.replace('.', '/') + ".class", out);
+            }
+        }
+        return jar;
+    }
+
+    private void copy(String resource, JarOutputStream out) throws Exception {
+        out.putNextEntry(new JarEntry(resource));
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            byte[] buffer = new byte[4096];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        out.closeEntry();
+    }
+}
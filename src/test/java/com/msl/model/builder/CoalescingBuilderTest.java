@@ -0,0 +1,146 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.builder.support.CoalescingBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 跨请求合并构造器调用
+ */
+class CoalescingBuilderTest {
+    private static final int REQUESTS = 50;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ExecutorService requests = Executors.newFixedThreadPool(REQUESTS);
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+    }
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        calls.incrementAndGet();
+        return ids.stream().filter(id -> id > 0).collect(toMap(identity(), User::new));
+    }
+
+    @Test
+    void testConcurrentBuildsCoalesced() throws Exception {
+        CoalescingBuilder<Integer, User> users = CoalescingBuilder.newBuilder(this::getUsers)
+                .maxDelay(50, TimeUnit.MILLISECONDS)
+                .maxBatch(10000)
+                .build();
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, users);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SimpleBuildContext>> futures = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            int userId = i + 1;
+            futures.add(requests.submit(() -> {
+                start.await();
+                SimpleBuildContext context = new SimpleBuildContext();
+                builder.buildMulti(Arrays.asList(new Post(userId, userId, null), new Post(-userId, 1000 + userId, null)), context);
+                return context;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < REQUESTS; i++) {
+            SimpleBuildContext context = futures.get(i).get();
+            Map<Integer, User> data = context.getData(User.class);
+            assertEquals(2, data.size(), "each caller gets only its own slice");
+            assertEquals(new User(i + 1), data.get(i + 1));
+            assertEquals(new User(1001 + i), data.get(1001 + i));
+        }
+        assertEquals(REQUESTS, users.getRequestCount());
+        assertTrue(calls.get() < REQUESTS / 5, "combined calls: " + calls.get());
+        assertEquals(calls.get(), users.getCallCount());
+    }
+
+    @Test
+    void testMaxBatchFlushesImmediately() {
+        CoalescingBuilder<Integer, User> users = CoalescingBuilder.newBuilder(this::getUsers)
+                .maxDelay(1, TimeUnit.HOURS)
+                .maxBatch(4)
+                .build();
+        CompletableFuture<Map<Integer, User>> first = users.applyAsync(Arrays.asList(1, 2));
+        assertFalse(first.isDone());
+        CompletableFuture<Map<Integer, User>> second = users.applyAsync(Arrays.asList(2, 3, 4));
+        assertTrue(first.isDone());
+        assertEquals(2, first.join().size());
+        assertEquals(3, second.join().size());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testRejectedBatchFails() {
+        ExecutorService shutdown = Executors.newSingleThreadExecutor();
+        shutdown.shutdown();
+        CoalescingBuilder<Integer, User> users = CoalescingBuilder.newBuilder(this::getUsers)
+                .maxDelay(1, TimeUnit.MILLISECONDS)
+                .executor(shutdown)
+                .build();
+        // 线程池拒绝执行时调用方得到异常，而不是一直等待
+        ExecutionException e = assertThrows(ExecutionException.class, () -> users.applyAsync(Arrays.asList(1, 2)).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void testDefaultTimerAndExecutor() {
+        List<String> timers = new ArrayList<>();
+        List<String> callers = new ArrayList<>();
+        CoalescingBuilder<Integer, User> users = CoalescingBuilder.<Integer, User>newBuilder(ids -> {
+            callers.add(Thread.currentThread().getName());
+            return getUsers(ids);
+        }).maxDelay(1, TimeUnit.MILLISECONDS).executor(command -> {
+            timers.add(Thread.currentThread().getName());
+            command.run();
+        }).build();
+        assertEquals(2, users.apply(Arrays.asList(1, 2)).size());
+        // 计时复用共享的build-timer，而不是另起定时线程
+        assertEquals(Arrays.asList("build-timer"), timers);
+
+        CoalescingBuilder<Integer, User> pooled = CoalescingBuilder.<Integer, User>newBuilder(ids -> {
+            callers.add(Thread.currentThread().getName());
+            return getUsers(ids);
+        }).maxDelay(1, TimeUnit.MILLISECONDS).build();
+        assertEquals(2, pooled.apply(Arrays.asList(1, 2)).size());
+        // 默认在有界的共享线程池中执行合并调用
+        assertTrue(callers.get(1).startsWith("coalescing-builder-"), callers.get(1));
+    }
+
+    @Test
+    void testAsyncRegistrationAndFailure() {
+        CoalescingBuilder<Integer, User> failing = CoalescingBuilder.<Integer, User>newBuilder(ids -> {
+            throw new IllegalStateException("user service down");
+        }).maxDelay(1, TimeUnit.MILLISECONDS).build();
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValueAsync(User.class, failing::applyAsync);
+        assertThrows(IllegalStateException.class, () -> builder.buildSingle(new Post(1, 1, null), new SimpleBuildContext()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 构建截止时间、构造器超时与取消
+ */
+class DeadlineTest {
+    private static final long SLOW_MILLIS = 5000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final AtomicInteger commentCalls = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Map<Long, Long> slowStats(Collection<Long> ids) {
+        try {
+            Thread.sleep(SLOW_MILLIS);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+        }
+        return ids.stream().collect(toMap(identity(), id -> id));
+    }
+
+    private Map<Long, Comment> getComments(Collection<Long> ids) {
+        commentCalls.incrementAndGet();
+        return ids.stream().collect(toMap(identity(), id -> new Comment(id, 1, null)));
+    }
+
+    private DefaultModelBuilder builder() {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Post.class, Post::getId, "stats")
+                .buildValue(User.class, (Collection<Integer> ids) -> ids.stream().collect(toMap(identity(), User::new)))
+                .buildValue("stats", this::slowStats);
+        return builder;
+    }
+
+    @Test
+    void testDeadlineCancelsOutstandingCalls() throws Exception {
+        SimpleBuildContext context = new SimpleBuildContext().deadline(200, TimeUnit.MILLISECONDS);
+        long millis = time(() -> builder().executor(executor).buildSingle(new Post(1, 1, null), context));
+
+        assertTrue(millis < SLOW_MILLIS / 2, "build took " + millis + "ms");
+        assertEquals(new User(1), context.getData(User.class, 1));
+        assertTrue(context.isTimedOut("stats"));
+        assertFalse(context.isTimedOut(User.class));
+        assertTrue(context.getCachedData("stats").isEmpty());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS), "outstanding call interrupted");
+    }
+
+    @Test
+    void testNoNewRoundsAfterDeadline() {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.extractId(Post.class, Post::getUserId, User.class)
+                .extractId(User.class, user -> (long) user.getId(), Comment.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    sleep(150);
+                    return ids.stream().collect(toMap(identity(), User::new));
+                })
+                .buildValue(Comment.class, this::getComments);
+        SimpleBuildContext context = new SimpleBuildContext().deadline(100, TimeUnit.MILLISECONDS);
+        builder.buildSingle(new Post(1, 1, null), context);
+
+        assertNotNull(context.getData(User.class, 1));
+        assertEquals(0, commentCalls.get());
+        assertTrue(context.isTimedOut(Comment.class));
+    }
+
+    @Test
+    void testBuilderTimeoutOption() throws Exception {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Post.class, Post::getId, "stats")
+                .buildValue(User.class, (Collection<Integer> ids) -> ids.stream().collect(toMap(identity(), User::new)))
+                .buildValue("stats", this::slowStats, "stats", BuildOptions.options().timeout(100, TimeUnit.MILLISECONDS));
+        SimpleBuildContext context = new SimpleBuildContext();
+        long millis = time(() -> builder.buildSingle(new Post(1, 1, null), context));
+
+        assertTrue(millis < SLOW_MILLIS / 2, "build took " + millis + "ms");
+        assertNotNull(context.getData(User.class, 1));
+        assertTrue(context.isTimedOut("stats"));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPipelinedAndAsyncDeadline() throws Exception {
+        SimpleBuildContext pipelined = new SimpleBuildContext().deadline(200, TimeUnit.MILLISECONDS);
+        long millis = time(() -> builder().executor(executor).pipelined(true).buildSingle(new Post(1, 1, null), pipelined));
+        assertTrue(millis < SLOW_MILLIS / 2, "pipelined build took " + millis + "ms");
+        assertNotNull(pipelined.getData(User.class, 1));
+        assertTrue(pipelined.isTimedOut("stats"));
+
+        SimpleBuildContext async = new SimpleBuildContext().deadline(200, TimeUnit.MILLISECONDS);
+        builder().executor(executor).buildMultiAsync(Arrays.asList(new Post(1, 1, null)), async)
+                .toCompletableFuture().get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertNotNull(async.getData(User.class, 1));
+        assertTrue(async.isTimedOut("stats"));
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
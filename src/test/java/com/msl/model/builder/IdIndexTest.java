@@ -0,0 +1,95 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.utils.ConcurrentIdIndex;
+import com.msl.model.utils.IdIndex;
+import com.msl.model.utils.PrimitiveIdSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上下文中的id索引
+ */
+class IdIndexTest {
+
+    @Test
+    void testWatermark() {
+        IdIndex<Object> index = new ConcurrentIdIndex();
+        index.addAll(Arrays.asList(1L, 2L, 3L));
+        int watermark = index.watermark();
+        assertEquals(3, watermark);
+        assertFalse(index.addAll(Arrays.asList(2L, 3L)));
+        assertTrue(index.addAll(Arrays.asList(3L, 4L, null, 5L)));
+        assertTrue(index.add(6L));
+        assertFalse(index.add(null));
+        assertEquals(Arrays.asList(4L, 5L, 6L), new ArrayList<>(index.idsSince(watermark)));
+        assertTrue(index.idsSince(index.watermark()).isEmpty());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), new ArrayList<>(index));
+        assertTrue(index.contains(5L));
+        assertFalse(index.contains(7L));
+        assertFalse(index.contains(null));
+    }
+
+    @Test
+    void testPrimitiveWatermark() {
+        PrimitiveIdSet.Concurrent index = PrimitiveIdSet.concurrent(true);
+        index.addAll(Arrays.asList(3, 1, 2));
+        int watermark = index.watermark();
+        index.addAll(Arrays.asList(2, 0, 9));
+        Collection<Object> since = index.idsSince(watermark);
+        assertTrue(since instanceof PrimitiveIdSet);
+        assertEquals(new HashSet<>(Arrays.asList(0, 9)), new HashSet<>(since));
+        assertEquals(Arrays.asList(3, 1, 2, 0, 9), new ArrayList<>(index));
+    }
+
+    @Test
+    void testConcurrentAdd() {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            IdIndex<Object> index = new ConcurrentIdIndex();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long from = t * 500L;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (long start = from; start < from + 2000; start += 100) {
+                        index.addAll(LongStream.range(start, start + 100).boxed().collect(Collectors.toList()));
+                        assertTrue(index.contains(start));
+                    }
+                }, executor));
+            }
+            futures.forEach(CompletableFuture::join);
+            assertEquals(5500, index.size());
+            List<Object> all = new ArrayList<>(index);
+            assertEquals(5500, all.size());
+            assertEquals(5500, new HashSet<>(all).size());
+            assertEquals(all.subList(5000, 5500), new ArrayList<>(index.idsSince(5000)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testContextIds() {
+        SimpleBuildContext context = new SimpleBuildContext();
+        context.getIds("postIds").addAll(Arrays.asList(1L, 2L));
+        IdIndex<Long> index = context.getIdIndex("postIds");
+        int watermark = index.watermark();
+        SimpleBuildContext other = new SimpleBuildContext();
+        other.getIds("postIds").addAll(Arrays.asList(2L, 3L));
+        context.merge(other);
+        assertEquals(Arrays.asList(3L), new ArrayList<>(index.idsSince(watermark)));
+        assertTrue(context.getIds(IntIdNamespace.of("userIds")) instanceof IdIndex);
+    }
+}
@@ -0,0 +1,159 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.builder.support.InFlightRegistry;
+import com.msl.model.utils.FutureUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 进行中id的去重
+ */
+class InFlightRegistryTest {
+    private final InFlightRegistry registry = new InFlightRegistry();
+    private final List<Integer> fetched = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService requests = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+    }
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        fetched.addAll(ids);
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ids.stream().filter(id -> id <= 100).collect(toMap(identity(), User::new));
+    }
+
+    @Test
+    void testHotIdFetchedOnce() throws Exception {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, registry.wrap(User.class, this::getUsers));
+
+        Future<SimpleBuildContext> first = requests.submit(() -> build(builder, 1, 2));
+        waitFetched(2);
+        Future<SimpleBuildContext> second = requests.submit(() -> build(builder, 1, 3));
+        waitFetched(3);
+        release.countDown();
+
+        assertEquals(2, first.get().getData(User.class).size());
+        Map<Integer, User> secondUsers = second.get().getData(User.class);
+        assertEquals(2, secondUsers.size());
+        assertEquals(new User(1), secondUsers.get(1));
+        assertEquals(Arrays.asList(1, 2, 3), sorted(fetched));
+        assertEquals(4, registry.getRequestedCount());
+        assertEquals(1, registry.getDeduplicatedCount());
+        assertEquals(1, registry.getDeduplicatedCount(User.class));
+        assertEquals(0, registry.getDeduplicatedCount("isFollowing"));
+    }
+
+    @Test
+    void testAbsentAndSequentialCalls() {
+        release.countDown();
+        Function<Collection<Integer>, Map<Integer, User>> users = registry.wrap(User.class, this::getUsers);
+        assertEquals(1, users.apply(Arrays.asList(1, 101)).size());
+        assertEquals(1, users.apply(Arrays.asList(1, 101)).size());
+        assertEquals(4, fetched.size(), "completed calls are not cached");
+        assertEquals(0, registry.getDeduplicatedCount());
+    }
+
+    @Test
+    void testAsyncWaiterRetriesAfterFailure() {
+        CompletableFuture<Map<Integer, User>> pending = new CompletableFuture<>();
+        List<Collection<Integer>> calls = new CopyOnWriteArrayList<>();
+        Function<Collection<Integer>, CompletableFuture<Map<Integer, User>>> users = registry.wrapAsync(User.class, ids -> {
+            calls.add(new ArrayList<>(ids));
+            return calls.size() == 1 ? pending : CompletableFuture.completedFuture(ids.stream().collect(toMap(identity(), User::new)));
+        });
+        CompletableFuture<Map<Integer, User>> owner = users.apply(Arrays.asList(1, 2));
+        CompletableFuture<Map<Integer, User>> waiter = users.apply(Arrays.asList(2, 3));
+        pending.completeExceptionally(new IllegalStateException("user service down"));
+
+        // 失败只属于领取id的调用，等待者重新领取后自行获取
+        assertThrows(IllegalStateException.class, () -> FutureUtil.join(owner));
+        Map<Integer, User> values = FutureUtil.join(waiter);
+        assertEquals(2, values.size());
+        assertEquals(new User(2), values.get(2));
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3), Arrays.asList(2)), calls);
+        assertEquals(1, registry.getDeduplicatedCount());
+        assertEquals(4, registry.getRequestedCount());
+    }
+
+    @Test
+    void testOwnerTimeoutDoesNotFailWaiter() throws Exception {
+        CountDownLatch ownerCalled = new CountDownLatch(1);
+        Function<Collection<Integer>, Map<Integer, User>> users = registry.wrap(User.class, ids -> {
+            fetched.addAll(ids);
+            if (fetched.size() == ids.size()) {
+                ownerCalled.countDown();
+                // 等待者登记后超时
+                long deadline = System.currentTimeMillis() + 5000;
+                while (registry.getDeduplicatedCount() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+                throw new BuildTimeoutException("owner timed out");
+            }
+            return ids.stream().collect(toMap(identity(), User::new));
+        });
+        Future<Map<Integer, User>> owner = requests.submit(() -> users.apply(Arrays.asList(1, 2)));
+        assertTrue(ownerCalled.await(5, TimeUnit.SECONDS));
+        Map<Integer, User> waiter = requests.submit(() -> users.apply(Arrays.asList(2))).get(5, TimeUnit.SECONDS);
+
+        ExecutionException e = assertThrows(ExecutionException.class, owner::get);
+        assertTrue(e.getCause() instanceof BuildTimeoutException);
+        assertEquals(Collections.singletonMap(2, new User(2)), waiter);
+        assertEquals(Arrays.asList(1, 2, 2), fetched);
+    }
+
+    private static SimpleBuildContext build(ModelBuilder builder, int... userIds) {
+        SimpleBuildContext context = new SimpleBuildContext();
+        List<Post> posts = new ArrayList<>();
+        for (int userId : userIds) {
+            posts.add(new Post(userId, userId, null));
+        }
+        builder.buildMulti(posts, context);
+        return context;
+    }
+
+    private void waitFetched(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fetched.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Integer> sorted(List<Integer> ids) {
+        List<Integer> list = new ArrayList<>(ids);
+        list.sort(null);
+        return list;
+    }
+}
@@ -0,0 +1,176 @@
+package com.msl.model.builder;
+
+import com.msl.base.Namespace;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.View;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 命名空间句柄与按序号存储
+ */
+class NamespaceTest {
+    private static final Namespace<Integer, User> USERS = Namespace.of(User.class);
+    private static final Namespace<Long, Comment> COMMENTS = Namespace.of("namespaceTestComments");
+    private static final Namespace<Integer, Boolean> FOLLOWING = Namespace.of("namespaceTestFollowing");
+
+    private final TestDao testDao = new TestDao();
+
+    private ModelBuilder builder() {
+        return builder(testDao);
+    }
+
+    private static ModelBuilder builder(TestDao testDao) {
+        return new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, USERS)
+                .extractId(Post.class, Post::getCommentIds, COMMENTS)
+                .buildValue(COMMENTS, testDao::getComments)
+                .buildValue(User.class, testDao::getUsers)
+                .lazyBuild(USERS, (Collection<Integer> ids) -> testDao.isFollowing(1, ids), FOLLOWING);
+    }
+
+    @Test
+    void testIntern() {
+        assertSame(USERS, Namespace.of(User.class));
+        assertSame(USERS, Namespace.of(USERS));
+        assertEquals(User.class, USERS.getIdentify());
+        assertEquals(USERS.ordinal(), Namespace.ordinal(User.class));
+        assertNotEquals(USERS.ordinal(), COMMENTS.ordinal());
+        assertTrue(COMMENTS.ordinal() < Namespace.count());
+
+        Namespace<Object, Object> copy = new Namespace<>(User.class);
+        assertEquals(USERS, copy);
+        assertEquals(USERS.ordinal(), copy.ordinal());
+        assertEquals(User.class, Namespace.identify(copy));
+        assertEquals("x", Namespace.identify("x"));
+    }
+
+    private void assertBuilt(BuildContext context) {
+        assertEquals(5, context.getData(COMMENTS).size());
+        assertSame(context.getData(COMMENTS), context.getData("namespaceTestComments"));
+        for (Comment comment : context.getData(COMMENTS).values()) {
+            User user = context.getData(USERS, comment.getUserId());
+            assertNotNull(user);
+            assertSame(user, context.getData(User.class, comment.getUserId()));
+            assertNotNull(context.getData(FOLLOWING, comment.getUserId()));
+        }
+        assertEquals(context.getIds(User.class), context.getIds(USERS));
+    }
+
+    @Test
+    void testBuild() {
+        testDao.assertOn();
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+        assertBuilt(context);
+
+        UnsynchronizedBuildContext unsynchronized = new UnsynchronizedBuildContext();
+        TestDao otherDao = new TestDao();
+        builder(otherDao).buildMulti(otherDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), unsynchronized);
+        assertBuilt(unsynchronized);
+
+        SimpleBuildContext merged = new SimpleBuildContext();
+        merged.merge(unsynchronized);
+        assertBuilt(merged);
+    }
+
+    @Test
+    void testSinkAndSharedData() {
+        Map<Object, Object> shared = new ConcurrentHashMap<>();
+        shared.put(1, new User(1));
+        ConcurrentMap<Object, Map<Object, Object>> data = new ConcurrentHashMap<>();
+        data.put(User.class, shared);
+        SimpleBuildContext context = new SimpleBuildContext(data);
+        assertSame(shared, context.getCachedData(USERS));
+
+        Map<Integer, Integer> built = new HashMap<>();
+        new DefaultModelBuilder()
+                .extract(Post.class, (post, sink) -> sink.id(USERS, post.getUserId()))
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    ids.forEach(id -> built.merge(id, 1, Integer::sum));
+                    return testDao.getUsers(ids);
+                })
+                .buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+        assertFalse(built.containsKey(1));
+        assertEquals(Collections.singleton(1), new HashSet<>(built.values()));
+        assertNotNull(context.getData(USERS, 2));
+        assertSame(shared.get(2), context.getData(USERS, 2));
+
+        // 按引用共享：上下文新增的命名空间放入调用方的Map，调用方之后放入的命名空间上下文也能读到
+        context.getCachedData("namespaceTestSharedNew").put(1, "a");
+        assertEquals("a", data.get("namespaceTestSharedNew").get(1));
+        data.put("namespaceTestSharedLater", new ConcurrentHashMap<>(Collections.singletonMap(1, "b")));
+        assertEquals("b", context.getCachedData("namespaceTestSharedLater", 1));
+    }
+
+    @Test
+    void testReadDoesNotIntern() {
+        SimpleBuildContext context = new SimpleBuildContext();
+        assertNull(context.getCachedData("namespaceTestNeverWritten", 1));
+        assertNull(new UnsynchronizedBuildContext().getCachedData("namespaceTestNeverWritten", 1));
+        assertNull(Namespace.lookup("namespaceTestNeverWritten"));
+
+        context.getCachedData("namespaceTestWritten").put(1, "a");
+        assertNotNull(Namespace.lookup("namespaceTestWritten"));
+        SimpleBuildContext merged = new SimpleBuildContext();
+        merged.merge(context);
+        assertEquals("a", merged.getCachedData("namespaceTestWritten", 1));
+    }
+
+    @Test
+    void testView() {
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L, 2L)).values(), context);
+        for (Post post : testDao.getPosts(Arrays.asList(1L, 2L)).values()) {
+            PostView view = new PostView(post, context);
+            assertEquals(post.getUserId(), view.author().getSource().getId());
+            assertNull(view.build(USERS, null, UserView::new));
+            assertTrue(view.buildList(Namespace.<Integer, List<User>>of("namespaceTestMissing"), 1, UserView::new).isEmpty());
+        }
+    }
+
+    private static class PostView extends View<Post> {
+        PostView(Post source, BuildContext context) {
+            super(source, context);
+        }
+
+        UserView author() {
+            return build(USERS, source.getUserId(), UserView::new);
+        }
+
+        @Override
+        protected <V extends View<D>, K, D> V build(Namespace<K, D> namespace, K key, BiFunction<D, BuildContext, V> view) {
+            return super.build(namespace, key, view);
+        }
+
+        @Override
+        protected <V extends View<D>, K, D> List<V> buildList(Namespace<K, ? extends List<D>> namespace, K key, BiFunction<D, BuildContext, V> view) {
+            return super.buildList(namespace, key, view);
+        }
+    }
+
+    private static class UserView extends View<User> {
+        UserView(User source, BuildContext context) {
+            super(source, context);
+        }
+    }
+}
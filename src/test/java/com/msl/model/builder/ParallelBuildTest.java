@@ -0,0 +1,108 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 同一轮构造器并发执行
+ */
+class ParallelBuildTest {
+    private static final long SLOW_MILLIS = 300;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testRoundTakesSlowestBuilder() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .executor(executor)
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> slow(ids, User::new))
+                .buildValue(User.class, (Collection<Integer> ids) -> slow(ids, id -> true), "isFollowing")
+                .buildValue(User.class, (Collection<Integer> ids) -> slow(ids, id -> false), "isFans");
+        List<Post> posts = Arrays.asList(new Post(1, 1, null), new Post(2, 2, null));
+        SimpleBuildContext context = new SimpleBuildContext();
+
+        long start = System.nanoTime();
+        builder.buildMulti(posts, context);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsed >= SLOW_MILLIS);
+        assertTrue(elapsed < SLOW_MILLIS * 2, "round took " + elapsed + "ms");
+        assertEquals(2, context.getData(User.class).size());
+        assertEquals(true, context.getData("isFollowing", 1));
+        assertEquals(false, context.getData("isFans", 2));
+    }
+
+    @Test
+    void testBuilderExceptionPropagates() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .executor(executor)
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    throw new IllegalStateException("dao failure");
+                });
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> builder.buildSingle(new Post(1, 1, null), new SimpleBuildContext()));
+        assertEquals("dao failure", e.getMessage());
+    }
+
+    @Test
+    void testOverlappingValueNamespace() {
+        assertEquals(1, fetchedUserIds(null));
+        assertEquals(1, fetchedUserIds(executor));
+    }
+
+    /**
+     * 两个id命名空间的构造器写入同一值命名空间，重叠的id只获取一次
+     */
+    private static int fetchedUserIds(ExecutorService executor) {
+        List<Collection<Integer>> calls = new CopyOnWriteArrayList<>();
+        Function<Collection<Integer>, Map<Integer, User>> dao = ids -> {
+            calls.add(ids);
+            return ids.stream().collect(toMap(identity(), User::new));
+        };
+        ModelBuilder builder = new DefaultModelBuilder()
+                .executor(executor)
+                .extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Comment.class, Comment::getUserId, "commentUsers")
+                .buildValue(User.class, dao::apply, User.class)
+                .buildValue("commentUsers", dao::apply, User.class);
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(Arrays.asList(new Post(1, 7, null), new Comment(1, 7, null)), context);
+        assertEquals(7, context.<Integer, User>getData(User.class, 7).getId());
+        return calls.stream().mapToInt(Collection::size).sum();
+    }
+
+    private static <V> Map<Integer, V> slow(Collection<Integer> ids, Function<Integer, V> mapper) {
+        try {
+            Thread.sleep(SLOW_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ids.stream().collect(toMap(identity(), mapper));
+    }
+}
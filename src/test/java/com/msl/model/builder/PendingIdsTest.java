@@ -0,0 +1,92 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.LazyBuildContext;
+import com.msl.model.builder.context.PendingIds;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 延迟构造只获取新写入的id
+ */
+class PendingIdsTest {
+
+    private void assertPending(LazyBuildContext context) {
+        context.getIds(User.class).addAll(Arrays.asList(1, 2, 3));
+        context.getCachedData(User.class).put(1, new User(1));
+        context.markAbsent(User.class, Collections.singleton(2));
+
+        PendingIds<Integer> pending = context.pendingIds(User.class, User.class);
+        assertEquals(Collections.singleton(3), pending.ids());
+        // 未完成获取时再次返回
+        assertEquals(Collections.singleton(3), context.pendingIds(User.class, User.class).ids());
+        pending.fetched();
+        assertTrue(context.pendingIds(User.class, User.class).ids().isEmpty());
+
+        context.getIds(User.class).addAll(Arrays.asList(3, 4, 5));
+        PendingIds<Integer> next = context.pendingIds(User.class, User.class);
+        assertEquals(new HashSet<>(Arrays.asList(4, 5)), next.ids());
+        // 各value命名空间的游标相互独立
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4, 5)), context.pendingIds(User.class, "userNames").ids());
+        next.fetched();
+        pending.fetched();
+        assertTrue(context.pendingIds(User.class, User.class).ids().isEmpty());
+    }
+
+    @Test
+    void testPendingIds() {
+        assertPending(new SimpleBuildContext());
+        assertPending(new UnsynchronizedBuildContext());
+    }
+
+    @Test
+    void testLazyBuild() {
+        List<Set<Integer>> requested = new ArrayList<>();
+        boolean[] fail = {true};
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> {
+                    requested.add(new HashSet<>(ids));
+                    if (fail[0]) {
+                        fail[0] = false;
+                        throw new IllegalStateException("dao failed");
+                    }
+                    Map<Integer, User> users = new HashMap<>();
+                    ids.stream().filter(id -> id < 100).forEach(id -> users.put(id, new User(id)));
+                    return users;
+                }, User.class);
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(Arrays.asList(new Post(1, 1, null), new Post(2, 2, null)), context);
+
+        assertThrows(IllegalStateException.class, () -> context.getData(User.class, 1));
+        assertNotNull(context.getData(User.class, 1));
+        assertEquals(Arrays.asList(set(1, 2), set(1, 2)), requested);
+
+        builder.buildMulti(Arrays.asList(new Post(3, 2, null), new Post(4, 3, null), new Post(5, 100, null)), context);
+        assertNotNull(context.getData(User.class, 3));
+        assertNull(context.getData(User.class, 100));
+        assertEquals(set(3, 100), requested.get(2));
+        int calls = requested.size();
+        assertTrue(requested.subList(3, calls).stream().allMatch(Set::isEmpty));
+    }
+
+    private static Set<Integer> set(Integer... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
@@ -0,0 +1,185 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流水线构建
+ */
+class PipelinedBuildTest {
+    private static final long FAST_MILLIS = 100;
+    private static final long SLOW_MILLIS = 400;
+
+    private final TestDao testDao = new TestDao();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * post -> comment -> user -> isFollowing，同时post上挂一个与下游无关的慢构造器
+     */
+    private DefaultModelBuilder deepGraph(boolean pipelined) {
+        DefaultModelBuilder builder = new DefaultModelBuilder().executor(executor).pipelined(pipelined);
+        builder.extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Post.class, Post::getId, "postStats")
+                .extractId(Comment.class, Comment::getUserId, User.class)
+                .extractId(User.class, User::getId, "followIds")
+                .buildValue(Comment.class, (Collection<Long> ids) -> sleep(FAST_MILLIS, () -> testDao.getComments(ids)))
+                .buildValue("postStats", (Collection<Long> ids) -> sleep(SLOW_MILLIS, () -> ids.stream().collect(toMap(identity(), id -> id * 10))))
+                .buildValue(User.class, (Collection<Integer> ids) -> sleep(FAST_MILLIS, () -> testDao.getUsers(ids)))
+                .buildValue("followIds", (Collection<Integer> ids) -> sleep(FAST_MILLIS, () -> testDao.isFollowing(1, ids)), "isFollowing");
+        return builder;
+    }
+
+    @Test
+    void testCriticalPath() {
+        List<Post> posts = Arrays.asList(new Post(2, 1, Arrays.asList(1L, 2L, 3L)), new Post(3, 2, Arrays.asList(4L, 5L)));
+
+        SimpleBuildContext roundContext = new SimpleBuildContext();
+        long roundMillis = time(() -> deepGraph(false).buildMulti(posts, roundContext));
+        SimpleBuildContext pipelinedContext = new SimpleBuildContext();
+        long pipelinedMillis = time(() -> deepGraph(true).buildMulti(posts, pipelinedContext));
+
+        assertTrue(roundMillis >= SLOW_MILLIS + 2 * FAST_MILLIS, "round build took " + roundMillis + "ms");
+        assertTrue(pipelinedMillis < SLOW_MILLIS + FAST_MILLIS, "pipelined build took " + pipelinedMillis + "ms");
+        assertEquals(roundContext.getData(Comment.class), pipelinedContext.getData(Comment.class));
+        assertEquals(roundContext.getData(User.class), pipelinedContext.getData(User.class));
+        assertEquals(roundContext.getData("isFollowing"), pipelinedContext.getData("isFollowing"));
+        assertEquals(5, pipelinedContext.getData(Comment.class).size());
+        assertEquals(true, pipelinedContext.getData("isFollowing", 2));
+        assertEquals(20L, pipelinedContext.<Long, Long>getData("postStats", 2L));
+    }
+
+    @Test
+    void testSameDataAsRoundBuild() {
+        testDao.assertOn();
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.executor(executor).pipelined(true)
+                .valueFromSelf(User.class, User::getId)
+                .valueFromSelf(Post.class, Post::getId)
+                .valueFromSelf(Comment.class, Comment::getId)
+                .extractId(Comment.class, Comment::getAtUserIds, User.class)
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .buildValue(User.class, testDao::getUsers)
+                .buildValue(Comment.class, testDao::getComments)
+                .buildValue(User.class, (Collection<Integer> ids) -> testDao.isFollowing(1, ids), "isFollowing");
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+
+        Map<Long, Comment> comments = context.getData(Comment.class);
+        assertEquals(5, comments.size());
+        for (Comment comment : comments.values()) {
+            assertNotNull(context.getData(User.class, comment.getUserId()));
+            assertNotNull(context.getData("isFollowing", comment.getUserId()));
+        }
+        assertNotNull(context.getData(User.class, 99));
+    }
+
+    @Test
+    void testFailure() {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.executor(executor).pipelined(true)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Comment.class, Comment::getUserId, User.class)
+                .buildValue(Comment.class, testDao::getComments)
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    throw new IllegalStateException("user service down");
+                });
+        assertThrows(IllegalStateException.class,
+                () -> builder.buildSingle(new Post(2, 1, Arrays.asList(1L, 2L)), new SimpleBuildContext()));
+    }
+
+    @Test
+    void testFailureCancelsOutstandingCalls() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.executor(executor).pipelined(true)
+                .extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Post.class, Post::getId, "postStats")
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    // 慢调用开始执行后再失败
+                    try {
+                        started.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("user service down");
+                })
+                .buildValue("postStats", (Collection<Long> ids) -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(SLOW_MILLIS);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return ids.stream().collect(toMap(identity(), id -> id));
+                });
+        assertThrows(IllegalStateException.class, () -> builder.buildSingle(new Post(2, 1, null), new SimpleBuildContext()));
+        assertTrue(interrupted.await(FAST_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testNoContextWriteAfterExpire() throws Exception {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.executor(executor).pipelined(true)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Comment.class, (Comment comment) -> {
+                    // 提取耗时超过截止时间，且不响应中断
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FAST_MILLIS * 2);
+                    while (System.nanoTime() < end) {
+                        Thread.yield();
+                    }
+                    return comment.getUserId();
+                }, User.class)
+                .buildValue(Comment.class, testDao::getComments)
+                .buildValue(User.class, testDao::getUsers);
+        SimpleBuildContext context = new SimpleBuildContext().deadline(FAST_MILLIS, TimeUnit.MILLISECONDS);
+        builder.buildSingle(new Post(2, 1, Arrays.asList(1L, 2L)), context);
+        Thread.sleep(FAST_MILLIS * 5);
+
+        // 到期后完成的提取不再写入上下文
+        assertTrue(context.getIds(User.class).isEmpty());
+        assertFalse(context.isTimedOut(User.class));
+        assertTrue(context.getCachedData(User.class).isEmpty());
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static <T> T sleep(long millis, Supplier<T> supplier) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return supplier.get();
+    }
+}
@@ -0,0 +1,189 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.utils.PrimitiveIdMap;
+import com.msl.model.utils.PrimitiveIdSet;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 整数id命名空间
+ */
+class PrimitiveIdNamespaceTest {
+    private static final IntIdNamespace USERS = IntIdNamespace.of(User.class);
+    private static final LongIdNamespace COMMENTS = LongIdNamespace.of(Comment.class);
+
+    private final TestDao testDao = new TestDao();
+
+    private DefaultModelBuilder builder() {
+        DefaultModelBuilder builder = new DefaultModelBuilder();
+        builder.extractId(Post.class, Post::getCommentIds, COMMENTS)
+                .extractId(HasUser.class, HasUser::getUserId, USERS)
+                .extractId(Post.class, Post::getId, "postIds")
+                .buildValue(COMMENTS, (Collection<Long> ids) -> {
+                    assertTrue((Collection<?>) ids instanceof PrimitiveIdSet);
+                    assertTrue(ids.iterator().next() instanceof Long);
+                    return testDao.getComments(ids);
+                })
+                .buildValue(USERS, (Collection<Integer> ids) -> {
+                    assertTrue((Collection<?>) ids instanceof PrimitiveIdSet);
+                    assertTrue(ids.iterator().next() instanceof Integer);
+                    return testDao.getUsers(ids);
+                })
+                .buildValue("postIds", (Collection<Long> ids) -> {
+                    assertTrue(ids instanceof HashSet);
+                    Map<Long, Long> values = new HashMap<>();
+                    ids.forEach(id -> values.put(id, id * 10));
+                    return values;
+                });
+        return builder;
+    }
+
+    private void assertBuilt(SimpleBuildContext context) {
+        assertTrue(context.getIds(COMMENTS) instanceof PrimitiveIdSet);
+        Map<Long, Comment> comments = context.getData(COMMENTS);
+        assertTrue(comments instanceof PrimitiveIdMap);
+        assertEquals(5, comments.size());
+        for (Comment comment : comments.values()) {
+            assertEquals(comment, context.getData(COMMENTS, comment.getId()));
+            assertNotNull(context.getData(USERS, comment.getUserId()));
+        }
+        assertNotNull(context.getData(USERS, 1));
+        assertNotNull(context.getData(USERS, 1L));
+        assertEquals(20L, context.<Long, Long>getData("postIds", 2L));
+    }
+
+    @Test
+    void testRoundBuild() {
+        testDao.assertOn();
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+        assertBuilt(context);
+    }
+
+    @Test
+    void testPipelinedBuild() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            testDao.assertOn();
+            SimpleBuildContext context = new SimpleBuildContext();
+            builder().executor(executor).pipelined(true).buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+            assertBuilt(context);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLazyBuild() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, USERS)
+                .lazyBuild(USERS, testDao::getUsers, USERS);
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(testDao.getPosts(Arrays.asList(1L, 2L)).values(), context);
+        assertTrue(context.getCachedData(USERS).isEmpty());
+        assertNotNull(context.getData(USERS, 1));
+        assertTrue(context.getCachedData(USERS) instanceof PrimitiveIdMap);
+    }
+
+    @Test
+    void testCollections() {
+        PrimitiveIdSet longIds = PrimitiveIdSet.longIds();
+        for (long i = 0; i < 10_000; i++) {
+            assertTrue(longIds.add(i * 31));
+        }
+        assertFalse(longIds.add(0L));
+        assertFalse(longIds.add(Integer.valueOf(31)));
+        assertEquals(10_000, longIds.size());
+        assertTrue(longIds.contains(0L));
+        assertTrue(longIds.contains(62));
+        assertFalse(longIds.contains(63L));
+        assertFalse(longIds.contains("31"));
+        assertEquals(10_000, new HashSet<>(longIds).size());
+        assertThrows(IllegalArgumentException.class, () -> longIds.add("1"));
+
+        PrimitiveIdSet intIds = PrimitiveIdSet.intIds();
+        intIds.addAll(Arrays.asList(-1, 0, 1, Integer.MAX_VALUE));
+        assertEquals(new HashSet<>(Arrays.asList(-1, 0, 1, Integer.MAX_VALUE)), intIds);
+
+        PrimitiveIdMap<String> map = PrimitiveIdMap.concurrent(false);
+        Map<Long, String> expected = new HashMap<>();
+        for (long i = -500; i < 500; i++) {
+            map.put(i, "v" + i);
+            expected.put(i, "v" + i);
+        }
+        assertEquals(expected, map);
+        assertEquals("v0", map.get(0L));
+        assertEquals("v-3", map.get(Integer.valueOf(-3)));
+        assertEquals("v7", map.put(7L, "x"));
+        assertEquals("x", map.get(7L));
+        assertNull(map.get(1000L));
+        assertEquals(1000, map.size());
+    }
+
+    @Test
+    void testConcurrentReadsDoNotLock() throws Exception {
+        PrimitiveIdMap<String> map = PrimitiveIdMap.concurrent(false);
+        PrimitiveIdSet.Concurrent set = PrimitiveIdSet.concurrent(false);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            // 写线程扩容的同时读线程读取已写入的id
+            Future<?> writes = writer.submit(() -> {
+                for (long i = 1; i <= 100_000; i++) {
+                    map.put(i, "v" + i);
+                    set.add(i);
+                }
+            });
+            while (!writes.isDone()) {
+                long written = set.size();
+                for (long i = 1; i <= written; i += 97) {
+                    assertTrue(set.contains(i));
+                }
+            }
+            writes.get();
+            assertEquals(100_000, map.size());
+            assertEquals(100_000, set.size());
+            assertEquals(100_000, set.watermark());
+
+            // 其他线程持有写锁时读取不等待
+            CountDownLatch locked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            writer.submit(() -> {
+                synchronized (map) {
+                    synchronized (set) {
+                        locked.countDown();
+                        release.await();
+                    }
+                }
+                return null;
+            });
+            locked.await();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals("v42", map.get(42L));
+                assertTrue(map.containsKey(42L));
+                assertTrue(set.contains(42L));
+                assertEquals(100_000, set.size());
+            });
+            release.countDown();
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.msl.model.builder;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.builder.support.SharedValueCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 跨请求共享缓存
+ */
+class SharedValueCacheTest {
+    private final List<List<Integer>> calls = new ArrayList<>();
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        calls.add(new ArrayList<>(ids));
+        return ids.stream().filter(id -> id <= 100).collect(toMap(identity(), User::new));
+    }
+
+    private static List<Post> posts(Integer... userIds) {
+        List<Post> posts = new ArrayList<>();
+        for (Integer userId : userIds) {
+            posts.add(new Post(userId, userId, null));
+        }
+        return posts;
+    }
+
+    @Test
+    void testOnlyMissesReachBuilder() {
+        SharedValueCache cache = new SharedValueCache();
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, cache.wrap(User.class, this::getUsers));
+
+        builder.buildMulti(posts(1, 2), new SimpleBuildContext());
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts(1, 2, 3, 101), context);
+
+        assertEquals(3, context.getData(User.class).size());
+        assertEquals(2, calls.size());
+        assertEquals(Arrays.asList(3, 101), sorted(calls.get(1)));
+        CacheStats stats = cache.stats(User.class);
+        assertEquals(2, stats.hitCount());
+        assertEquals(4, stats.missCount());
+    }
+
+    @Test
+    void testTenantScope() {
+        SharedValueCache cache = new SharedValueCache();
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .<Integer, TestBuildContext>buildValue(User.class,
+                        cache.wrap("isFollowing", (TestBuildContext context, Collection<Integer> ids) ->
+                                ids.stream().collect(toMap(identity(), id -> id == context.getVisitorId())), TestBuildContext::getVisitorId),
+                        "isFollowing");
+
+        TestBuildContext first = new TestBuildContext(1);
+        builder.buildMulti(posts(1, 2), first);
+        TestBuildContext second = new TestBuildContext(2);
+        builder.buildMulti(posts(1, 2), second);
+
+        assertEquals(true, first.getData("isFollowing", 1));
+        assertEquals(false, second.getData("isFollowing", 1));
+        assertEquals(true, second.getData("isFollowing", 2));
+        assertEquals(0, cache.stats("isFollowing").hitCount());
+        builder.buildMulti(posts(1, 2), new TestBuildContext(2));
+        assertEquals(2, cache.stats("isFollowing").hitCount());
+    }
+
+    @Test
+    void testNamespaceExpiryAndEviction() {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        SharedValueCache cache = new SharedValueCache()
+                .namespace(User.class, CacheBuilder.newBuilder().ticker(ticker).maximumSize(2).expireAfterWrite(1, TimeUnit.MINUTES));
+        Function<Collection<Integer>, Map<Integer, User>> users = cache.wrap(User.class, this::getUsers);
+
+        users.apply(Arrays.asList(1, 2, 3));
+        assertEquals(1, cache.stats(User.class).evictionCount());
+        users.apply(Arrays.asList(3));
+        assertEquals(1, calls.size());
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        users.apply(Arrays.asList(3));
+        assertEquals(2, calls.size());
+    }
+
+    private static List<Integer> sorted(List<Integer> ids) {
+        List<Integer> list = new ArrayList<>(ids);
+        list.sort(null);
+        return list;
+    }
+}
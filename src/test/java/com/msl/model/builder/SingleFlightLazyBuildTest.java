@@ -0,0 +1,212 @@
+package com.msl.model.builder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发渲染时同一命名空间的延迟构造只执行一次
+ */
+class SingleFlightLazyBuildTest {
+    private static final int THREADS = 16;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<String> loaders = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Map<Integer, User> loadUsers(Collection<Integer> ids, boolean fail) {
+        loads.incrementAndGet();
+        loaders.add(Thread.currentThread().getName());
+        sleep(200);
+        if (fail) {
+            throw new IllegalStateException("dao failed");
+        }
+        Map<Integer, User> users = new HashMap<>();
+        ids.forEach(id -> users.put(id, new User(id)));
+        return users;
+    }
+
+    private SimpleBuildContext build(boolean[] fail) {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> {
+                    boolean failing = fail[0];
+                    fail[0] = false;
+                    return loadUsers(ids, failing);
+                }, User.class);
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            posts.add(new Post(i, i % THREADS, null));
+        }
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts, context);
+        return context;
+    }
+
+    private <T> List<Future<T>> concurrently(Function<Integer, T> render) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int userId = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return render.apply(userId);
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    @Test
+    void testConcurrentRender() throws Exception {
+        SimpleBuildContext context = build(new boolean[]{false});
+        for (Future<User> future : concurrently(userId -> context.<Integer, User>getData(User.class, userId))) {
+            assertNotNull(future.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(THREADS, context.getData(User.class).size());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testLazyExecutor() throws Exception {
+        ExecutorService lazyExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("lazy-%d").build());
+        try {
+            SimpleBuildContext context = build(new boolean[]{false}).lazyExecutor(lazyExecutor);
+            for (Future<User> future : concurrently(userId -> context.<Integer, User>getData(User.class, userId))) {
+                assertNotNull(future.get());
+            }
+            assertEquals(1, loads.get());
+            assertTrue(loaders.get(0).startsWith("lazy-"), loaders.get(0));
+
+            SimpleBuildContext failing = build(new boolean[]{true}).lazyExecutor(lazyExecutor);
+            assertThrows(IllegalStateException.class, () -> failing.getData(User.class, 1));
+        } finally {
+            lazyExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSharedFailure() throws Exception {
+        SimpleBuildContext context = build(new boolean[]{true});
+        int failed = 0;
+        for (Future<User> future : concurrently(userId -> context.<Integer, User>getData(User.class, userId))) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                failed++;
+            }
+        }
+        assertEquals(THREADS, failed);
+        assertEquals(1, loads.get());
+        // 失败的id在下次访问时重新获取
+        assertNotNull(context.getData(User.class, 1));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testNestedLazyBuild() {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .extractId(HasUser.class, HasUser::getUserId, "userNames")
+                .lazyBuild(User.class, (SimpleBuildContext ctx, Collection<Integer> ids) -> {
+                    sleep(50);
+                    Map<Integer, User> users = new HashMap<>();
+                    // 嵌套触发另一个命名空间的延迟构造
+                    ids.forEach(id -> users.put(id, ctx.getData("userNames", id) == null ? null : new User(id)));
+                    return users;
+                }, User.class)
+                .lazyBuild(User.class, (SimpleBuildContext ctx, Collection<Integer> ids) -> {
+                    sleep(50);
+                    Map<Integer, String> names = new HashMap<>();
+                    ids.forEach(id -> names.put(id, "user" + id));
+                    return names;
+                }, "userNames");
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            posts.add(new Post(i, i, null));
+        }
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts, context);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (Future<Object> future : concurrently(userId -> userId % 2 == 0
+                    ? context.<Integer, Object>getData(User.class, userId) : context.<Integer, Object>getData("userNames", userId))) {
+                assertNotNull(future.get());
+            }
+        });
+        assertEquals(THREADS, context.getData(User.class).size());
+    }
+
+    @Test
+    void testNestedReadWaitsForOtherLeader() throws Exception {
+        AtomicInteger nameLoads = new AtomicInteger();
+        CountDownLatch namesStarted = new CountDownLatch(1);
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .extractId(HasUser.class, HasUser::getUserId, "userNames")
+                .lazyBuild(User.class, (SimpleBuildContext ctx, Collection<Integer> ids) -> {
+                    Map<Integer, User> users = new HashMap<>();
+                    ids.forEach(id -> users.put(id, ctx.getData("userNames", id) == null ? null : new User(id)));
+                    return users;
+                }, User.class)
+                .lazyBuild(User.class, (SimpleBuildContext ctx, Collection<Integer> ids) -> {
+                    nameLoads.incrementAndGet();
+                    namesStarted.countDown();
+                    sleep(200);
+                    Map<Integer, String> names = new HashMap<>();
+                    ids.forEach(id -> names.put(id, "user" + id));
+                    return names;
+                }, "userNames");
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            posts.add(new Post(i, i, null));
+        }
+        SimpleBuildContext context = new SimpleBuildContext();
+        builder.buildMulti(posts, context);
+
+        // 一个线程正在构造userNames时，另一个执行User延迟构造的线程读取userNames应等待它，而不是再执行一次
+        Future<Object> names = executor.submit(() -> context.getData("userNames", 1));
+        namesStarted.await();
+        Future<Object> user = executor.submit(() -> context.getData(User.class, 1));
+        assertNotNull(names.get());
+        assertNotNull(user.get());
+        assertEquals(1, nameLoads.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分块流式构建
+ */
+class StreamBuildTest {
+    private static final int POSTS = 10_000;
+    private static final int CHUNK = 100;
+    private static final int USERS = 20;
+
+    private final AtomicInteger userRequests = new AtomicInteger();
+
+    private Map<Integer, User> getUsers(Collection<Integer> ids) {
+        userRequests.addAndGet(ids.size());
+        return ids.stream().collect(toMap(identity(), User::new));
+    }
+
+    private static Map<Long, Comment> getComments(Collection<Long> ids) {
+        return ids.stream().collect(toMap(identity(), id -> new Comment(id, 1, null)));
+    }
+
+    private AbstractModelBuilder builder() {
+        return new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .buildValue(User.class, this::getUsers)
+                .buildValue(Comment.class, StreamBuildTest::getComments);
+    }
+
+    /**
+     * 按需生成原始数据，不预先创建全部
+     */
+    private static Iterator<Post> posts() {
+        return LongStream.rangeClosed(1, POSTS)
+                .mapToObj(id -> new Post(id, (int) (id % USERS), Collections.singletonList(id)))
+                .iterator();
+    }
+
+    @Test
+    void testChunkContextsAreBounded() {
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicInteger built = new AtomicInteger();
+        builder().buildStream(posts(), CHUNK, (chunk, context) -> {
+            chunks.incrementAndGet();
+            assertTrue(chunk.size() <= CHUNK);
+            Map<Long, Comment> comments = context.getData(Comment.class);
+            assertEquals(chunk.size(), comments.size());
+            for (Object post : chunk) {
+                assertNotNull(context.getData(User.class, ((Post) post).getUserId()));
+                built.incrementAndGet();
+            }
+        });
+        assertEquals(POSTS / CHUNK, chunks.get());
+        assertEquals(POSTS, built.get());
+        assertEquals(POSTS / CHUNK * USERS, userRequests.get());
+    }
+
+    @Test
+    void testSharedNamespaceBuiltOnce() {
+        AtomicInteger last = new AtomicInteger();
+        builder().buildStream(posts(), CHUNK, Collections.singleton(User.class), (chunk, context) -> {
+            assertEquals(USERS, context.getData(User.class).size());
+            assertTrue(context.getData(Comment.class).size() <= CHUNK);
+            last.set(chunk.size());
+        });
+        assertEquals(USERS, userRequests.get());
+        assertEquals(CHUNK, last.get());
+    }
+
+    @Test
+    void testCustomContext() {
+        AtomicInteger visitors = new AtomicInteger();
+        builder().buildStream(posts(), 3000, Collections.singleton(User.class),
+                data -> new TestBuildContext(1), (List<?> chunk, TestBuildContext context) -> visitors.addAndGet(context.getVisitorId()));
+        assertEquals(4, visitors.get());
+    }
+}
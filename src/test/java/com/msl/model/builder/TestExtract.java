@@ -1,9 +1,13 @@
 package com.msl.model.builder;
 
 import com.google.common.collect.Maps;
+import com.msl.base.KeyPair;
 import com.msl.model.builder.context.impl.SimpleBuildContext;
 import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
 import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +16,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * @author wanglq
@@ -41,6 +47,67 @@ public class TestExtract {
         Assertions.assertEquals(3, context.getIds(Post.class).size());
     }
 
+    @Test
+    public void testCompiledExtract() {
+        testDao.assertOn();
+        ModelBuilder compiled = new DefaultModelBuilder()
+                .valueFromSelf(Post.class, Post::getId)
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Comment.class, Comment::getAtUserIds, User.class)
+                .buildValue(User.class, testDao::getUsers)
+                .buildValue(Comment.class, testDao::getComments)
+                .compile();
+        SimpleBuildContext context = new SimpleBuildContext();
+        compiled.buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+
+        Assertions.assertEquals(3, context.getIds(Post.class).size());
+        Assertions.assertEquals(5, context.getData(Comment.class).size());
+        for (Comment comment : context.<Long, Comment>getData(Comment.class).values()) {
+            Assertions.assertNotNull(context.getData(User.class, comment.getUserId()));
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> compiled.extractId(Post.class, Post::getUserId, "author"));
+    }
+
+    @Test
+    public void testSinkExtract() {
+        testDao.assertOn();
+        ModelBuilder sinkBuilder = new DefaultModelBuilder()
+                .extract(Post.class, (post, sink) -> {
+                    sink.value(Post.class, post.getId(), post);
+                    sink.id(User.class, post.getUserId());
+                    if (post.getCommentIds() != null) {
+                        for (Long commentId : post.getCommentIds()) {
+                            sink.id(Comment.class, commentId);
+                        }
+                    }
+                })
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .buildValue(User.class, testDao::getUsers)
+                .buildValue(Comment.class, testDao::getComments);
+        SimpleBuildContext context = new SimpleBuildContext();
+        Map<Long, Post> postMap = testDao.getPosts(Arrays.asList(1L, 2L, 3L));
+        sinkBuilder.buildMulti(postMap.values(), context);
+
+        Assertions.assertEquals(3, context.getData(Post.class).size());
+        Assertions.assertEquals(5, context.getData(Comment.class).size());
+        for (Comment comment : context.<Long, Comment>getData(Comment.class).values()) {
+            Assertions.assertNotNull(context.getData(User.class, comment.getUserId()));
+        }
+
+        // 查询视图只包含extractId、extractValue等方式注册的提取器，直接写入接收方的提取器不可见
+        Post post = postMap.get(1L);
+        Assertions.assertFalse(sinkBuilder.existsValueExtractor(Post.class));
+        Assertions.assertTrue(sinkBuilder.getValueExtractors(Post.class).isEmpty());
+        Assertions.assertEquals(1, sinkBuilder.getIdExtractors(Post.class).size());
+        KeyPair<Set<Object>> userIds = sinkBuilder.getIdExtractors(Post.class).iterator().next().apply(post);
+        Assertions.assertEquals(User.class, userIds.getKey());
+        Assertions.assertEquals(Collections.singleton(post.getUserId()), userIds.getValue());
+
+        Assertions.assertTrue(builder.existsValueExtractor(Post.class));
+        KeyPair<Map<Object, Object>> posts = builder.getValueExtractors(Post.class).iterator().next().apply(post);
+        Assertions.assertEquals(Collections.singletonMap(1L, post), posts.getValue());
+    }
 
     class LikeDao {
         public Map<Integer, Integer> getLikeUsers(Collection<Integer> postIds) {
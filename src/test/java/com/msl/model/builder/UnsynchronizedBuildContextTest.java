@@ -0,0 +1,80 @@
+package com.msl.model.builder;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单线程上下文
+ */
+class UnsynchronizedBuildContextTest {
+    private static final IntIdNamespace USERS = IntIdNamespace.of(User.class);
+
+    private final TestDao testDao = new TestDao();
+
+    private ModelBuilder builder() {
+        return new DefaultModelBuilder()
+                .valueFromSelf(Post.class, Post::getId)
+                .valueFromSelf(Comment.class, Comment::getId)
+                .extractId(HasUser.class, HasUser::getUserId, USERS)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .buildValue(Comment.class, testDao::getComments)
+                .lazyBuild(USERS, testDao::getUsers, USERS)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> testDao.isFollowing(1, ids), "isFollowing");
+    }
+
+    @Test
+    void testBuild() {
+        testDao.assertOn();
+        UnsynchronizedBuildContext context = new UnsynchronizedBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L, 2L, 3L)).values(), context);
+
+        assertEquals(3, context.getData(Post.class).size());
+        assertEquals(5, context.getData(Comment.class).size());
+        assertTrue(context.getCachedData(USERS).isEmpty());
+        for (Comment comment : context.<Long, Comment>getData(Comment.class).values()) {
+            assertNotNull(context.getData(USERS, comment.getUserId()));
+        }
+    }
+
+    @Test
+    void testMerge() {
+        UnsynchronizedBuildContext context = new UnsynchronizedBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L)).values(), context);
+        SimpleBuildContext other = new SimpleBuildContext();
+        builder().buildMulti(testDao.getPosts(Arrays.asList(2L, 3L)).values(), other);
+
+        context.merge(other);
+        assertEquals(3, context.getData(Post.class).size());
+        assertTrue(context.getIds(Comment.class).containsAll(other.getIds(Comment.class)));
+
+        SimpleBuildContext merged = new SimpleBuildContext();
+        merged.merge(context);
+        assertEquals(3, merged.getData(Post.class).size());
+        assertNotNull(merged.getData(USERS, 1));
+    }
+
+    @Test
+    void testCheckThread() {
+        UnsynchronizedBuildContext context = new UnsynchronizedBuildContext().checkThread(true);
+        builder().buildMulti(testDao.getPosts(Arrays.asList(1L)).values(), context);
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> CompletableFuture.runAsync(() -> context.getData(Post.class)).join());
+        assertTrue(e.getCause() instanceof IllegalStateException);
+
+        context.checkThread(false);
+        assertEquals(1, CompletableFuture.supplyAsync(() -> context.getCachedData(Post.class).size()).join());
+    }
+}
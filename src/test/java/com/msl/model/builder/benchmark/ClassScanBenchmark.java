@@ -0,0 +1,49 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.utils.ClassScanner;
+import com.msl.view.View;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查找View子类的耗时对比：加载包中所有类、只读取类文件头、使用扫描索引
+ * <p>
+ * 先执行不加载类的扫描，加载所有类的扫描放在最后
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ClassScanBenchmark
+ */
+@Tag("benchmark")
+class ClassScanBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ClassScanBenchmark.class);
+    private static final String PACKAGE = "com.msl";
+
+    @Test
+    void compare(@TempDir Path dir) {
+        long start = System.nanoTime();
+        int headers = new ClassScanner().index(dir.resolve("scan.index").toFile()).scanSubtypes(PACKAGE, true, View.class).size();
+        long headerNanos = System.nanoTime() - start;
+        logger.info("[header] {} views in {}ms", headers, TimeUnit.NANOSECONDS.toMillis(headerNanos));
+
+        start = System.nanoTime();
+        int indexed = new ClassScanner().index(dir.resolve("scan.index").toFile()).scanSubtypes(PACKAGE, true, View.class).size();
+        long indexNanos = System.nanoTime() - start;
+        logger.info("[index] {} views in {}ms", indexed, TimeUnit.NANOSECONDS.toMillis(indexNanos));
+
+        start = System.nanoTime();
+        ClassScanner scanner = new ClassScanner();
+        scanner.scanning(PACKAGE, true);
+        long loaded = scanner.getClasses().values().stream()
+                .filter(View.class::isAssignableFrom)
+                .count();
+        long loadNanos = System.nanoTime() - start;
+        logger.info("[load] {} views in {}ms", loaded, TimeUnit.NANOSECONDS.toMillis(loadNanos));
+        logger.info("header/load time: {}, index/load time: {}", String.format("%.2f", headerNanos / (double) loadNanos),
+                String.format("%.2f", indexNanos / (double) loadNanos));
+    }
+}
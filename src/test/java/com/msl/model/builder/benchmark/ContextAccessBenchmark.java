@@ -0,0 +1,84 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 单线程中写入并逐条读取上下文数据的耗时对比：SimpleBuildContext与UnsynchronizedBuildContext
+ * <p>
+ * 每次请求将一页数据的id和value合并到新的上下文（与构建时相同），再为每条数据读取各命名空间的值（模拟view渲染），
+ * 不含构造器本身的耗时
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ContextAccessBenchmark
+ */
+@Tag("benchmark")
+class ContextAccessBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ContextAccessBenchmark.class);
+    private static final int ITEMS = 1000;
+    private static final int REQUESTS = 5000;
+    private static final String[] NAMESPACES = {"post", "likeCount", "commentCount", "shareCount", "viewCount"};
+
+    private final BuildingTemp temp = temp();
+
+    @Test
+    void compare() {
+        for (int i = 0; i < 5; i++) {
+            run("warmup", SimpleBuildContext::new);
+            run("warmup", () -> new UnsynchronizedBuildContext().checkThread(false));
+        }
+        long simple = run("SimpleBuildContext", SimpleBuildContext::new);
+        long unsynchronized = run("UnsynchronizedBuildContext", () -> new UnsynchronizedBuildContext().checkThread(false));
+        logger.info("unsynchronized/simple time: {}", String.format("%.2f", unsynchronized / (double) simple));
+    }
+
+    private static BuildingTemp temp() {
+        BuildingTemp temp = new BuildingTemp();
+        for (String namespace : NAMESPACES) {
+            Set<Object> ids = new HashSet<>();
+            Map<Object, Object> values = new HashMap<>();
+            for (long id = 0; id < ITEMS; id++) {
+                ids.add(id);
+                values.put(id, id * 3);
+            }
+            temp.mergeIds(namespace, ids);
+            temp.mergeValues(namespace, values);
+        }
+        return temp;
+    }
+
+    private long run(String name, Supplier<BuildContext> contextFactory) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int request = 0; request < REQUESTS; request++) {
+            BuildContext context = contextFactory.get();
+            temp.mergeIdToContext(context);
+            temp.mergeValueToContext(context);
+            for (long id = 0; id < ITEMS; id++) {
+                for (String namespace : NAMESPACES) {
+                    Long value = context.getData(namespace, id);
+                    sum += value;
+                }
+                sum += context.getIds(NAMESPACES[0]).size();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (!"warmup".equals(name)) {
+            logger.info("[{}] {} requests x {} items in {}ms (checksum {})", name, REQUESTS, ITEMS,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), sum);
+        }
+        return nanos;
+    }
+}
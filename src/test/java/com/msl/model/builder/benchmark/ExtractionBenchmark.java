@@ -0,0 +1,152 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.base.KeyPair;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultExtractorRegistry;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.utils.StoreUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 提取100万个对象的耗时与内存分配对比：
+ * 按KeyPair/集合合并提取（legacy）、直接写入接收方（dynamic）、编译后直接写入接收方（compiled）；
+ * 以及只有提取器查找、没有提取结果时动态与编译后的对比
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ExtractionBenchmark
+ */
+@Tag("benchmark")
+class ExtractionBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionBenchmark.class);
+    private static final int OBJECTS = 1_000_000;
+    /**
+     * 每个构造临时数据中的对象数，模拟一次构建的列表大小
+     */
+    private static final int BATCH = 1000;
+    private static final int ROUNDS = 5;
+
+    private final List<Post> posts = posts();
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compare() {
+        DefaultExtractorRegistry dynamic = registry();
+        DefaultExtractorRegistry compiled = registry().compile();
+        Extraction legacy = legacy(dynamic);
+        for (int i = 0; i < ROUNDS; i++) {
+            run("warmup-legacy", legacy);
+            run("warmup-dynamic", dynamic::doExtract);
+            run("warmup-compiled", compiled::doExtract);
+        }
+        long[] legacyResult = run("legacy", legacy);
+        long[] dynamicResult = run("dynamic", dynamic::doExtract);
+        long[] compiledResult = run("compiled", compiled::doExtract);
+        logger.info("dynamic/legacy time: {}, bytes: {}", ratio(dynamicResult[0], legacyResult[0]), ratio(dynamicResult[1], legacyResult[1]));
+        logger.info("compiled/legacy time: {}, bytes: {}", ratio(compiledResult[0], legacyResult[0]), ratio(compiledResult[1], legacyResult[1]));
+    }
+
+    @Test
+    void compareLookup() {
+        DefaultExtractorRegistry dynamic = new DefaultExtractorRegistry().extractId(Comment.class, Comment::getUserId, User.class);
+        DefaultExtractorRegistry compiled = new DefaultExtractorRegistry().extractId(Comment.class, Comment::getUserId, User.class).compile();
+        for (int i = 0; i < ROUNDS; i++) {
+            run("warmup-dynamic-lookup", dynamic::doExtract);
+            run("warmup-compiled-lookup", compiled::doExtract);
+        }
+        // 单次耗时很短，交替运行多次取最小值
+        long dynamicNanos = Long.MAX_VALUE;
+        long compiledNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            dynamicNanos = Math.min(dynamicNanos, run("dynamic-lookup", dynamic::doExtract)[0]);
+            compiledNanos = Math.min(compiledNanos, run("compiled-lookup", compiled::doExtract)[0]);
+        }
+        logger.info("compiled/dynamic lookup time: {}", ratio(compiledNanos, dynamicNanos));
+    }
+
+    /**
+     * 按提取器返回KeyPair、复制后合并到临时数据的提取方式，提取器按类型缓存
+     */
+    private static Extraction legacy(DefaultExtractorRegistry registry) {
+        Map<Class<?>, Set<Function<Object, KeyPair<Map<Object, Object>>>>> valueExtractors = new HashMap<>();
+        Map<Class<?>, Set<Function<Object, KeyPair<Set<Object>>>>> idExtractors = new HashMap<>();
+        return (obj, context, temp) -> {
+            for (Function<Object, KeyPair<Map<Object, Object>>> fun : valueExtractors.computeIfAbsent(obj.getClass(), registry::getValueExtractors)) {
+                KeyPair<Map<Object, Object>> values = fun.apply(obj);
+                temp.mergeIds(values.getKey(), new HashSet<>(values.getValue().keySet()));
+                temp.mergeValues(values.getKey(), StoreUtil.filterValueMap(values, context));
+            }
+            for (Function<Object, KeyPair<Set<Object>>> fun : idExtractors.computeIfAbsent(obj.getClass(), registry::getIdExtractors)) {
+                KeyPair<Set<Object>> ids = fun.apply(obj);
+                temp.mergeIds(ids.getKey(), new HashSet<>(ids.getValue()));
+            }
+        };
+    }
+
+    static DefaultExtractorRegistry registry() {
+        DefaultExtractorRegistry registry = new DefaultExtractorRegistry();
+        registry.valueFromSelf(Post.class, Post::getId)
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .extractId(Post.class, Post::getCommentIds, Comment.class)
+                .extractId(Comment.class, Comment::getAtUserIds, User.class);
+        return registry;
+    }
+
+    static List<Post> posts() {
+        List<Post> posts = new ArrayList<>(OBJECTS);
+        for (int i = 0; i < OBJECTS; i++) {
+            posts.add(new Post(i, i % 1000, Arrays.asList((long) i, (long) i + 1)));
+        }
+        return posts;
+    }
+
+    /**
+     * @return 耗时纳秒数、分配字节数
+     */
+    private long[] run(String name, Extraction extraction) {
+        SimpleBuildContext context = new SimpleBuildContext();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int namespaces = 0;
+        for (int from = 0; from < OBJECTS; from += BATCH) {
+            BuildingTemp temp = new BuildingTemp();
+            for (int i = from; i < from + BATCH; i++) {
+                extraction.extract(posts.get(i), context, temp);
+            }
+            namespaces += temp.getIdsMap().size();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        if (!name.startsWith("warmup")) {
+            logger.info("[{}] extract {} objects in {}ms, allocated {}MB ({} bytes/object, {} namespaces)", name, OBJECTS,
+                    String.format("%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1)), bytes >> 20, bytes / OBJECTS, namespaces);
+        }
+        return new long[]{nanos, bytes};
+    }
+
+    private static String ratio(long value, long base) {
+        return String.format("%.2f", value / (double) base);
+    }
+
+    private interface Extraction {
+        void extract(Object obj, BuildContext context, BuildingTemp temp);
+    }
+}
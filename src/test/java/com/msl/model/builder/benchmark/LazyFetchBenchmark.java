@@ -0,0 +1,75 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.context.PendingIds;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.utils.StoreUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟构造决定待获取id的耗时对比：每次过滤id空间全部id与只过滤新写入的id（{@link PendingIds}）
+ * <p>
+ * id空间持续增长，每写入一批id后做一次延迟构造（获取并写入数据），不含构造器本身的耗时
+ * <p>
+ * mvn test -Pbenchmark -Dtest=LazyFetchBenchmark
+ */
+@Tag("benchmark")
+class LazyFetchBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(LazyFetchBenchmark.class);
+    private static final int BATCH = 100;
+    private static final int BATCHES = 1000;
+
+    @Test
+    void compare() {
+        for (int i = 0; i < 3; i++) {
+            run("warmup", false);
+            run("warmup", true);
+        }
+        long full = run("filter all ids", false);
+        long pending = run("pending ids", true);
+        logger.info("pending/full time: {}", String.format("%.3f", pending / (double) full));
+    }
+
+    private long run(String name, boolean pendingIds) {
+        SimpleBuildContext context = new SimpleBuildContext();
+        long start = System.nanoTime();
+        long fetched = 0;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            List<Long> ids = new ArrayList<>(BATCH);
+            for (long id = (long) batch * BATCH / 2; ids.size() < BATCH; id++) {
+                ids.add(id);
+            }
+            context.getIds("user").addAll(ids);
+            PendingIds<Long> pending = null;
+            Set<Long> toFetch;
+            if (pendingIds) {
+                pending = context.pendingIds("user", "user");
+                toFetch = pending.ids();
+            } else {
+                toFetch = StoreUtil.filterIdSet("user", context.<Long>getIds("user"), context);
+            }
+            Map<Object, Object> users = context.getCachedData("user");
+            for (Long id : toFetch) {
+                users.put(id, id);
+            }
+            if (pending != null) {
+                pending.fetched();
+            }
+            fetched += toFetch.size();
+        }
+        long nanos = System.nanoTime() - start;
+        if (!"warmup".equals(name)) {
+            logger.info("[{}] {} batches x {} ids, fetched {} ids in {}ms", name, BATCHES, BATCH, fetched,
+                    TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+        return nanos;
+    }
+}
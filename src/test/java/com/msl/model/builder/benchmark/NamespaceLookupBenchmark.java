@@ -0,0 +1,114 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.base.Namespace;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * view渲染时逐条读取上下文数据的耗时对比：以命名空间标识（String）读取与以命名空间句柄读取
+ * <p>
+ * 上下文只构建一次，每轮为每条数据读取各命名空间的值，不含构建耗时
+ * <p>
+ * mvn test -Pbenchmark -Dtest=NamespaceLookupBenchmark
+ */
+@Tag("benchmark")
+class NamespaceLookupBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(NamespaceLookupBenchmark.class);
+    private static final int ITEMS = 1000;
+    private static final int ROUNDS = 20000;
+    private static final String[] NAMESPACES = {"lookupPost", "lookupLikeCount", "lookupCommentCount", "lookupShareCount", "lookupViewCount"};
+    private static final Namespace<Long, Long>[] HANDLES = handles();
+
+    @Test
+    void compare() {
+        compare("SimpleBuildContext", new SimpleBuildContext());
+        compare("UnsynchronizedBuildContext", new UnsynchronizedBuildContext().checkThread(false));
+    }
+
+    private void compare(String name, BuildContext context) {
+        BuildingTemp temp = temp();
+        temp.mergeIdToContext(context);
+        temp.mergeValueToContext(context);
+        for (int i = 0; i < 5; i++) {
+            byIdentify(context);
+            byHandle(context);
+        }
+        long identify = time(name + " identify", () -> byIdentify(context));
+        long handle = time(name + " handle", () -> byHandle(context));
+        logger.info("[{}] handle/identify time: {}", name, String.format("%.2f", handle / (double) identify));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Namespace<Long, Long>[] handles() {
+        Namespace<Long, Long>[] handles = new Namespace[NAMESPACES.length];
+        for (int i = 0; i < NAMESPACES.length; i++) {
+            handles[i] = Namespace.of(NAMESPACES[i]);
+        }
+        return handles;
+    }
+
+    private static BuildingTemp temp() {
+        BuildingTemp temp = new BuildingTemp();
+        for (String namespace : NAMESPACES) {
+            Set<Object> ids = new HashSet<>();
+            Map<Object, Object> values = new HashMap<>();
+            for (long id = 0; id < ITEMS; id++) {
+                ids.add(id);
+                values.put(id, id * 3);
+            }
+            temp.mergeIds(namespace, ids);
+            temp.mergeValues(namespace, values);
+        }
+        return temp;
+    }
+
+    private static long byIdentify(BuildContext context) {
+        long sum = 0;
+        for (int round = 0; round < ROUNDS / 10; round++) {
+            for (long id = 0; id < ITEMS; id++) {
+                for (String namespace : NAMESPACES) {
+                    Long value = context.getData(namespace, id);
+                    sum += value;
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static long byHandle(BuildContext context) {
+        long sum = 0;
+        for (int round = 0; round < ROUNDS / 10; round++) {
+            for (long id = 0; id < ITEMS; id++) {
+                for (Namespace<Long, Long> namespace : HANDLES) {
+                    sum += context.getData(namespace, id);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static long time(String name, LongSupplier pass) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += pass.getAsLong();
+        }
+        long nanos = System.nanoTime() - start;
+        logger.info("[{}] {} rounds x {} items x {} namespaces in {}ms (checksum {})", name, ROUNDS, ITEMS, NAMESPACES.length,
+                TimeUnit.NANOSECONDS.toMillis(nanos), sum);
+        return nanos;
+    }
+}
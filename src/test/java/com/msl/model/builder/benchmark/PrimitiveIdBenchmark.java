@@ -0,0 +1,89 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.utils.PrimitiveIdMap;
+import com.msl.model.utils.PrimitiveIdSet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 100万个long id在装箱集合与整数id集合中的占用内存和耗时对比，id均以装箱形式写入（与提取时一致）
+ * <p>
+ * mvn test -Pbenchmark -Dtest=PrimitiveIdBenchmark
+ */
+@Tag("benchmark")
+class PrimitiveIdBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(PrimitiveIdBenchmark.class);
+    private static final int IDS = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final Object VALUE = new Object();
+
+    @Test
+    void compare() {
+        for (int i = 0; i < ROUNDS; i++) {
+            run("warmup", () -> fill(new HashSet<>()));
+            run("warmup", () -> fill(PrimitiveIdSet.longIds()));
+            run("warmup", () -> fill(new HashMap<>()));
+            run("warmup", () -> fill(new PrimitiveIdMap<>(false)));
+        }
+        run("HashSet<Long>", () -> fill(new HashSet<>()));
+        run("PrimitiveIdSet", () -> fill(PrimitiveIdSet.longIds()));
+        run("HashMap<Long, V>", () -> fill(new HashMap<>()));
+        run("PrimitiveIdMap<V>", () -> fill(new PrimitiveIdMap<>(false)));
+    }
+
+    private static Set<Object> fill(Set<Object> ids) {
+        for (long id = 1; id <= IDS; id++) {
+            ids.add(id * 7919);
+        }
+        for (long id = 1; id <= IDS; id++) {
+            if (!ids.contains(id * 7919)) {
+                throw new IllegalStateException();
+            }
+        }
+        return ids;
+    }
+
+    private static Map<Object, Object> fill(Map<Object, Object> values) {
+        for (long id = 1; id <= IDS; id++) {
+            values.put(id * 7919, VALUE);
+        }
+        for (long id = 1; id <= IDS; id++) {
+            if (values.get(id * 7919) == null) {
+                throw new IllegalStateException();
+            }
+        }
+        return values;
+    }
+
+    private void run(String name, Supplier<Object> fill) {
+        long usedBefore = usedHeap();
+        long start = System.nanoTime();
+        Object filled = fill.get();
+        long nanos = System.nanoTime() - start;
+        long retained = usedHeap() - usedBefore;
+        if (!"warmup".equals(name)) {
+            logger.info("[{}] {} ids in {}ms, retained {}MB ({} bytes/id)", name, IDS,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), retained >> 20, retained / IDS);
+        }
+        if (filled.hashCode() == 0) {
+            logger.debug("{}", filled.getClass());
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
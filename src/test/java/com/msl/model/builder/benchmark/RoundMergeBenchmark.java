@@ -0,0 +1,85 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.context.BuildingTemp;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按轮次将构造临时数据中的id合并到上下文的耗时对比：CopyOnWriteArraySet与id索引
+ * <p>
+ * 每轮合并总数的1/10个新id，以及同样数量已合并过的id
+ * <p>
+ * mvn test -Pbenchmark -Dtest=RoundMergeBenchmark
+ */
+@Tag("benchmark")
+class RoundMergeBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(RoundMergeBenchmark.class);
+    private static final String NAMESPACE = "commentIds";
+    private static final int ROUNDS = 10;
+
+    @Test
+    void compare() {
+        for (int i = 0; i < 5; i++) {
+            run(1_000, false);
+        }
+        for (int ids : new int[]{1_000, 10_000, 100_000}) {
+            run(ids, true);
+        }
+    }
+
+    private void run(int ids, boolean log) {
+        List<BuildingTemp> temps = temps(ids);
+        long legacyNanos = time(temps, new CopyOnWriteArraySet<>());
+        long indexNanos = time(temps, null);
+        if (log) {
+            logger.info("[{} ids] CopyOnWriteArraySet: {}ms, IdIndex: {}ms", ids,
+                    millis(legacyNanos), millis(indexNanos));
+        }
+    }
+
+    /**
+     * @param legacy 不为空时合并到该集合，否则合并到{@link SimpleBuildContext}
+     */
+    private static long time(List<BuildingTemp> temps, Set<Object> legacy) {
+        SimpleBuildContext context = new SimpleBuildContext();
+        long start = System.nanoTime();
+        for (BuildingTemp temp : temps) {
+            if (legacy != null) {
+                temp.getIdsMap().forEach((ns, ids) -> legacy.addAll(ids));
+            } else {
+                temp.mergeIdToContext(context);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static List<BuildingTemp> temps(int ids) {
+        int perRound = ids / ROUNDS;
+        List<BuildingTemp> temps = new ArrayList<>(ROUNDS);
+        for (int round = 0; round < ROUNDS; round++) {
+            Set<Object> roundIds = new HashSet<>();
+            for (long id = (long) round * perRound; id < (long) (round + 1) * perRound; id++) {
+                roundIds.add(id);
+                roundIds.add(id / 2);
+            }
+            BuildingTemp temp = new BuildingTemp();
+            temp.mergeIds(NAMESPACE, roundIds);
+            temps.add(temp);
+        }
+        return temps;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.view.View;
+import com.msl.view.ViewScanner;
+import com.msl.view.mapper.ViewMapper;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描注册的View创建耗时对比：反射调用构造方法、生成的创建函数、直接new
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ViewFactoryBenchmark
+ */
+@Tag("benchmark")
+class ViewFactoryBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ViewFactoryBenchmark.class);
+    private static final int POSTS = 10_000;
+    private static final int ROUNDS = 500;
+
+    public static class PostView extends View<Post> {
+        public PostView(Post source, BuildContext context) {
+            super(source, context);
+        }
+    }
+
+    @Test
+    void compare() throws Exception {
+        Constructor<PostView> constructor = PostView.class.getConstructor(Post.class, BuildContext.class);
+        ViewMapper reflective = new DefaultViewMapperImpl().addMapper(Post.class, (BuildContext context, Post post) -> {
+            try {
+                return constructor.newInstance(post, context);
+            } catch (Exception e) {
+                logger.error("fail to construct model:{}", post, e);
+                return null;
+            }
+        });
+        DefaultViewMapperImpl generated = new DefaultViewMapperImpl();
+        new ViewScanner(new DefaultModelBuilder()) {
+            {
+                add(generated, PostView.class);
+            }
+        };
+        ViewMapper direct = new DefaultViewMapperImpl()
+                .addMapper(Post.class, (BuildContext context, Post post) -> new PostView(post, context));
+
+        BuildContext context = new SimpleBuildContext();
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            posts.add(new Post(i, i, null));
+        }
+        for (int i = 0; i < 3; i++) {
+            run(null, reflective, posts, context);
+            run(null, generated, posts, context);
+            run(null, direct, posts, context);
+        }
+        long reflection = run("reflection", reflective, posts, context);
+        long factory = run("generated", generated, posts, context);
+        long newing = run("new", direct, posts, context);
+        logger.info("generated/reflection time: {}, generated/new time: {}", String.format("%.2f", factory / (double) reflection),
+                String.format("%.2f", factory / (double) newing));
+    }
+
+    private long run(String name, ViewMapper viewMapper, List<Post> posts, BuildContext context) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            for (Post post : posts) {
+                PostView view = viewMapper.map(post, context);
+                sum += view.getSource().getId();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (name != null) {
+            logger.info("[{}] {} rounds x {} views in {}ms (checksum {})", name, ROUNDS, POSTS, TimeUnit.NANOSECONDS.toMillis(nanos), sum);
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,76 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.model.Post;
+import com.msl.view.View;
+import com.msl.view.mapper.ViewMapper;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 大集合View映射的耗时对比：依次映射与并行映射（ForkJoinPool.commonPool()）
+ * <p>
+ * View构造中做固定量的计算，模拟较重的View；加速比取决于可用的CPU数
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ViewMappingBenchmark
+ */
+@Tag("benchmark")
+class ViewMappingBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ViewMappingBenchmark.class);
+    private static final int POSTS = 5000;
+    private static final int ROUNDS = 20;
+
+    static class HeavyView extends View<Post> {
+        final long digest;
+
+        HeavyView(Post source, BuildContext context) {
+            super(source, context);
+            long h = source.getId();
+            for (int i = 0; i < 20_000; i++) {
+                h = h * 31 + i;
+            }
+            digest = h;
+        }
+    }
+
+    @Test
+    void compare() {
+        ViewMapper viewMapper = new DefaultViewMapperImpl()
+                .addMapper(Post.class, (BuildContext context, Post post) -> new HeavyView(post, context));
+        BuildContext context = new SimpleBuildContext();
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            posts.add(new Post(i, i, null));
+        }
+        for (int i = 0; i < 3; i++) {
+            viewMapper.map(posts, context);
+            viewMapper.mapParallel(posts, context);
+        }
+        long sequential = run("sequential", p -> viewMapper.<Post, HeavyView>map(p, context), posts);
+        long parallel = run("parallel", p -> viewMapper.<Post, HeavyView>mapParallel(p, context), posts);
+        logger.info("parallel/sequential time: {} ({} cpus)", String.format("%.2f", parallel / (double) sequential),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    private long run(String name, Function<List<Post>, List<HeavyView>> mapping, List<Post> posts) {
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            for (HeavyView view : mapping.apply(posts)) {
+                sum += view.digest;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        logger.info("[{}] {} rounds x {} views in {}ms (checksum {})", name, ROUNDS, POSTS, TimeUnit.NANOSECONDS.toMillis(nanos), sum);
+        return nanos;
+    }
+}
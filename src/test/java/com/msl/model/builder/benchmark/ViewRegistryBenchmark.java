@@ -0,0 +1,53 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.utils.ClassScanner;
+import com.msl.view.ViewRegistry;
+import com.msl.view.ViewScanner;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时注册View的耗时对比：扫描整个包（加载并初始化包中所有类）与加载编译期生成的View注册类
+ * <p>
+ * 先执行加载注册类，扫描时包中的类尚未加载
+ * <p>
+ * mvn test -Pbenchmark -Dtest=ViewRegistryBenchmark
+ */
+@Tag("benchmark")
+class ViewRegistryBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ViewRegistryBenchmark.class);
+    private static final String PACKAGE = "com.msl";
+
+    @Test
+    void compare() {
+        long start = System.nanoTime();
+        DefaultViewMapperImpl generated = new DefaultViewMapperImpl();
+        int registries = 0;
+        for (ViewRegistry registry : ServiceLoader.load(ViewRegistry.class)) {
+            registry.register(generated);
+            registries++;
+        }
+        long registryNanos = System.nanoTime() - start;
+        logger.info("[registry] {} registries in {}ms", registries, TimeUnit.NANOSECONDS.toMillis(registryNanos));
+
+        start = System.nanoTime();
+        DefaultViewMapperImpl scanned = new DefaultViewMapperImpl();
+        ClassScanner scanner = new ClassScanner();
+        int classes = scanner.scanning(PACKAGE, true);
+        new ViewScanner(new DefaultModelBuilder()) {
+            {
+                scanner.getClasses().values().forEach(c -> add(scanned, c));
+            }
+        };
+        long scanNanos = System.nanoTime() - start;
+        logger.info("[scan] {} classes in {}ms", classes, TimeUnit.NANOSECONDS.toMillis(scanNanos));
+        logger.info("registry/scan time: {}", String.format("%.2f", registryNanos / (double) scanNanos));
+    }
+}
@@ -0,0 +1,96 @@
+package com.msl.model.builder.benchmark;
+
+import com.msl.model.builder.ModelBuilder;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.model.utils.BuildExecutors;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.util.Collections.singletonList;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 平台线程与虚拟线程执行阻塞构造器的吞吐对比
+ * <p>
+ * mvn test -Pbenchmark -Dtest=VirtualThreadBenchmark，需Java 21+运行
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBenchmark.class);
+    private static final int BUILDS = 2000;
+    private static final long SLEEP_MILLIS = 20;
+    private static final int PLATFORM_THREADS = 64;
+
+    @Test
+    void compare() throws Exception {
+        assumeTrue(BuildExecutors.isVirtualThreadSupported(), "virtual threads require Java 21+");
+        ExecutorService platformRequests = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        ExecutorService platformBuilders = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        ExecutorService virtual = BuildExecutors.virtualThreadPerTask();
+        try {
+            run("warmup-platform", platformRequests, platformBuilders);
+            run("warmup-virtual", virtual, virtual);
+            double platform = run("platform", platformRequests, platformBuilders);
+            double virtualThroughput = run("virtual", virtual, virtual);
+            logger.info("virtual/platform throughput: {}x", String.format("%.1f", virtualThroughput / platform));
+        } finally {
+            platformRequests.shutdownNow();
+            platformBuilders.shutdownNow();
+            virtual.shutdownNow();
+        }
+    }
+
+    private double run(String name, ExecutorService requests, ExecutorService builders) throws Exception {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .executor(builders)
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> sleep(ids, User::new))
+                .buildValue(User.class, (Collection<Integer> ids) -> sleep(ids, id -> true), "isFollowing")
+                .buildValue(User.class, (Collection<Integer> ids) -> sleep(ids, id -> false), "isFans");
+        long start = System.nanoTime();
+        List<Future<Integer>> futures = new ArrayList<>(BUILDS);
+        for (int i = 0; i < BUILDS; i++) {
+            int userId = i;
+            futures.add(requests.submit(() -> {
+                SimpleBuildContext context = new SimpleBuildContext();
+                builder.buildMulti(singletonList(new Post(userId, userId, null)), context);
+                return context.getData(User.class).size();
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(1, future.get().intValue());
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        double throughput = BUILDS / seconds;
+        logger.info("[{}] {} builds in {}s, {} builds/s", name, BUILDS, String.format("%.2f", seconds),
+                String.format("%.0f", throughput));
+        return throughput;
+    }
+
+    private static <V> Map<Integer, V> sleep(Collection<Integer> ids, Function<Integer, V> mapper) {
+        try {
+            Thread.sleep(SLEEP_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return ids.stream().collect(toMap(identity(), mapper));
+    }
+}
@@ -0,0 +1,102 @@
+package com.msl.view;
+
+import com.msl.model.builder.ModelBuilder;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.HasUser;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 渲染view时重复访问延迟构造的命名空间，只在有新id时执行延迟构造器
+ */
+class LazyViewRenderTest {
+    private final AtomicInteger userLoads = new AtomicInteger();
+    private final AtomicInteger followingLoads = new AtomicInteger();
+
+    private ModelBuilder builder() {
+        return new DefaultModelBuilder()
+                .extractId(HasUser.class, HasUser::getUserId, User.class)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> {
+                    userLoads.incrementAndGet();
+                    Map<Integer, User> users = new HashMap<>();
+                    ids.forEach(id -> users.put(id, new User(id)));
+                    return users;
+                }, User.class)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> {
+                    followingLoads.incrementAndGet();
+                    Map<Integer, Boolean> following = new HashMap<>();
+                    ids.forEach(id -> following.put(id, id % 2 == 0));
+                    return following;
+                }, "isFollowing");
+    }
+
+    private static List<Post> posts(int from, int count) {
+        List<Post> posts = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            posts.add(new Post(i, i % 50, null));
+        }
+        return posts;
+    }
+
+    private static void render(List<Post> posts, BuildContext context) {
+        for (Post post : posts) {
+            PostView view = new PostView(post, context);
+            assertEquals(post.getUserId(), view.author().getId());
+            assertEquals(post.getUserId() % 2 == 0, view.isFollowing());
+            assertTrue(view.userCount() >= 50);
+        }
+    }
+
+    @Test
+    void testRender() {
+        ModelBuilder builder = builder();
+        SimpleBuildContext context = new SimpleBuildContext();
+        List<Post> posts = posts(0, 500);
+        builder.buildMulti(posts, context);
+        assertEquals(0, userLoads.get());
+
+        render(posts, context);
+        assertEquals(1, userLoads.get());
+        assertEquals(1, followingLoads.get());
+
+        // 新的id写入后再次执行，只获取新的id
+        List<Post> more = posts(500, 100);
+        more.add(new Post(1000, 777, null));
+        builder.buildMulti(more, context);
+        render(more, context);
+        render(posts, context);
+        assertEquals(2, userLoads.get());
+        assertEquals(2, followingLoads.get());
+        assertEquals(51, context.getCachedData(User.class).size());
+    }
+
+    private static class PostView extends View<Post> {
+        PostView(Post source, BuildContext context) {
+            super(source, context);
+        }
+
+        User author() {
+            return context.getData(User.class, source.getUserId());
+        }
+
+        boolean isFollowing() {
+            return context.<Integer, Boolean>getData("isFollowing", source.getUserId());
+        }
+
+        int userCount() {
+            return context.getData(User.class).size();
+        }
+    }
+}
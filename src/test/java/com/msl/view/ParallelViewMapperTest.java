@@ -0,0 +1,155 @@
+package com.msl.view;
+
+import com.msl.model.builder.ModelBuilder;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.context.impl.UnsynchronizedBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行映射View
+ */
+class ParallelViewMapperTest {
+    private static final int POSTS = 5000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private class PostView extends View<Post> {
+        private final User user;
+
+        PostView(Post source, BuildContext context) {
+            super(source, context);
+            threads.add(Thread.currentThread().getName());
+            if (source.getId() == -1) {
+                throw new IllegalStateException("bad post");
+            }
+            this.user = context.getData(User.class, source.getUserId());
+        }
+    }
+
+    private class UserPostsView extends View<User> {
+        private final List<PostView> posts;
+
+        UserPostsView(User source, BuildContext context, DefaultViewMapperImpl viewMapper, Executor executor) {
+            super(source, context);
+            this.posts = viewMapper.mapParallel(posts(64), context, executor, 2);
+        }
+    }
+
+    private DefaultViewMapperImpl viewMapper() {
+        return new DefaultViewMapperImpl()
+                .addMapper(Post.class, (BuildContext context, Post post) -> new PostView(post, context));
+    }
+
+    private static List<Post> posts(int count) {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            posts.add(new Post(i, i % 100, null));
+        }
+        return posts;
+    }
+
+    private static BuildContext build(List<Post> posts, BuildContext context) {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .lazyBuild(User.class, (Collection<Integer> ids) -> ids.stream().collect(toMap(identity(), User::new)), User.class);
+        builder.buildMulti(posts, context);
+        return context;
+    }
+
+    private static void assertViews(List<Post> posts, List<PostView> views) {
+        assertEquals(posts.size(), views.size());
+        for (int i = 0; i < posts.size(); i++) {
+            assertSame(posts.get(i), views.get(i).getSource());
+            assertEquals(posts.get(i).getUserId(), views.get(i).user.getId());
+        }
+    }
+
+    @Test
+    void testOrder() {
+        List<Post> posts = posts(POSTS);
+        BuildContext context = build(posts, new SimpleBuildContext());
+        assertViews(posts, viewMapper().mapParallel(posts, context));
+
+        threads.clear();
+        assertViews(posts, viewMapper().mapParallel(posts, context, executor));
+        assertTrue(threads.size() > 1);
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    void testSequential() {
+        List<Post> small = posts(100);
+        assertViews(small, viewMapper().mapParallel(small, build(small, new SimpleBuildContext()), executor));
+        assertEquals(1, threads.size());
+
+        threads.clear();
+        List<Post> posts = posts(POSTS);
+        assertViews(posts, viewMapper().mapParallel(posts, build(posts, new UnsynchronizedBuildContext().checkThread(true)), executor));
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    void testNestedParallelMapping() {
+        // View中再次并行映射使用同一个有界线程池，不能阻塞等待排在自己后面的任务
+        ExecutorService bounded = Executors.newFixedThreadPool(2);
+        try {
+            DefaultViewMapperImpl viewMapper = viewMapper();
+            viewMapper.addMapper(User.class, (BuildContext context, User user) -> new UserPostsView(user, context, viewMapper, bounded));
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                users.add(new User(i));
+            }
+            BuildContext context = build(posts(64), new SimpleBuildContext());
+            List<UserPostsView> views = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> viewMapper.mapParallel(users, context, bounded, 2));
+            assertEquals(64, views.size());
+            for (UserPostsView view : views) {
+                assertEquals(64, view.posts.size());
+                assertEquals(63, view.posts.get(63).user.getId());
+            }
+        } finally {
+            bounded.shutdownNow();
+        }
+    }
+
+    @Test
+    void testParallelMode() {
+        List<Post> posts = posts(POSTS);
+        BuildContext context = build(posts, new SimpleBuildContext());
+        List<PostView> views = viewMapper().parallel(executor, 1000).map(posts, context);
+        assertViews(posts, views);
+        assertTrue(threads.size() > 1);
+        views.add(null);
+
+        posts.set(POSTS - 1, new Post(-1, 1, null));
+        assertThrows(IllegalStateException.class, () -> viewMapper().parallel(executor, 1000).map(posts, context));
+        assertThrows(IllegalStateException.class, () -> viewMapper().parallel(1000).map(posts, context));
+    }
+}
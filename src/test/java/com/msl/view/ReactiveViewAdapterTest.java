@@ -0,0 +1,303 @@
+package com.msl.view;
+
+import com.msl.model.builder.ModelBuilder;
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import com.msl.view.reactive.ReactiveViewAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 响应式构建与映射
+ */
+class ReactiveViewAdapterTest {
+    private static final int POSTS = 500;
+    private static final long BUILD_MILLIS = 50;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicLong maxOnNextNanos = new AtomicLong();
+    private final AtomicLong upstreamRequested = new AtomicLong();
+    private final AtomicLong upstreamEmitted = new AtomicLong();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    static class PostView extends View<Post> {
+        PostView(Post source, BuildContext context) {
+            super(source, context);
+        }
+
+        long getId() {
+            return source.getId();
+        }
+
+        User getUser() {
+            return context.getData(User.class, source.getUserId());
+        }
+    }
+
+    private ReactiveViewAdapter adapter(int batchSize) {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    sleep(BUILD_MILLIS);
+                    return ids.stream().collect(toMap(identity(), User::new));
+                });
+        DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl()
+                .addMapper(Post.class, (BuildContext context, Post post) -> new PostView(post, context));
+        return ReactiveViewAdapter.newBuilder(builder, viewMapper).batchSize(batchSize).concurrency(2).executor(executor).build();
+    }
+
+    /**
+     * 按需发出数据的上游，记录onNext耗时与请求数
+     */
+    private Publisher<Post> posts(int count) {
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private final AtomicLong demand = new AtomicLong();
+            private long next = 1;
+            private volatile boolean cancelled;
+
+            @Override
+            public void request(long n) {
+                upstreamRequested.addAndGet(n);
+                if (demand.getAndAdd(n) != 0) {
+                    return;
+                }
+                do {
+                    while (demand.get() > 0 && next <= count && !cancelled) {
+                        long start = System.nanoTime();
+                        subscriber.onNext(new Post(next, (int) (next % 10), null));
+                        if (next > 100) {
+                            // 跳过预热阶段的类加载
+                            maxOnNextNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+                        }
+                        upstreamEmitted.incrementAndGet();
+                        next++;
+                        if (next > count) {
+                            subscriber.onComplete();
+                        }
+                        demand.decrementAndGet();
+                    }
+                    if (next > count) {
+                        return;
+                    }
+                } while (demand.get() > 0 && !cancelled);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+        });
+    }
+
+    @Test
+    void testOrderAndBackpressure() throws Exception {
+        int batchSize = 50;
+        List<PostView> received = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        adapter(batchSize).<Post, PostView>map(posts(POSTS)).subscribe(new Subscriber<PostView>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(PostView view) {
+                received.add(view);
+                assertTrue(upstreamEmitted.get() <= received.size() + 3L * batchSize, "prefetch is bounded");
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(10, TimeUnit.SECONDS);
+
+        assertEquals(POSTS, received.size());
+        for (int i = 0; i < POSTS; i++) {
+            assertEquals(i + 1, received.get(i).getId());
+            assertEquals(new User((i + 1) % 10), received.get(i).getUser());
+        }
+        assertTrue(maxOnNextNanos.get() < TimeUnit.MILLISECONDS.toNanos(BUILD_MILLIS / 2), "onNext must not wait for builds: " + maxOnNextNanos.get());
+    }
+
+    @Test
+    void testDemandRespected() throws Exception {
+        List<PostView> received = new CopyOnWriteArrayList<>();
+        Subscription[] holder = new Subscription[1];
+        adapter(10).<Post, PostView>map(posts(POSTS)).subscribe(new Subscriber<PostView>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                holder[0] = subscription;
+                subscription.request(15);
+            }
+
+            @Override
+            public void onNext(PostView view) {
+                received.add(view);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        Thread.sleep(300);
+        assertEquals(15, received.size());
+        assertTrue(upstreamRequested.get() <= 40, "upstream requested " + upstreamRequested.get());
+        holder[0].cancel();
+    }
+
+    @Test
+    void testCancelRoutedThroughDrain() throws Exception {
+        CompletableFuture<Thread> cancelledOn = new CompletableFuture<>();
+        Publisher<Post> source = subscriber -> posts(POSTS).subscribe(new Subscriber<Post>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancelledOn.complete(Thread.currentThread());
+                        subscription.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(Post post) {
+                subscriber.onNext(post);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+        CompletableFuture<Thread> emitter = new CompletableFuture<>();
+        adapter(10).<Post, PostView>map(source).subscribe(new Subscriber<PostView>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(PostView view) {
+                // 发出View时在其他线程取消：上游的cancel不能与drain中的request并发，应由drain线程发出
+                Thread canceller = new Thread(subscription::cancel);
+                canceller.start();
+                try {
+                    canceller.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                emitter.complete(cancelledOn.isDone() ? null : Thread.currentThread());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                emitter.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        Thread drainThread = emitter.get(5, TimeUnit.SECONDS);
+        assertNotNull(drainThread, "upstream cancelled while drain was emitting");
+        assertSame(drainThread, cancelledOn.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testBuildFailure() throws Exception {
+        ModelBuilder builder = new DefaultModelBuilder()
+                .extractId(Post.class, Post::getUserId, User.class)
+                .buildValue(User.class, (Collection<Integer> ids) -> {
+                    throw new IllegalStateException("user service down");
+                });
+        ReactiveViewAdapter adapter = ReactiveViewAdapter.newBuilder(builder, new DefaultViewMapperImpl()).executor(executor).build();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        adapter.map(posts(10)).subscribe(new Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Object o) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        try {
+            done.get(5, TimeUnit.SECONDS);
+            fail("build failure should be signalled");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
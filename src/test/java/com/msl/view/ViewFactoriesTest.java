@@ -0,0 +1,153 @@
+package com.msl.view;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Fake;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.mapper.ViewMapper;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 扫描注册的View以生成的函数创建，支持三种构造方法
+ */
+class ViewFactoriesTest {
+
+    public static class UserView extends View<User> {
+        public UserView(User source) {
+            super(source, null);
+        }
+    }
+
+    public static class PostView extends View<Post> {
+        public PostView(Post source, BuildContext context) {
+            super(source, context);
+            if (source.getId() < 0) {
+                throw new IllegalArgumentException("bad post");
+            }
+        }
+    }
+
+    public static class CommentView extends View<Comment> {
+        private final ViewMapper viewMapper;
+
+        public CommentView(Comment source, BuildContext context, ViewMapper viewMapper) {
+            super(source, context);
+            this.viewMapper = viewMapper;
+        }
+    }
+
+    static class FakeView extends View<Fake> {
+        public FakeView(Fake source, BuildContext context) {
+            super(source, context);
+        }
+    }
+
+    private static DefaultViewMapperImpl scan(Class<?>... types) {
+        DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl();
+        ViewScanner scanner = new ViewScanner(new DefaultModelBuilder());
+        for (Class<?> type : types) {
+            scanner.add(viewMapper, type);
+        }
+        return viewMapper;
+    }
+
+    @Test
+    void testConstructorShapes() {
+        DefaultViewMapperImpl viewMapper = scan(UserView.class, PostView.class, CommentView.class, FakeView.class);
+        BuildContext context = new SimpleBuildContext();
+
+        User user = new User(1);
+        UserView userView = viewMapper.map(user, context);
+        assertSame(user, userView.getSource());
+        assertNull(userView.getContext());
+
+        Post post = new Post(1, 1, null);
+        PostView postView = viewMapper.map(post, context);
+        assertSame(post, postView.getSource());
+        assertSame(context, postView.getContext());
+
+        Comment comment = new Comment(1, 1, null);
+        CommentView commentView = viewMapper.map(comment, context);
+        assertSame(comment, commentView.getSource());
+        assertSame(context, commentView.getContext());
+        assertSame(viewMapper, commentView.viewMapper);
+
+        Fake fake = new Fake();
+        FakeView fakeView = viewMapper.map(fake, context);
+        assertSame(fake, fakeView.getSource());
+        assertSame(context, fakeView.getContext());
+    }
+
+    @Test
+    void testConstructFailure() {
+        DefaultViewMapperImpl viewMapper = scan(PostView.class);
+        // 与反射创建时一致，构造方法抛出异常时记录日志并返回null
+        assertNull(viewMapper.map(new Post(-1, 1, null), new SimpleBuildContext()));
+    }
+
+    @Test
+    void testGeneratedFactory() throws Exception {
+        Object generated = ViewFactories.of2(PostView.class.getConstructor(Post.class, BuildContext.class));
+        // LambdaMetafactory生成的函数直接调用构造方法，不持有MethodHandle
+        assertEquals(0, generated.getClass().getDeclaredFields().length);
+
+        // 其他包中非公开的构造方法以MethodHandle调用
+        Constructor<?> hidden = Class.forName("com.msl.model.builder.benchmark.ViewMappingBenchmark$HeavyView")
+                .getDeclaredConstructor(Post.class, BuildContext.class);
+        BiFunction<Object, Object, Object> bound = ViewFactories.of2(hidden);
+        assertEquals(1, bound.getClass().getDeclaredFields().length);
+        View<?> view = (View<?>) bound.apply(new Post(1, 1, null), null);
+        assertEquals(1L, ((Post) view.getSource()).getId());
+    }
+
+    @Test
+    void testChildLoaderView() throws Exception {
+        // 同名的View类由子类加载器重新定义，对ViewFactories的类加载器不可见
+        String name = "com.msl.view.registry.UserView";
+        ClassLoader parent = getClass().getClassLoader();
+        ClassLoader child = new ClassLoader(parent) {
+            @Override
+            protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+                if (!className.equals(name)) {
+                    return super.loadClass(className, resolve);
+                }
+                synchronized (getClassLoadingLock(className)) {
+                    Class<?> loaded = findLoadedClass(className);
+                    if (loaded != null) {
+                        return loaded;
+                    }
+                    try (InputStream in = parent.getResourceAsStream(className.replace('.', '/') + ".class")) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        byte[] buffer = new byte[4096];
+                        for (int n; (n = in.read(buffer)) > 0; ) {
+                            bytes.write(buffer, 0, n);
+                        }
+                        return defineClass(className, bytes.toByteArray(), 0, bytes.size());
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(className, e);
+                    }
+                }
+            }
+        };
+        Class<?> type = child.loadClass(name);
+        assertNotSame(Class.forName(name), type);
+
+        DefaultViewMapperImpl viewMapper = scan(type);
+        User user = new User(1);
+        View<User> view = viewMapper.map(user, new SimpleBuildContext());
+        assertSame(type, view.getClass());
+        assertSame(user, view.getSource());
+    }
+}
@@ -0,0 +1,85 @@
+package com.msl.view;
+
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import com.msl.view.processor.ViewRegistryProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量编译只编译修改过的View时，生成的注册类合并该包已有的View
+ */
+class ViewRegistryProcessorTest {
+
+    @Test
+    void testIncrementalCompile(@TempDir Path dir) throws Exception {
+        Path out = Files.createDirectories(dir.resolve("out"));
+        Path userView = source(dir, "UserView", "User", "public UserView(com.msl.model.builder.model.User source) { super(source, null); }");
+        Path postView = source(dir, "PostView", "Post",
+                "public PostView(com.msl.model.builder.model.Post source, com.msl.model.builder.context.BuildContext context) { super(source, context); }");
+        compile(out, userView, postView);
+
+        // 只重新编译UserView
+        compile(out, userView);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{out.toUri().toURL()}, getClass().getClassLoader())) {
+            ViewRegistry registry = (ViewRegistry) classLoader.loadClass("app.GeneratedViewRegistry").newInstance();
+            DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl();
+            registry.register(viewMapper);
+            SimpleBuildContext context = new SimpleBuildContext();
+            assertEquals("app.UserView", viewMapper.map(new User(1), context).getClass().getName());
+            assertEquals("app.PostView", viewMapper.map(new Post(1, 1, null), context).getClass().getName());
+        }
+        List<String> services = Files.readAllLines(out.resolve("META-INF/services/" + ViewRegistry.class.getName()));
+        assertEquals(Collections.singletonList("app.GeneratedViewRegistry"), services);
+    }
+
+    private static Path source(Path dir, String name, String model, String constructor) throws Exception {
+        Path file = Files.createDirectories(dir.resolve("src/app")).resolve(name + ".java");
+        String source = "package app;\n\npublic class " + name + " extends com.msl.view.View<com.msl.model.builder.model." + model + "> {\n    "
+                + constructor + "\n}\n";
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void compile(Path out, Path... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classPath = Stream.of(View.class, User.class, Logger.class)
+                .map(c -> c.getProtectionDomain().getCodeSource().getLocation())
+                .map(url -> {
+                    try {
+                        return new File(url.toURI()).getPath();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.joining(File.pathSeparator)) + File.pathSeparator + out;
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-d", out.toString(), "-classpath", classPath, "-implicit:none"),
+                    null, fileManager.getJavaFileObjects(Stream.of(sources).map(Path::toFile).toArray(File[]::new)));
+            task.setProcessors(Collections.singletonList(new ViewRegistryProcessor()));
+            assertTrue(task.call());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.msl.view;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.context.impl.SimpleBuildContext;
+import com.msl.model.builder.impl.DefaultModelBuilder;
+import com.msl.model.builder.model.Comment;
+import com.msl.model.builder.model.Fake;
+import com.msl.model.builder.model.Post;
+import com.msl.model.builder.model.User;
+import com.msl.view.mapper.ViewMapper;
+import com.msl.view.mapper.impl.DefaultViewMapperImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译测试代码时由ViewRegistryProcessor为com.msl.view.registry生成View注册类
+ */
+class ViewRegistryTest {
+
+    private static ViewRegistry registry() {
+        for (ViewRegistry registry : ServiceLoader.load(ViewRegistry.class)) {
+            if (registry.basePackage().equals("com.msl.view.registry")) {
+                return registry;
+            }
+        }
+        return fail("未生成com.msl.view.registry的View注册类");
+    }
+
+    @Test
+    void testGeneratedRegistry() {
+        ViewRegistry registry = registry();
+        assertEquals("com.msl.view.registry.GeneratedViewRegistry", registry.getClass().getName());
+
+        DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl();
+        registry.register(viewMapper);
+        BuildContext context = new SimpleBuildContext();
+
+        User user = new User(1);
+        View<User> userView = viewMapper.map(user, context);
+        assertEquals("UserView", userView.getClass().getSimpleName());
+        assertSame(user, userView.getSource());
+
+        Post post = new Post(1, 1, null);
+        View<Post> postView = viewMapper.map(post, context);
+        assertSame(post, postView.getSource());
+        assertSame(context, postView.getContext());
+
+        Comment comment = new Comment(1, 1, null);
+        View<Comment> commentView = viewMapper.map(comment, context);
+        assertEquals("CommentView", commentView.getClass().getSimpleName());
+        assertSame(context, commentView.getContext());
+
+        // 标记了ViewIgnore的View不注册
+        assertThrows(NoSuchElementException.class, () -> viewMapper.map(new Fake(), context));
+    }
+
+    @Test
+    void testScannerUsesRegistry() {
+        ViewMapper viewMapper = new ViewScanner(new DefaultModelBuilder()).viewMapper(new String[]{"com.msl.view.registry"});
+        Post post = new Post(1, 1, null);
+        View<Post> view = viewMapper.map(post, new SimpleBuildContext());
+        assertEquals("com.msl.view.registry.PostView", view.getClass().getName());
+        assertSame(post, view.getSource());
+    }
+
+    @Test
+    void testConstructFailure() {
+        DefaultViewMapperImpl viewMapper = new DefaultViewMapperImpl();
+        registry().register(viewMapper);
+        // 与扫描注册一致，构造方法抛出异常时记录日志并返回null
+        assertNull(viewMapper.map(new Post(-1, 1, null), new SimpleBuildContext()));
+    }
+
+    @Test
+    void testScanUnregisteredPackages() {
+        ViewScanner scanner = new ViewScanner(new DefaultModelBuilder()) {
+            @Override
+            protected List<ViewRegistry> loadRegistries() {
+                return Collections.singletonList(registry());
+            }
+        };
+        // com.msl.view.registry由注册类注册，其他没有注册类的子包仍扫描
+        ViewMapper viewMapper = scanner.viewMapper(new String[]{"com.msl.view"});
+        BuildContext context = new SimpleBuildContext();
+        assertEquals("com.msl.view.registry.UserView", viewMapper.map(new User(1), context).getClass().getName());
+        assertEquals("com.msl.view.other.OtherView", viewMapper.map(new Fake(), context).getClass().getName());
+    }
+}
@@ -0,0 +1,11 @@
+package com.msl.view.other;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Fake;
+import com.msl.view.View;
+
+public class OtherView extends View<Fake> {
+    public OtherView(Fake source, BuildContext context) {
+        super(source, context);
+    }
+}
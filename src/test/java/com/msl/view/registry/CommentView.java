@@ -0,0 +1,15 @@
+package com.msl.view.registry;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Comment;
+import com.msl.view.View;
+import com.msl.view.mapper.ViewMapper;
+
+class CommentView extends View<Comment> {
+    final ViewMapper viewMapper;
+
+    public CommentView(Comment source, BuildContext context, ViewMapper viewMapper) {
+        super(source, context);
+        this.viewMapper = viewMapper;
+    }
+}
@@ -0,0 +1,13 @@
+package com.msl.view.registry;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Fake;
+import com.msl.view.View;
+import com.msl.view.annotation.ViewIgnore;
+
+@ViewIgnore
+public class IgnoredView extends View<Fake> {
+    public IgnoredView(Fake source, BuildContext context) {
+        super(source, context);
+    }
+}
@@ -0,0 +1,14 @@
+package com.msl.view.registry;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Post;
+import com.msl.view.View;
+
+public class PostView extends View<Post> {
+    public PostView(Post source, BuildContext context) {
+        super(source, context);
+        if (source.getId() < 0) {
+            throw new IllegalArgumentException("bad post");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.msl.view.registry;
+
+import com.msl.model.builder.model.User;
+import com.msl.view.View;
+
+public class UserView extends View<User> {
+    public UserView(User source) {
+        super(source, null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.msl.view.scan;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Post;
+import com.msl.view.View;
+
+public abstract class AbstractScanView extends View<Post> {
+    public AbstractScanView(Post source, BuildContext context) {
+        super(source, context);
+    }
+}
@@ -0,0 +1,14 @@
+package com.msl.view.scan;
+
+import com.msl.model.builder.context.BuildContext;
+import com.msl.model.builder.model.Post;
+
+public class InitializingView extends AbstractScanView {
+    static {
+        System.setProperty(InitializingView.class.getName(), "initialized");
+    }
+
+    public InitializingView(Post source, BuildContext context) {
+        super(source, context);
+    }
+}
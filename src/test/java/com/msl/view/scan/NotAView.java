@@ -0,0 +1,4 @@
+package com.msl.view.scan;
+
+public class NotAView {
+}